@@ -44,7 +44,8 @@ public class App implements ApplicationRunner {
         log.info(String.join(", ", args.getOptionNames()));
         if (args.containsOption("data-file")) {
             repoPopulator.init().ingestTarFile(
-                args.getOptionValues("data-file")
+                args.getOptionValues("data-file"),
+                args.containsOption("resume")
             );
         }
         if (args.containsOption("shutdown")) {
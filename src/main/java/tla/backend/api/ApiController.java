@@ -20,6 +20,8 @@ import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandl
 import tla.backend.es.model.Metadata;
 import tla.backend.es.repo.LemmaRepo;
 import tla.backend.service.MetadataService;
+import tla.backend.service.component.EntityCache;
+import tla.backend.service.component.EntityLookup;
 import tla.backend.api.LemmaController;
 
 
@@ -36,6 +38,9 @@ public class ApiController {
     @Autowired
     private MetadataService metadataService;
 
+    @Autowired
+    private EntityLookup entityLookup;
+
     /**
      * list all registered endpoints
      */
@@ -54,6 +59,17 @@ public class ApiController {
         );
     }
 
+    /**
+     * Returns hit and miss counts of the referenced entity cache for each cached eclass.
+     */
+    @RequestMapping(value = "/cache/entities", method = RequestMethod.GET)
+    public ResponseEntity<Map<String, EntityCache.Stats>> getEntityCacheStats() {
+        return new ResponseEntity<>(
+            this.entityLookup.getCacheStats(),
+            HttpStatus.OK
+        );
+    }
+
     /**
      * Returns version info.
      */
@@ -1,10 +1,14 @@
 package tla.backend.api;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -15,11 +19,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import lombok.extern.slf4j.Slf4j;
 import tla.backend.es.model.meta.Indexable;
+import tla.backend.es.query.SearchCursor;
 import tla.backend.service.EntityService;
+import tla.backend.service.search.ExportWriter;
 import tla.domain.command.SearchCommand;
 import tla.domain.dto.extern.SearchResultsWrapper;
 import tla.domain.dto.extern.SingleDocumentWrapper;
@@ -36,6 +44,14 @@ import tla.error.ObjectNotFoundException;
 @RestController
 public abstract class EntityController<T extends Indexable, D extends AbstractDto> {
 
+    /**
+     * response header containing the search cursor for the next page of search results
+     */
+    public static final String CURSOR_HEADER = "X-Search-Cursor";
+
+    @Autowired
+    protected ResponseCache responseCache;
+
     /**
      * Must return a presumably autowired entity service of appropriate type.
      */
@@ -50,16 +66,21 @@ public abstract class EntityController<T extends Indexable, D extends AbstractDt
         consumes = MediaType.ALL_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public ResponseEntity<SingleDocumentWrapper<? extends AbstractDto>> get(@PathVariable String id) throws ObjectNotFoundException {
-        SingleDocumentWrapper<?> result = getService().getDetails(id);
-        if (result != null) {
-            return new ResponseEntity<SingleDocumentWrapper<?>>(
-                result,
-                HttpStatus.OK
-            );
-        }
-        log.error("could not find entity {}", id);
-        throw new ObjectNotFoundException(id, this.getService().getModelClass().getSimpleName());
+    public ResponseEntity<byte[]> get(
+        @PathVariable String id, WebRequest request
+    ) throws ObjectNotFoundException {
+        return responseCache.respond(
+            request,
+            String.format("%s/get/%s", getPath(), id),
+            () -> {
+                SingleDocumentWrapper<? extends AbstractDto> result = getService().getDetails(id);
+                if (result == null) {
+                    log.error("could not find entity {}", id);
+                    throw new ObjectNotFoundException(id, this.getService().getModelClass().getSimpleName());
+                }
+                return result;
+            }
+        );
     }
     
     
@@ -85,11 +106,19 @@ public abstract class EntityController<T extends Indexable, D extends AbstractDt
         method = RequestMethod.GET,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public ResponseEntity<List<? extends AbstractDto>> getCompletions(@RequestParam(required = false) String type, @RequestParam String q) throws Exception {
+    public ResponseEntity<byte[]> getCompletions(
+        @RequestParam(required = false) String type, @RequestParam String q, WebRequest request
+    ) throws Exception {
         try {
-            return new ResponseEntity<List<? extends AbstractDto>>(
-                getService().autoComplete(type, q),
-                HttpStatus.OK
+            return responseCache.respond(
+                request,
+                String.format(
+                    "%s/complete?q=%s%s",
+                    getPath(),
+                    URLEncoder.encode(q, StandardCharsets.UTF_8),
+                    type != null ? "&type=" + URLEncoder.encode(type, StandardCharsets.UTF_8) : ""
+                ),
+                () -> getService().autoComplete(type, q)
             );
         } catch (Exception e) {
             throw new ResponseStatusException(
@@ -109,30 +138,96 @@ public abstract class EntityController<T extends Indexable, D extends AbstractDt
         consumes = MediaType.ALL_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public ResponseEntity<Long> count() {
-        return new ResponseEntity<Long>(
-            getService().getRepo().count(),
-            HttpStatus.OK
+    public ResponseEntity<byte[]> count(WebRequest request) {
+        return responseCache.respond(
+            request,
+            String.format("%s/count", getPath()),
+            () -> getService().getRepo().count()
         );
     }
 
+    /**
+     * Run search command. Results are paged by offset, unless a <code>cursor</code> parameter
+     * is passed: a value of <code>*</code> starts cursor-based paging, and the cursor for
+     * the next page is returned in the {@link #CURSOR_HEADER} response header (which is
+     * missing on the last page).
+     */
     @RequestMapping(
         value = "/search",
         method = RequestMethod.POST,
         consumes = MediaType.ALL_VALUE,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
-    public ResponseEntity<SearchResultsWrapper<?>> search(@RequestBody SearchCommand<D> command, Pageable page) {
+    public ResponseEntity<?> search(
+        @RequestBody SearchCommand<D> command,
+        Pageable page,
+        @RequestParam(required = false) String cursor,
+        WebRequest request
+    ) {
         Pageable page10 = PageRequest.of(page.getPageNumber(), 10, page.getSort()); //sets page size to 10
         log.info("page: {}", tla.domain.util.IO.json(page10));
         log.info("command: {}", tla.domain.util.IO.json(command));
-        var result = this.getService().runSearchCommand(command, page10);
+        SearchCursor searchCursor = null;
+        if (cursor != null) {
+            try {
+                searchCursor = SearchCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+        }
+        if (searchCursor == null) {
+            return responseCache.respond(
+                request,
+                String.format("%s/search?page=%s\n%s", getPath(), page10, tla.domain.util.IO.json(command)),
+                () -> this.getService().runSearchCommand(command, page10).orElseThrow(
+                    () -> new ObjectNotFoundException(getService().getModelClass().getName())
+                )
+            );
+        }
+        var result = this.getService().runSearchCommand(command, page10, searchCursor);
+        HttpHeaders headers = new HttpHeaders();
+        if (searchCursor != null && searchCursor.getNext() != null) {
+            headers.set(CURSOR_HEADER, searchCursor.getNext().encode());
+            headers.setAccessControlExposeHeaders(List.of(CURSOR_HEADER));
+        }
         return new ResponseEntity<SearchResultsWrapper<?>>(
             result.orElseThrow(
                 () -> new ObjectNotFoundException(getService().getModelClass().getName())
             ),
+            headers,
             HttpStatus.OK
         );
     }
 
+    /**
+     * Run search command and stream all matching documents as newline-delimited JSON
+     * (<code>format=ndjson</code>) or CSV (<code>format=csv</code>), optionally
+     * restricted to the fields specified in the <code>fields</code> parameter.
+     */
+    @RequestMapping(
+        value = "/export",
+        method = RequestMethod.POST,
+        consumes = MediaType.ALL_VALUE
+    )
+    public ResponseEntity<StreamingResponseBody> export(
+        @RequestBody SearchCommand<D> command,
+        @RequestParam(defaultValue = "ndjson") String format,
+        @RequestParam(required = false) List<String> fields
+    ) {
+        ExportWriter.Format exportFormat;
+        try {
+            exportFormat = ExportWriter.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(
+                HttpStatus.BAD_REQUEST, String.format("unsupported export format: %s", format), e
+            );
+        }
+        log.info("export command: {}", tla.domain.util.IO.json(command));
+        return ResponseEntity.ok().contentType(
+            MediaType.parseMediaType(exportFormat.getMediaType())
+        ).body(
+            out -> this.getService().exportSearchCommand(command, fields, exportFormat, out)
+        );
+    }
+
 }
@@ -2,9 +2,7 @@ package tla.backend.api;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
@@ -13,8 +11,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import tla.backend.es.model.LemmaEntity;
+import tla.backend.es.model.meta.ModelConfig;
 import tla.backend.es.repo.LemmaRepo;
 import tla.backend.service.EntityService;
 import tla.backend.service.LemmaService;
@@ -31,20 +31,17 @@ public class LemmaController extends EntityController<LemmaEntity, LemmaDto> {
     @Autowired
     private LemmaService lemmaService;
 
-    @Autowired
-    private ModelMapper modelMapper;
-
     @Override
     public EntityService<LemmaEntity, ?, LemmaDto> getService() {
         return lemmaService;
     }
 
     @RequestMapping(method = RequestMethod.GET, value = "/frequencies")
-    public ResponseEntity<Map<String, Long>> getFrequencies() {
-        Map<String, Long> freq = lemmaService.getMostFrequent(2000);
-        return new ResponseEntity<Map<String, Long>>(
-            freq,
-            HttpStatus.OK
+    public ResponseEntity<byte[]> getFrequencies(WebRequest request) {
+        return responseCache.respond(
+            request,
+            "lemma/frequencies",
+            () -> lemmaService.getMostFrequent(2000)
         );
     }
 
@@ -54,7 +51,7 @@ public class LemmaController extends EntityController<LemmaEntity, LemmaDto> {
         repo.findAllById(ids).forEach(
             entity -> {
                 results.add(
-                    modelMapper.map(
+                    ModelConfig.map(
                         entity,
                         LemmaDto.class
                     )
@@ -0,0 +1,226 @@
+package tla.backend.api;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import lombok.extern.slf4j.Slf4j;
+import tla.backend.config.ApplicationProperties;
+import tla.backend.es.model.Metadata;
+import tla.backend.es.repo.CorpusIngestedEvent;
+import tla.backend.service.MetadataService;
+
+/**
+ * Caches API responses which only change when a new corpus release gets ingested.
+ *
+ * Responses get an ETag derived from the corpus release (as described by {@link Metadata})
+ * and the request, and <code>Cache-Control</code> headers allowing clients and proxies to
+ * reuse them. Conditional GET requests whose ETag matches are answered with
+ * <code>304 Not Modified</code> without computing the response body. Response bodies are
+ * serialized to JSON right away (by the same object mapper the web layer uses), and kept in
+ * serialized form in a least recently used in-process cache keyed by release and request,
+ * which is emptied once another corpus has been ingested. Cached responses are served as they
+ * are, without serializing them again. The cache is bounded by number of entries and by the
+ * total size of the cached bodies.
+ */
+@Slf4j
+@Component
+public class ResponseCache {
+
+    @Autowired
+    private MetadataService metadataService;
+
+    @Autowired(required = false)
+    private ApplicationProperties properties;
+
+    @Autowired(required = false)
+    private ObjectMapper objectMapper;
+
+    private LinkedHashMap<String, byte[]> bodies = new LinkedHashMap<>(16, .75f, true);
+
+    /**
+     * size of all cached bodies together
+     */
+    private long bytes = 0;
+
+    private String release = null;
+
+    protected ApplicationProperties.CacheProperties getCacheProperties() {
+        return this.properties != null ? this.properties.getCache() : new ApplicationProperties.CacheProperties();
+    }
+
+    /**
+     * Object mapper of the web layer, or the default one if the cache has not been created by
+     * the application context.
+     */
+    protected ObjectMapper getObjectMapper() {
+        return this.objectMapper != null ? this.objectMapper : tla.domain.util.IO.getMapper();
+    }
+
+    /**
+     * Identifier of the corpus release currently being served.
+     */
+    public synchronized String getRelease() {
+        if (this.release == null) {
+            Metadata metadata = metadataService.getInfo();
+            if (metadata == null) {
+                metadata = Metadata.EMPTY;
+            }
+            this.release = String.join(
+                "/",
+                String.valueOf(metadata.getId()),
+                String.valueOf(metadata.getEtlVersion()),
+                String.valueOf(metadata.getDate())
+            );
+        }
+        return this.release;
+    }
+
+    /**
+     * Create response with release-scoped ETag and caching headers. The response body is taken
+     * from the in-process cache if possible, or computed, serialized and cached otherwise.
+     *
+     * @param request incoming request, for checking <code>If-None-Match</code> headers
+     * @param key request key (must cover everything the response body depends on
+     * besides the corpus release)
+     * @param body computes the response body
+     * @return response with JSON body, or <code>null</code> if the client's cached response is
+     * still valid (only checked for GET and HEAD requests)
+     */
+    public ResponseEntity<byte[]> respond(WebRequest request, String key, Supplier<?> body) {
+        String release = this.getRelease();
+        String etag = etag(release, key);
+        if (isSafe(request) && request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(
+            this.cacheControl()
+        ).contentType(
+            MediaType.APPLICATION_JSON
+        ).body(
+            this.get(release + "\n" + key, body)
+        );
+    }
+
+    /**
+     * Whether request is a GET or HEAD request, for which conditional requests are to be
+     * evaluated.
+     */
+    static boolean isSafe(WebRequest request) {
+        if (request instanceof ServletWebRequest) {
+            var method = ((ServletWebRequest) request).getHttpMethod();
+            return method == HttpMethod.GET || method == HttpMethod.HEAD;
+        }
+        return false;
+    }
+
+    /**
+     * Look up or compute and serialize response body.
+     *
+     * @return JSON serialization of the response body, or <code>null</code> if there is no body
+     * @throws UncheckedIOException if the body could not be serialized
+     */
+    byte[] get(String key, Supplier<?> body) {
+        synchronized (this) {
+            byte[] cached = this.bodies.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Object value = body.get();
+        if (value == null) {
+            return null;
+        }
+        final byte[] json;
+        try {
+            json = this.getObjectMapper().writeValueAsBytes(value);
+        } catch (IOException e) {
+            log.error("could not serialize response body {}", key);
+            throw new UncheckedIOException(e);
+        }
+        if (getCacheProperties().getResponseCacheSize() > 0) {
+            this.put(key, json);
+        }
+        return json;
+    }
+
+    /**
+     * Cache a serialized response body, evicting the least recently used ones if necessary.
+     * Bodies larger than the whole cache are not cached.
+     */
+    private void put(String key, byte[] json) {
+        var properties = getCacheProperties();
+        if (json.length > properties.getResponseCacheMaxBytes()) {
+            return;
+        }
+        synchronized (this) {
+            var previous = this.bodies.put(key, json);
+            this.bytes += json.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> eldest = this.bodies.values().iterator();
+            while (eldest.hasNext() && (
+                this.bodies.size() > properties.getResponseCacheSize()
+                || this.bytes > properties.getResponseCacheMaxBytes()
+            )) {
+                this.bytes -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    private CacheControl cacheControl() {
+        long maxAge = getCacheProperties().getMaxAge();
+        return maxAge > 0
+            ? CacheControl.maxAge(maxAge, TimeUnit.SECONDS).cachePublic()
+            : CacheControl.noCache();
+    }
+
+    /**
+     * Discard cached responses of the previous corpus release.
+     */
+    @EventListener
+    public void onCorpusIngested(CorpusIngestedEvent event) {
+        log.info("discard cached responses");
+        synchronized (this) {
+            this.release = null;
+            this.bodies.clear();
+            this.bytes = 0;
+        }
+    }
+
+    /**
+     * Compute strong ETag from release and request key.
+     */
+    static String etag(String release, String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+                (release + "\n" + key).getBytes(StandardCharsets.UTF_8)
+            );
+            StringBuilder etag = new StringBuilder("\"");
+            for (int i = 0; i < 16; i++) {
+                etag.append(String.format("%02x", digest[i]));
+            }
+            return etag.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -1,9 +1,12 @@
 package tla.backend.config;
 
+import java.util.List;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
 import lombok.Data;
+import tla.backend.service.component.EntityLookup;
 
 @Data
 @Configuration
@@ -12,6 +15,12 @@ public class ApplicationProperties {
 
     private ElasticsearchProperties es;
 
+    private IngestProperties ingest = new IngestProperties();
+
+    private SearchProperties search = new SearchProperties();
+
+    private CacheProperties cache = new CacheProperties();
+
     @Data
     public static class ElasticsearchProperties {
         /**
@@ -23,4 +32,233 @@ public class ApplicationProperties {
          */
         private String host;
     }
+
+    @Data
+    public static class CacheProperties {
+        /**
+         * Maximum number of API responses kept in cache (<code>0</code> disables caching).
+         */
+        private int responseCacheSize = 1000;
+        /**
+         * Maximum total size (bytes) of the API responses kept in cache, estimated by their
+         * JSON serialization.
+         */
+        private long responseCacheMaxBytes = 64L * 1024 * 1024;
+        /**
+         * Seconds for which clients and proxies may reuse API responses without revalidating
+         * them (<code>0</code> means they always have to revalidate). Should not be much longer
+         * than the release check interval, after which a newly ingested corpus gets served.
+         */
+        private long maxAge = 60;
+        /**
+         * Seconds between checks whether another process has ingested a new corpus release, in
+         * which case all caches get emptied (<code>0</code> disables checking).
+         */
+        private long releaseCheckInterval = 60;
+        /**
+         * Eclasses of referenced entities (e.g. thesaurus entries) kept in cache when
+         * resolving related documents.
+         */
+        private List<String> entityCacheEclasses = List.of("BTSThsEntry", "BTSLemmaEntry");
+        /**
+         * Maximum number of entities kept in cache for each of these eclasses
+         * (<code>0</code> disables caching).
+         */
+        private int entityCacheSize = 10000;
+    }
+
+    @Data
+    public static class SearchProperties {
+        /**
+         * Number of threads executing query dependencies (e.g. thesaurus expansion queries)
+         * concurrently. If this is <code>0</code>, dependencies are executed one after another.
+         */
+        private int dependencyThreads = 8;
+        /**
+         * Maximum number of query dependencies waiting for a thread.
+         */
+        private int dependencyQueueCapacity = 64;
+        /**
+         * Maximum time (ms) a search request waits for its query dependencies
+         * (<code>0</code> means no limit).
+         */
+        private long dependencyTimeout = 10000;
+        /**
+         * Number of IDs retrieved per request when collecting the IDs of all documents matching
+         * an expansion query.
+         */
+        private int idCollectionPageSize = 10000;
+        /**
+         * Maximum number of query dependency results (e.g. thesaurus expansions) kept in cache
+         * (<code>0</code> disables caching).
+         */
+        private int dependencyCacheSize = 256;
+        /**
+         * Maximum number of collected IDs and search hits held by all cached query dependency
+         * results together.
+         */
+        private long dependencyCacheMaxIds = 5000000;
+        /**
+         * Number of documents retrieved per scroll request when exporting search results.
+         */
+        private int exportBatchSize = 1000;
+        /**
+         * Seconds a scroll context is kept alive between two batches of exported search results.
+         */
+        private long exportKeepAlive = 60;
+        /**
+         * Seconds the point in time of a search cursor is kept alive between two pages.
+         */
+        private long cursorKeepAlive = 300;
+        /**
+         * How requested documents and the documents they reference are retrieved: with
+         * multi-search and multi-get requests, or with one repository lookup per index, either
+         * concurrently or one after another.
+         */
+        private EntityLookup.Mode lookupMode = EntityLookup.Mode.MULTI_GET;
+        /**
+         * Number of threads running repository lookups in concurrent lookup mode.
+         */
+        private int lookupThreads = 4;
+        /**
+         * Keep the thesaurus hierarchy in memory and answer thesaurus subtree expansions
+         * from it instead of querying Elasticsearch.
+         */
+        private boolean thesaurusTree = true;
+    }
+
+    @Data
+    public static class IngestProperties {
+        /**
+         * Number of threads deserializing archived JSON documents. If this is <code>0</code>,
+         * documents are read, deserialized and indexed one after another on the calling thread.
+         */
+        private int workers = 0;
+        /**
+         * Maximum number of bulk requests being sent to Elasticsearch at the same time
+         * (only used if {@link #workers} is greater than <code>0</code>).
+         */
+        private int bulkSenders = 2;
+        /**
+         * Maximum number of archived documents waiting for deserialization.
+         */
+        private int queueCapacity = 2000;
+        /**
+         * Send archived documents to Elasticsearch as they are, instead of deserializing them
+         * into model class instances first. Only the document ID is being extracted.
+         * This requires archived documents to be laid out exactly as the index mapping expects.
+         * Properties accepting alternative names are renamed to the names the mapping expects.
+         */
+        private boolean raw = false;
+        /**
+         * In raw mode, make sure archived documents can be deserialized into their model class
+         * before sending them.
+         */
+        private boolean validate = false;
+        /**
+         * Ingest into a fresh generation of physical indices and switch the index aliases
+         * over to them once ingestion has completed.
+         */
+        private boolean aliases = false;
+        /**
+         * Release identifier used as suffix of the physical index names (defaults to
+         * the current timestamp).
+         */
+        private String release;
+        /**
+         * Keep the previous generation of physical indices after switching aliases.
+         */
+        private boolean keepPrevious = false;
+        /**
+         * Switch target indices to bulk-load settings (no periodic refresh, no replicas,
+         * async translog) during ingest, and back to their serving settings afterwards.
+         */
+        private boolean bulkProfile = true;
+        /**
+         * Force-merge target indices down to this number of segments after ingest
+         * (<code>0</code> means no force-merge).
+         */
+        private int forceMerge = 0;
+        /**
+         * Location of the ingest checkpoint file (defaults to the archive path followed by
+         * <code>.checkpoint</code>).
+         */
+        private String checkpoint;
+        /**
+         * Minimum number of seconds between checkpoint file updates.
+         */
+        private int checkpointInterval = 10;
+        /**
+         * Number of times a failed bulk request is being retried.
+         */
+        private int retries = 5;
+        /**
+         * Milliseconds to wait before the first retry of a failed bulk request. Doubles with each
+         * further retry.
+         */
+        private long retryBackoff = 500;
+        /**
+         * Delta ingest mode. Instead of reloading everything, only documents which differ from
+         * their indexed versions are sent to the live indices.
+         */
+        private DeltaMode delta = DeltaMode.OFF;
+        /**
+         * Lower bound for the serialized size of documents sent in one bulk request (bytes).
+         */
+        private long batchMinBytes = 512 * 1024;
+        /**
+         * Upper bound for the serialized size of documents sent in one bulk request (bytes).
+         */
+        private long batchMaxBytes = 20 * 1024 * 1024;
+        /**
+         * Serialized size of documents sent in one bulk request to start with (bytes).
+         */
+        private long batchInitialBytes = 5 * 1024 * 1024;
+        /**
+         * Bulk request duration (ms) up to which the batch size is allowed to grow.
+         */
+        private long batchTargetLatency = 1000;
+        /**
+         * Maximum number of archives being read concurrently.
+         */
+        private int archiveReaders = 4;
+        /**
+         * Number of decompressed archive chunks read ahead on a separate thread
+         * (<code>0</code> disables read-ahead).
+         */
+        private int readAhead = 16;
+        /**
+         * Size of chunks read ahead (bytes).
+         */
+        private int readAheadBufferSize = 1024 * 1024;
+        /**
+         * Whether to memory-map archive files instead of reading them through a file stream.
+         */
+        private boolean mmap = true;
+        /**
+         * Seconds between ingest progress log messages (<code>0</code> disables them).
+         */
+        private int metricsInterval = 30;
+        /**
+         * JSON file to which ingest metrics are written after ingest (none if empty,
+         * which is the default).
+         */
+        private String metricsFile = null;
+    }
+
+    public enum DeltaMode {
+        /**
+         * index all documents
+         */
+        OFF,
+        /**
+         * archive contains the complete corpus: index changed documents, and delete indexed
+         * documents not found in the archive
+         */
+        FULL,
+        /**
+         * archive contains changed documents only, plus optional lists of deleted IDs
+         */
+        CHANGES
+    }
 }
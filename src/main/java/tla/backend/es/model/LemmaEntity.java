@@ -24,7 +24,7 @@ import lombok.experimental.SuperBuilder;
 import tla.backend.es.model.meta.TLAEntity;
 import tla.backend.es.model.parts.Token;
 import tla.backend.es.model.parts.Translations;
-import tla.backend.es.model.parts.Transcription;
+import tla.backend.es.model.parts.LemmaTranscription;
 import tla.backend.es.model.parts.Glyphs;
 import tla.domain.dto.LemmaDto;
 import tla.domain.dto.LemmaDto.TimeSpan;
@@ -52,7 +52,7 @@ public class LemmaEntity extends TLAEntity {
     private Glyphs glyphs;
   
     @Field(type = FieldType.Object)
-    private Transcription transcription;
+    private LemmaTranscription transcription;
     
     @Field(type = FieldType.Object)
     private Translations translations;
@@ -0,0 +1,477 @@
+package tla.backend.es.model.meta;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.modelmapper.ModelMapper;
+import org.modelmapper.TypeMap;
+import org.modelmapper.config.Configuration;
+import org.modelmapper.spi.Mapping;
+import org.modelmapper.spi.PropertyInfo;
+import org.modelmapper.spi.PropertyMapping;
+
+import lombok.extern.slf4j.Slf4j;
+import tla.backend.es.model.parts.Translations;
+
+/**
+ * Entity to DTO conversion without going through ModelMapper's mapping engine for every object.
+ *
+ * <p>For each type map registered with ModelMapper (see {@link ModelConfig#initModelMapper()}),
+ * the property mappings ModelMapper has resolved are compiled once into a list of getter
+ * and setter method handles, so that converting an entity comes down to instantiating its DTO
+ * and copying property values. Values which are not simply assignable (nested DTO models,
+ * collections thereof) are converted the same way, recursively, and anything that cannot
+ * be compiled is left to ModelMapper.</p>
+ *
+ * <p>The first conversions of each type pair are compared with the result of ModelMapper, and
+ * after that every {@link #VALIDATION_INTERVAL}th one, so that entities whose shape only shows up
+ * later in a corpus get checked as well. If the results differ, the compiled mapper of that
+ * type pair is discarded and ModelMapper's result is used from then on.</p>
+ */
+@Slf4j
+public class DtoMappers {
+
+    /**
+     * Number of conversions per type pair whose result is checked against ModelMapper.
+     */
+    public static final int VALIDATION_SAMPLES = 20;
+
+    /**
+     * Every how many conversions per type pair one is checked against ModelMapper, once the
+     * first {@link #VALIDATION_SAMPLES} have been.
+     */
+    public static final int VALIDATION_INTERVAL = 1000;
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final Set<Class<?>> IMMUTABLE_TYPES = Set.of(
+        String.class, Boolean.class, Character.class, Byte.class, Short.class,
+        Integer.class, Long.class, Float.class, Double.class
+    );
+
+    private final ModelMapper modelMapper;
+
+    private final int validationSamples;
+
+    private final int validationInterval;
+
+    private final Map<List<Class<?>>, Optional<CompiledMapper>> mappers = new ConcurrentHashMap<>();
+
+    public DtoMappers(ModelMapper modelMapper) {
+        this(modelMapper, VALIDATION_SAMPLES, VALIDATION_INTERVAL);
+    }
+
+    /**
+     * @param validationSamples number of conversions per type pair to be checked against
+     * ModelMapper
+     * @param validationInterval every how many conversions one is checked against ModelMapper
+     * after that (<code>0</code> for none)
+     */
+    public DtoMappers(ModelMapper modelMapper, int validationSamples, int validationInterval) {
+        this.modelMapper = modelMapper;
+        this.validationSamples = validationSamples;
+        this.validationInterval = validationInterval;
+    }
+
+    /**
+     * Convert an object to the given type, using a compiled mapper if there is a type map for
+     * this pair of types, and ModelMapper otherwise.
+     */
+    public <D> D map(Object source, Class<D> destinationType) {
+        CompiledMapper mapper = this.getMapper(source.getClass(), destinationType);
+        if (mapper == null) {
+            return this.modelMapper.map(source, destinationType);
+        }
+        D result;
+        try {
+            result = destinationType.cast(mapper.map(source));
+        } catch (RuntimeException e) {
+            this.disable(mapper, source.getClass(), destinationType, e.toString());
+            return this.modelMapper.map(source, destinationType);
+        }
+        if (this.isValidated(mapper.conversions.getAndIncrement())) {
+            D expected = this.modelMapper.map(source, destinationType);
+            if (!Objects.equals(json(result), json(expected))) {
+                this.disable(mapper, source.getClass(), destinationType, "result differs from ModelMapper");
+                return expected;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Whether the conversion with the given number is to be checked against ModelMapper.
+     */
+    private boolean isValidated(long conversion) {
+        return conversion < this.validationSamples || (
+            this.validationInterval > 0 && (conversion - this.validationSamples) % this.validationInterval == this.validationInterval - 1
+        );
+    }
+
+    private void disable(CompiledMapper mapper, Class<?> sourceType, Class<?> destinationType, String reason) {
+        mapper.enabled = false;
+        log.warn(
+            "compiled mapper {} -> {} is disabled: {}",
+            sourceType.getName(),
+            destinationType.getName(),
+            reason
+        );
+    }
+
+    /**
+     * Whether conversions between the given types are done by a compiled mapper.
+     */
+    public boolean isCompiled(Class<?> sourceType, Class<?> destinationType) {
+        return this.getMapper(sourceType, destinationType) != null;
+    }
+
+    private CompiledMapper getMapper(Class<?> sourceType, Class<?> destinationType) {
+        return this.mappers.computeIfAbsent(
+            List.of(sourceType, destinationType),
+            key -> Optional.ofNullable(this.compile(sourceType, destinationType))
+        ).filter(
+            mapper -> mapper.enabled
+        ).orElse(null);
+    }
+
+    private CompiledMapper compile(Class<?> sourceType, Class<?> destinationType) {
+        TypeMap<?, ?> typeMap = this.modelMapper.getTypeMap(sourceType, destinationType);
+        if (typeMap == null) {
+            return null;
+        }
+        try {
+            return new CompiledMapper(typeMap);
+        } catch (UnsupportedOperationException | ReflectiveOperationException e) {
+            log.info(
+                "type map {} -> {} is left to ModelMapper: {}",
+                sourceType.getName(),
+                destinationType.getName(),
+                e.getMessage()
+            );
+            return null;
+        }
+    }
+
+    private static String json(Object value) {
+        try {
+            return tla.domain.util.IO.getMapper().writeValueAsString(value);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Property mappings of a single type map, resolved to method handles.
+     */
+    private class CompiledMapper {
+
+        private final MethodHandle constructor;
+        private final List<PropertyCopy> properties = new ArrayList<>();
+        private final AtomicLong conversions = new AtomicLong();
+        private volatile boolean enabled = true;
+
+        CompiledMapper(TypeMap<?, ?> typeMap) throws ReflectiveOperationException {
+            Configuration config = modelMapper.getConfiguration();
+            if (config.isSkipNullEnabled()
+                || Stream.of(
+                    config.getPropertyCondition(), config.getProvider(),
+                    typeMap.getConverter(), typeMap.getPreConverter(), typeMap.getPostConverter(),
+                    typeMap.getCondition(), typeMap.getProvider(), typeMap.getPropertyCondition(),
+                    typeMap.getPropertyConverter(), typeMap.getPropertyProvider()
+                ).anyMatch(Objects::nonNull)
+            ) {
+                throw new UnsupportedOperationException("custom converter, condition or provider");
+            }
+            Constructor<?> constructor = typeMap.getDestinationType().getDeclaredConstructor();
+            constructor.setAccessible(true);
+            this.constructor = LOOKUP.unreflectConstructor(constructor).asType(
+                MethodType.methodType(Object.class)
+            );
+            for (Mapping mapping : typeMap.getMappings()) {
+                if (mapping.getCondition() != null || mapping.getProvider() != null) {
+                    throw new UnsupportedOperationException("property condition or provider");
+                }
+                if (mapping.isSkipped()) {
+                    continue;
+                }
+                if (!(mapping instanceof PropertyMapping) || mapping.getDestinationProperties().size() != 1) {
+                    throw new UnsupportedOperationException("nested or non-property mapping");
+                }
+                this.properties.add(
+                    new PropertyCopy((PropertyMapping) mapping)
+                );
+            }
+        }
+
+        Object map(Object source) {
+            Object destination = invoke(this.constructor);
+            for (PropertyCopy property : this.properties) {
+                property.copy(source, destination);
+            }
+            return destination;
+        }
+    }
+
+    /**
+     * Reads a property value from the source object, converts it to the destination property
+     * type and sets the destination property to that value.
+     */
+    private class PropertyCopy {
+
+        private final List<Function<Object, Object>> getters = new ArrayList<>();
+        private final BiConsumer<Object, Object> setter;
+        private final Function<Object, Object> conversion;
+        private final Object nullValue;
+
+        PropertyCopy(PropertyMapping mapping) throws IllegalAccessException {
+            for (PropertyInfo property : mapping.getSourceProperties()) {
+                this.getters.add(getter(property.getMember()));
+            }
+            PropertyInfo destination = mapping.getLastDestinationProperty();
+            this.setter = setter(destination.getMember());
+            this.nullValue = destination.getType().isPrimitive()
+                ? Array.get(Array.newInstance(destination.getType(), 1), 0)
+                : null;
+            if (mapping.getConverter() instanceof Translations.ToMapConverter) {
+                this.conversion = value -> ((Translations) value).toMap();
+            } else if (mapping.getConverter() != null) {
+                throw new UnsupportedOperationException("custom property converter");
+            } else {
+                Type type = destination.getGenericType() != null
+                    ? destination.getGenericType()
+                    : destination.getType();
+                this.conversion = value -> convert(value, type);
+            }
+        }
+
+        void copy(Object source, Object destination) {
+            Object value = source;
+            for (Function<Object, Object> getter : this.getters) {
+                value = getter.apply(value);
+                if (value == null) {
+                    break;
+                }
+            }
+            if (value != null) {
+                value = this.conversion.apply(value);
+            }
+            this.setter.accept(
+                destination,
+                value != null ? value : this.nullValue
+            );
+        }
+    }
+
+    /**
+     * Convert a property value to the destination property type in the same way ModelMapper
+     * would: using a type map if there is one, creating new collections, maps and arrays,
+     * and assigning values as they are if their type allows it.
+     */
+    Object convert(Object value, Type type) {
+        Class<?> rawType = rawType(type);
+        if (rawType.isArray() && (value instanceof Collection || value.getClass().isArray())) {
+            Class<?> componentType = rawType.getComponentType();
+            Collection<?> items = items(value);
+            Object array = Array.newInstance(componentType, items.size());
+            int i = 0;
+            for (Object item : items) {
+                Array.set(array, i++, item != null ? convert(item, componentType) : null);
+            }
+            return array;
+        }
+        if (Collection.class.isAssignableFrom(rawType) && (value instanceof Collection || value.getClass().isArray())) {
+            Type elementType = typeArgument(type, 0);
+            Collection<?> items = items(value);
+            Collection<Object> collection = newCollection(rawType, items.size());
+            for (Object item : items) {
+                collection.add(item != null ? convert(item, elementType) : null);
+            }
+            return collection;
+        }
+        if (Map.class.isAssignableFrom(rawType) && value instanceof Map) {
+            Type keyType = typeArgument(type, 0);
+            Type valueType = typeArgument(type, 1);
+            Map<Object, Object> map = newMap(rawType);
+            ((Map<?, ?>) value).forEach(
+                (k, v) -> map.put(
+                    k != null ? convert(k, keyType) : null,
+                    v != null ? convert(v, valueType) : null
+                )
+            );
+            return map;
+        }
+        if (!IMMUTABLE_TYPES.contains(value.getClass()) && !value.getClass().isEnum()
+            && this.modelMapper.getTypeMap(value.getClass(), rawType) != null) {
+            return this.map(value, rawType);
+        }
+        if (wrap(rawType).isInstance(value)) {
+            return value;
+        }
+        return this.map(value, rawType);
+    }
+
+    private static Collection<?> items(Object value) {
+        if (value instanceof Collection) {
+            return (Collection<?>) value;
+        }
+        Object[] items = new Object[Array.getLength(value)];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = Array.get(value, i);
+        }
+        return Arrays.asList(items);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<Object> newCollection(Class<?> type, int size) {
+        if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+            return (Collection<Object>) instantiate(type);
+        }
+        if (SortedSet.class.isAssignableFrom(type)) {
+            return new TreeSet<>();
+        }
+        if (Set.class.isAssignableFrom(type)) {
+            return new HashSet<>();
+        }
+        return new ArrayList<>(size);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> newMap(Class<?> type) {
+        if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+            return (Map<Object, Object>) instantiate(type);
+        }
+        if (SortedMap.class.isAssignableFrom(type)) {
+            return new TreeMap<>();
+        }
+        return new HashMap<>();
+    }
+
+    private static Object instantiate(Class<?> type) {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return rawType(((ParameterizedType) type).getRawType());
+        } else if (type instanceof WildcardType) {
+            return rawType(((WildcardType) type).getUpperBounds()[0]);
+        }
+        return Object.class;
+    }
+
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) {
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return type.isPrimitive()
+            ? MethodType.methodType(type).wrap().returnType()
+            : type;
+    }
+
+    private static Function<Object, Object> getter(Member member) throws IllegalAccessException {
+        MethodHandle handle;
+        if (member instanceof Method) {
+            ((Method) member).setAccessible(true);
+            handle = LOOKUP.unreflect((Method) member);
+        } else if (member instanceof Field) {
+            ((Field) member).setAccessible(true);
+            handle = LOOKUP.unreflectGetter((Field) member);
+        } else {
+            throw new UnsupportedOperationException("unsupported accessor " + member);
+        }
+        MethodHandle getter = handle.asType(
+            MethodType.methodType(Object.class, Object.class)
+        );
+        return target -> invoke(getter, target);
+    }
+
+    private static BiConsumer<Object, Object> setter(Member member) throws IllegalAccessException {
+        MethodHandle handle;
+        if (member instanceof Method) {
+            ((Method) member).setAccessible(true);
+            handle = LOOKUP.unreflect((Method) member);
+        } else if (member instanceof Field) {
+            ((Field) member).setAccessible(true);
+            handle = LOOKUP.unreflectSetter((Field) member);
+        } else {
+            throw new UnsupportedOperationException("unsupported mutator " + member);
+        }
+        MethodHandle setter = handle.asType(
+            MethodType.methodType(void.class, Object.class, Object.class)
+        );
+        return (target, value) -> invoke(setter, target, value);
+    }
+
+    private static Object invoke(MethodHandle constructor) {
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object invoke(MethodHandle getter, Object target) {
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void invoke(MethodHandle setter, Object target, Object value) {
+        try {
+            setter.invokeExact(target, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
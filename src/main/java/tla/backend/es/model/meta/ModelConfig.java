@@ -7,6 +7,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.modelmapper.AbstractConverter;
 import org.modelmapper.ModelMapper;
@@ -110,6 +111,10 @@ public class ModelConfig {
 
     protected static ModelMapper modelMapper;
 
+    private static DtoMappers dtoMappers;
+
+    private static Map<Class<?>, Class<? extends AbstractDto>> dtoClasses = new ConcurrentHashMap<>();
+
     @Getter
     private static List<Class<? extends AbstractBTSBaseClass>> modelClasses = new LinkedList<>();
 
@@ -357,26 +362,36 @@ public class ModelConfig {
     }
 
     /**
-     * Uses the modelmapper bean configured in {@link #modelMapper()} to convert a model class
-     * instance to its corresponding DTO representation, which is specified via a {@link TLADTO}
-     * annotation on top of that model class.
+     * Converts a model class instance to its corresponding DTO representation, which is
+     * specified via a {@link TLADTO} annotation on top of that model class.
      *
      * @param entity An instance of an {@link Indexable} which has a {@link TLADTO} annotation.
      * @return An instance of the DTO class corresponding to the passed entity's class,
-     * created using the application context's model mapper instance.
+     * created using the type maps of the application context's model mapper instance.
+     * @see #map(Object, Class)
      */
     public static AbstractDto toDTO(Indexable entity) throws NullPointerException {
         if (entity != null) {
             Class<? extends AbstractDto> dtoClass = getModelClassDTO(entity.getClass());
-            Object dto = modelMapper.map(
-                entity,
-                dtoClass
-            );
-            return dtoClass.cast(dto);
+            return map(entity, dtoClass);
         }
         throw new NullPointerException("can't convert null object!");
     }
 
+    /**
+     * Converts an entity to the given DTO class, using the compiled version of the type map
+     * registered for this pair of classes in {@link #initModelMapper()}, or the model mapper
+     * if there is none.
+     *
+     * @see DtoMappers
+     */
+    public static <D> D map(Object entity, Class<D> dtoClass) {
+        if (dtoMappers == null) {
+            initModelMapper();
+        }
+        return dtoMappers.map(entity, dtoClass);
+    }
+
     /**
      * Extracts the corresponding DTO type of a model class from its {@link TLADTO} annotation.
      * Returns null and fails silently if no annotation is set.
@@ -386,13 +401,21 @@ public class ModelConfig {
      * @return A {@link AbstractBTSBaseClass} subclass.
      */
     public static Class<? extends AbstractDto> getModelClassDTO(Class<? extends Indexable> modelClass) {
-        for (Annotation annotation : modelClass.getAnnotations()) {
-            if (annotation instanceof TLADTO) {
-                return ((TLADTO) annotation).value();
+        Class<? extends AbstractDto> dtoClass = dtoClasses.computeIfAbsent(
+            modelClass,
+            clazz -> {
+                for (Annotation annotation : clazz.getAnnotations()) {
+                    if (annotation instanceof TLADTO) {
+                        return ((TLADTO) annotation).value();
+                    }
+                }
+                return null;
             }
+        );
+        if (dtoClass == null) {
+            log.warn("class {} has not @TLADTO annotation", modelClass.getName());
         }
-        log.warn("class {} has not @TLADTO annotation", modelClass.getName());
-        return null;
+        return dtoClass;
     }
 
 }
@@ -0,0 +1,52 @@
+package tla.backend.es.model.parts;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Transliteration of a lemma. Same as {@link Transcription}, but indexed with additional
+ * subfields which allow for transliteration searches with leading wildcards or in-word
+ * matching without resorting to regular expressions. These are not needed for the
+ * transliterations of sentences and tokens, which is why they have their own class.
+ *
+ * @see tla.backend.es.query.TranscriptionPattern
+ */
+@Getter
+@Setter
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class LemmaTranscription {
+
+    @MultiField(
+        mainField = @Field(type = FieldType.Text, analyzer = "transcription_analyzer", searchAnalyzer = "transcription_analyzer"),
+        otherFields = {
+            @InnerField(suffix = "reverse", type = FieldType.Text, analyzer = "transcription_reverse_analyzer"),
+            @InnerField(suffix = "ngram", type = FieldType.Text, analyzer = "transcription_ngram_analyzer"),
+            @InnerField(suffix = "segments", type = FieldType.Text, analyzer = "transcription_segments_analyzer")
+        }
+    )
+    private String unicode;
+
+    @MultiField(
+        mainField = @Field(type = FieldType.Text, analyzer = "mdc_analyzer", searchAnalyzer = "mdc_analyzer"),
+        otherFields = {
+            @InnerField(suffix = "reverse", type = FieldType.Text, analyzer = "mdc_reverse_analyzer"),
+            @InnerField(suffix = "ngram", type = FieldType.Text, analyzer = "mdc_ngram_analyzer"),
+            @InnerField(suffix = "segments", type = FieldType.Text, analyzer = "mdc_segments_analyzer")
+        }
+    )
+    private String mdc;
+
+}
@@ -19,6 +19,46 @@ import lombok.Setter;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Transcription {
 
+    /**
+     * Normalization of Unicode transliterations, used for search input. Input is converted to
+     * lowercase (as by the ES analyzer), non-atomic encodings are replaced by atomic characters,
+     * and alternative transliteration conventions are mapped to the one used in the TLA.
+     *
+     * The values indexed in the <code>unicode</code> field are normalized the same way by the
+     * <code>transcription_unicode_normalizer</code> char filter of the lemma and sentence index
+     * settings, whose mappings are generated by {@link Transliteration#toCharFilterMappings()}
+     * and have to be updated whenever this table changes. Stored documents are left as they are.
+     */
+    public static final Transliteration NORMALIZATION = new Transliteration.Builder()
+        .lowerCase()
+        .map("h\u0331", "\u1e96") // no atomic char as capital, now lowercase
+        .map("d\u0331", "\u1e0f") // non-atomic encodings
+        .map("t\u0331", "\u1e6f")
+        .map("h\u0323", "\u1e25")
+        .map("t\u0323", "d") // Schenkel's transliteration
+        .map("\u1e6d", "d")
+        .map("k\u0323", "q") // traditional qaf
+        .map("\u1e33", "q")
+        .map("\u010d\u0323", "\u1e0f")
+        .map("\u010d", "\u1e6f")
+        .map("\u015b", "s") // traditional s
+        .map("\u2e17", "=") // double oblique hyphen
+        .map("\u3008", "\u2329") // BTS, obsolete
+        .map("\u3009", "\u232a")
+        .map("\u2308", "\u2e22") // obsolete
+        .map("\u2309", "\u2e23")
+        .map("i\u0357", "\ua7bd") // BTS yod => Egyptological yod
+        .map("\u0131\u0357", "\ua7bd")
+        .map("\u1ec9", "\ua7bd") // Ifao yod
+        .map("i\u0486", "\ua7bd") // yod with psili pneumata
+        .map("i\u0313", "\ua7bd") // yod with superscript comma
+        .map("\u021d", "\ua723") // Ifao alif
+        .map("\u02bf", "\ua725") // ayn workaround
+        .map("i\u032f", "i") // atomic workaround for ult.-inf.-i
+        .map("u\u032f", "u") // atomic workaround for ult.-inf.-u
+        .map("h\u032d", "\u0125") // atomic workaround for demotic h
+        .build();
+
     @Field(type = FieldType.Text, analyzer = "transcription_analyzer", searchAnalyzer = "transcription_analyzer")
     private String unicode;
 
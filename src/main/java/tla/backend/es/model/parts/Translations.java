@@ -47,26 +47,22 @@ public class Translations {
     /**
      * Retrieves translation(s) for a given language.
      */
-    @SuppressWarnings("unchecked")
     public List<String> get(Language lang) {
-        try {
-            String getterName = String.format(
-                "get%s",
-                lang.toString().toUpperCase().charAt(0) + lang.toString().substring(1)
-            );
-            Object res = Translations.class.getMethod(getterName).invoke(this);
-            return (List<String>) res;
-        } catch (Exception e) {
-            log.error(
-                String.format(
-                    "Could not access translations in %s on %s!",
-                    lang,
-                    this
-                ),
-                e
-            );
+        switch (lang.toString().toLowerCase()) {
+            case "de":
+                return this.de;
+            case "en":
+                return this.en;
+            case "fr":
+                return this.fr;
+            case "ar":
+                return this.ar;
+            case "it":
+                return this.it;
+            default:
+                log.error("No translations in {} on {}!", lang, this);
+                return null;
         }
-        return null;
     }
 
     /**
@@ -0,0 +1,304 @@
+package tla.backend.es.model.parts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces character sequences according to a mapping table, in a single pass over the input.
+ *
+ * <p>The mapping table is compiled into a trie once. At each position of the input, the longest
+ * sequence found in the table is replaced; replacements are not scanned again. Input which does
+ * not contain any of the sequences in the table is returned as it is, without copying.</p>
+ *
+ * <p>Optionally, input can be converted to lowercase first, and it can be trimmed, with any
+ * remaining runs of whitespace compressed into a single blank.</p>
+ *
+ * @see Builder
+ */
+public class Transliteration {
+
+    /**
+     * Trie node. Child nodes are kept in arrays sorted by character.
+     */
+    private static class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private String replacement;
+
+        Node get(char key) {
+            int i = Arrays.binarySearch(this.keys, key);
+            return i >= 0 ? this.children[i] : null;
+        }
+
+        Node add(char key) {
+            int i = Arrays.binarySearch(this.keys, key);
+            if (i >= 0) {
+                return this.children[i];
+            }
+            i = -i - 1;
+            char[] keys = new char[this.keys.length + 1];
+            Node[] children = new Node[this.children.length + 1];
+            System.arraycopy(this.keys, 0, keys, 0, i);
+            System.arraycopy(this.children, 0, children, 0, i);
+            System.arraycopy(this.keys, i, keys, i + 1, this.keys.length - i);
+            System.arraycopy(this.children, i, children, i + 1, this.children.length - i);
+            keys[i] = key;
+            children[i] = new Node();
+            this.keys = keys;
+            this.children = children;
+            return children[i];
+        }
+    }
+
+    private final Map<String, String> mappings;
+    private final boolean lowerCase;
+    private final boolean compressWhitespace;
+    private final Node root = new Node();
+
+    private Transliteration(Map<String, String> mappings, boolean lowerCase, boolean compressWhitespace) {
+        this.mappings = Collections.unmodifiableMap(new LinkedHashMap<>(mappings));
+        this.lowerCase = lowerCase;
+        this.compressWhitespace = compressWhitespace;
+        mappings.forEach(
+            (sequence, replacement) -> {
+                Node node = this.root;
+                for (int i = 0; i < sequence.length(); i++) {
+                    node = node.add(sequence.charAt(i));
+                }
+                node.replacement = replacement;
+            }
+        );
+    }
+
+    /**
+     * Collects the mapping table of a transliteration.
+     */
+    public static class Builder {
+
+        private final Map<String, String> mappings = new LinkedHashMap<>();
+        private boolean lowerCase = false;
+        private boolean compressWhitespace = false;
+
+        /**
+         * Replace a character sequence. If a sequence is mapped more than once, the last
+         * replacement counts.
+         */
+        public Builder map(String sequence, String replacement) {
+            if (sequence == null || sequence.isEmpty() || replacement == null) {
+                throw new IllegalArgumentException("sequence and replacement must not be null or empty");
+            }
+            this.mappings.put(sequence, replacement);
+            return this;
+        }
+
+        /**
+         * Remove characters.
+         */
+        public Builder remove(String... characters) {
+            for (String character : characters) {
+                this.map(character, "");
+            }
+            return this;
+        }
+
+        /**
+         * Convert input to lowercase before applying the mapping table.
+         */
+        public Builder lowerCase() {
+            this.lowerCase = true;
+            return this;
+        }
+
+        /**
+         * Trim input and replace any runs of whitespace within it by a single blank.
+         */
+        public Builder compressWhitespace() {
+            this.compressWhitespace = true;
+            return this;
+        }
+
+        public Transliteration build() {
+            return new Transliteration(this.mappings, this.lowerCase, this.compressWhitespace);
+        }
+    }
+
+    /**
+     * Character sequences and their replacements.
+     */
+    public Map<String, String> getMappings() {
+        return this.mappings;
+    }
+
+    /**
+     * Create a single transliteration which has the same result as applying this
+     * transliteration and then the other one. This requires the other transliteration to
+     * map single characters only, so that its result does not depend on how this
+     * transliteration has split up the input.
+     *
+     * @throws IllegalArgumentException if the transliterations cannot be combined
+     */
+    public Transliteration andThen(Transliteration next) {
+        if (next.mappings.keySet().stream().anyMatch(sequence -> sequence.length() > 1)) {
+            throw new IllegalArgumentException("subsequent transliteration must map single characters only");
+        }
+        if (next.lowerCase && !this.lowerCase) {
+            throw new IllegalArgumentException("subsequent transliteration must not convert to lowercase");
+        }
+        if (next.compressWhitespace && this.mappings.entrySet().stream().anyMatch(
+            e -> containsWhitespace(e.getKey()) || containsWhitespace(e.getValue())
+        )) {
+            throw new IllegalArgumentException("whitespace in mappings followed by whitespace compression");
+        }
+        Map<String, String> mappings = new LinkedHashMap<>(next.mappings);
+        this.mappings.forEach(
+            (sequence, replacement) -> mappings.put(sequence, next.apply(replacement))
+        );
+        return new Transliteration(
+            mappings,
+            this.lowerCase,
+            this.compressWhitespace || next.compressWhitespace
+        );
+    }
+
+    /**
+     * Express the mapping table as the rules of an Elasticsearch <code>mapping</code> char
+     * filter, so that indexed values can be normalized the same way as search input.
+     * Characters other than ASCII letters and digits are written as Unicode escapes. If input
+     * is converted to lowercase, rules are added for all case variants of each sequence, because
+     * char filters are applied before the <code>lowercase</code> token filter. Whitespace
+     * compression is left to a separate char filter.
+     */
+    public List<String> toCharFilterMappings() {
+        Set<String> sequences = new LinkedHashSet<>();
+        List<String> rules = new ArrayList<>();
+        this.mappings.forEach(
+            (sequence, replacement) -> {
+                for (String variant : this.lowerCase ? caseVariants(sequence) : List.of(sequence)) {
+                    if (sequences.add(variant)) {
+                        rules.add(escape(variant) + " => " + escape(replacement));
+                    }
+                }
+            }
+        );
+        return rules;
+    }
+
+    /**
+     * All character sequences which are converted to the given one by
+     * {@link String#toLowerCase()}, starting with the sequence itself.
+     */
+    private static List<String> caseVariants(String sequence) {
+        List<String> variants = List.of("");
+        for (char c : sequence.toCharArray()) {
+            List<Character> alternatives = new ArrayList<>(List.of(c));
+            for (char upper : new char[] {Character.toUpperCase(c), Character.toTitleCase(c)}) {
+                if (!alternatives.contains(upper) && String.valueOf(upper).toLowerCase().equals(String.valueOf(c))) {
+                    alternatives.add(upper);
+                }
+            }
+            List<String> extended = new ArrayList<>();
+            for (String prefix : variants) {
+                alternatives.forEach(alternative -> extended.add(prefix + alternative));
+            }
+            variants = extended;
+        }
+        return variants;
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder();
+        for (char c : value.toCharArray()) {
+            if (c < 0x80 && Character.isLetterOrDigit(c)) {
+                escaped.append(c);
+            } else {
+                escaped.append(String.format("\\u%04x", (int) c));
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static boolean containsWhitespace(String value) {
+        return value.chars().anyMatch(Transliteration::isWhitespace);
+    }
+
+    /**
+     * Whitespace as in the regular expression <code>\s</code>.
+     */
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Transliterate input.
+     *
+     * @return transliterated input, or the input itself if nothing had to be changed
+     */
+    public String apply(String input) {
+        if (input == null) {
+            return null;
+        }
+        return this.replace(this.lowerCase ? input.toLowerCase() : input);
+    }
+
+    private String replace(String input) {
+        int start = 0;
+        int end = input.length();
+        if (this.compressWhitespace) {
+            while (start < end && input.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && input.charAt(end - 1) <= ' ') {
+                end--;
+            }
+        }
+        StringBuilder out = null;
+        int copied = start;
+        int i = start;
+        while (i < end) {
+            String replacement = null;
+            int next = i;
+            if (this.compressWhitespace && isWhitespace(input.charAt(i))) {
+                next = i + 1;
+                while (next < end && isWhitespace(input.charAt(next))) {
+                    next++;
+                }
+                if (next - i > 1 || input.charAt(i) != ' ') {
+                    replacement = " ";
+                }
+            } else {
+                Node node = this.root;
+                for (int j = i; j < end; j++) {
+                    node = node.get(input.charAt(j));
+                    if (node == null) {
+                        break;
+                    }
+                    if (node.replacement != null) {
+                        replacement = node.replacement;
+                        next = j + 1;
+                    }
+                }
+            }
+            if (replacement != null) {
+                if (out == null) {
+                    out = new StringBuilder(end - start + 16);
+                }
+                out.append(input, copied, i).append(replacement);
+                copied = next;
+                i = next;
+            } else {
+                i = Math.max(next, i + 1);
+            }
+        }
+        if (out == null) {
+            return input.substring(start, end);
+        }
+        return out.append(input, copied, end).toString();
+    }
+
+}
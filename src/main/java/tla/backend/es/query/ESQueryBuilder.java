@@ -1,16 +1,24 @@
 package tla.backend.es.query;
 
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
-import static org.elasticsearch.index.query.QueryBuilders.idsQuery;
 import static org.elasticsearch.index.query.QueryBuilders.matchQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termsQuery;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
@@ -31,6 +39,11 @@ public abstract class ESQueryBuilder implements TLAQueryBuilder {
      */
     private Class<? extends AbstractBTSBaseClass> dtoClass;
 
+    /**
+     * Elasticsearch's default for <code>index.max_terms_count</code>.
+     */
+    public final static int MAX_TERMS_COUNT = 65536;
+
     private BoolQueryBuilder nativeRootQueryBuilder;
     private List<AbstractAggregationBuilder<?>> nativeAggregationBuilders;
     protected SortSpec sortSpec = SortSpec.DEFAULT;
@@ -39,6 +52,16 @@ public abstract class ESQueryBuilder implements TLAQueryBuilder {
 
     private ESQueryResult<?> result;
 
+    /**
+     * Field whose distinct values are to be collected from all matching documents (if any).
+     */
+    private String idCollectionField;
+
+    /**
+     * Parts of the matching documents' sources to be retrieved.
+     */
+    private Projection projection = Projection.DETAIL;
+
     public ESQueryBuilder() {
         this.nativeRootQueryBuilder = boolQuery();
         this.nativeAggregationBuilders = new LinkedList<>();
@@ -64,6 +87,10 @@ public abstract class ESQueryBuilder implements TLAQueryBuilder {
      * Put together an actual Elasticsearch query ready for execution.
      */
     public NativeSearchQuery buildNativeSearchQuery(Pageable page) {
+        return this.buildNativeSearchQuery(page, this.sortSpec.Sorting());
+    }
+
+    private NativeSearchQuery buildNativeSearchQuery(Pageable page, List<SortBuilder<?>> sorts) {
         var qb = new NativeSearchQueryBuilder().withQuery(
             this.getNativeRootQueryBuilder()
         ).withPageable(
@@ -71,8 +98,12 @@ public abstract class ESQueryBuilder implements TLAQueryBuilder {
         ).withTrackTotalHits(
             page.isPaged()
         ).withSorts(
-           this.sortSpec.Sorting()
+           sorts
         );
+        var sourceFilter = this.projection.getSourceFilter(this.getModelClass());
+        if (sourceFilter != null) {
+            qb.withSourceFilter(sourceFilter);
+        }
         log.info("query: {}", this.getNativeRootQueryBuilder());
         this.getNativeAggregationBuilders().forEach(
             agg -> {
@@ -83,6 +114,49 @@ public abstract class ESQueryBuilder implements TLAQueryBuilder {
         return qb.build();
     }
 
+    /**
+     * Put together an Elasticsearch search request source retrieving the page after the
+     * position of a search cursor by means of <code>search_after</code>, instead of skipping
+     * over preceding hits. The sort order is completed with document ID as tiebreaker, so that
+     * the position of each hit is unique. No index is specified, since cursor pages are
+     * retrieved from a point in time.
+     *
+     * @throws IllegalArgumentException if cursor is not valid for this query's sort order
+     */
+    public SearchSourceBuilder buildSearchSource(Pageable page, SearchCursor cursor) {
+        var sorts = this.cursorSorting();
+        cursor.validate(sorts);
+        var source = new SearchSourceBuilder().query(
+            this.getNativeRootQueryBuilder()
+        ).size(
+            page.getPageSize()
+        ).trackTotalHits(true);
+        sorts.forEach(source::sort);
+        var fetchSource = this.projection.getFetchSourceContext(this.getModelClass());
+        if (fetchSource != null) {
+            source.fetchSource(fetchSource);
+        }
+        this.getNativeAggregationBuilders().forEach(source::aggregation);
+        if (!cursor.isStart()) {
+            source.searchAfter(cursor.getAfter().toArray());
+        }
+        return source;
+    }
+
+    /**
+     * Sort order of this query, ending with the document ID. The ID (rather than the
+     * <code>_shard_doc</code> tiebreaker of the point in time) keeps cursor positions
+     * meaningful if paging has to continue in a new point in time.
+     */
+    public List<SortBuilder<?>> cursorSorting() {
+        List<SortBuilder<?>> sorts = new ArrayList<>(this.sortSpec.Sorting());
+        if (sorts.isEmpty()) {
+            sorts.add(SortBuilders.scoreSort());
+        }
+        sorts.add(SortBuilders.fieldSort(ExpansionQueryBuilder.ID_FIELD).order(SortOrder.ASC));
+        return sorts;
+    }
+
     public ESQueryResult<?> setResult(ESQueryResult<?> result) {
         this.result = result;
         return result;
@@ -93,15 +167,54 @@ public abstract class ESQueryBuilder implements TLAQueryBuilder {
         this.dtoClass = dtoClass;
     }
 
+    /**
+     * Specify which parts of the matching documents' sources are to be retrieved.
+     */
+    public void setProjection(Projection projection) {
+        this.projection = projection;
+    }
+
+    /**
+     * Collect all distinct values of the specified field from the documents matching this query,
+     * instead of (or in addition to) retrieving a page of results.
+     */
+    public void setIdCollectionField(String field) {
+        this.idCollectionField = field;
+    }
+
     public void setId(String[] ids) {
         if (ids != null) {
             log.info("add {} IDs to query", ids.length);
             this.filter(
-                idsQuery().addIds(ids)
+                termsFilter("_id", Arrays.asList(ids))
             );
         }
     }
 
+    /**
+     * Create a filter matching documents with any of the given values in the specified field.
+     * Large value lists are split into several terms queries, so that none of them exceeds
+     * the maximum number of terms Elasticsearch accepts in a single terms query.
+     */
+    public static QueryBuilder termsFilter(String field, Collection<String> values) {
+        if (values.size() <= MAX_TERMS_COUNT) {
+            return termsQuery(field, values);
+        }
+        var chunks = boolQuery().minimumShouldMatch(1);
+        List<String> chunk = new ArrayList<>(MAX_TERMS_COUNT);
+        for (String value : values) {
+            chunk.add(value);
+            if (chunk.size() == MAX_TERMS_COUNT) {
+                chunks.should(termsQuery(field, chunk));
+                chunk = new ArrayList<>(MAX_TERMS_COUNT);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.should(termsQuery(field, chunk));
+        }
+        return chunks;
+    }
+
     public void setEditor(String name) {
         if (name != null) {
             this.must(
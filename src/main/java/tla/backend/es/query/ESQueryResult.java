@@ -1,5 +1,6 @@
 package tla.backend.es.query;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -43,6 +44,11 @@ public class ESQueryResult<T extends Indexable> {
 
 	private PageInfo pageInfo;
 
+	/**
+	 * sorted distinct field values collected from all matching documents (if requested)
+	 */
+	private String[] collectedIds;
+
 	public ESQueryResult() {
 		this.aggregations = new HashMap<>();
 	}
@@ -54,12 +60,24 @@ public class ESQueryResult<T extends Indexable> {
 	}
 
 	/**
-	 * if there is an IDs aggregation, extract IDs from it.
+	 * return collected IDs, or if there are none, but an IDs aggregation, extract IDs from it.
 	 */
 	public Collection<String> getIDAggValues() {
+		if (this.collectedIds != null) {
+			return Collections.unmodifiableList(Arrays.asList(this.collectedIds));
+		}
 		return this.getAggregation(AGGS_ID_IDS).keySet();
 	}
 
+	/**
+	 * save field values collected from all matching documents.
+	 *
+	 * @param ids sorted distinct values
+	 */
+	public void setCollectedIds(String[] ids) {
+		this.collectedIds = ids;
+	}
+
 	/**
 	 * extract a terms aggregation of the specified name.
 	 *
@@ -71,6 +89,9 @@ public class ESQueryResult<T extends Indexable> {
 	}
 
 	private Map<String, Long> getAggregationFromESHits(String agg) {
+		if (this.hits == null || !this.hits.hasAggregations()) {
+			return Collections.emptyMap();
+		}
 		Aggregations aggregations = (Aggregations) this.hits.getAggregations().aggregations();
 		if (aggregations == null || aggregations.get(agg) == null) {
 			return Collections.emptyMap();
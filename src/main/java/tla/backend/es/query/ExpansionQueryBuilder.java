@@ -1,32 +1,30 @@
 package tla.backend.es.query;
 
 import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.search.aggregations.AggregationBuilders;
-import org.elasticsearch.search.aggregations.BucketOrder;
 
 public interface ExpansionQueryBuilder extends TLAQueryBuilder {
 
     final static String ID_FIELD = "id";
-    final static int ID_AGG_SIZE = 1000000;
 
     /**
      * If set to true, query is considered an expansion query, meaning that no paged results
-     * are being fetched, and an ID aggregation is added instead.
+     * are being fetched, and the IDs of all matching documents are collected instead.
+     *
+     * @see ESQueryResult#getIDAggValues()
      */
     public default void setExpansion(boolean expansion) {
         if (expansion) {
-            this.aggregate(
-                AggregationBuilders.terms(
-                    ESQueryResult.AGGS_ID_IDS
-                ).field(ID_FIELD).size(ID_AGG_SIZE).order(
-                    BucketOrder.key(true)
-                )
-            );
+            this.setIdCollectionField(ID_FIELD);
         }
     }
 
     public boolean isExpansion();
 
+    /**
+     * Collect all distinct values of the specified field from the documents matching this query.
+     */
+    public void setIdCollectionField(String field);
+
     public default void setRootIds(String[] ids) {
         this.must(
             QueryBuilders.termsQuery("paths.id.keyword", ids)
@@ -35,4 +33,4 @@ public interface ExpansionQueryBuilder extends TLAQueryBuilder {
 
     public String[] getRootIds();
 
-}
\ No newline at end of file
+}
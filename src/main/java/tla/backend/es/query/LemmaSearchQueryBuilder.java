@@ -4,7 +4,6 @@ import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.matchQuery;
 import static org.elasticsearch.index.query.QueryBuilders.prefixQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
-import static org.elasticsearch.index.query.QueryBuilders.regexpQuery;
 
 import java.util.HashMap;
 import java.util.List;
@@ -16,6 +15,8 @@ import org.elasticsearch.search.sort.SortOrder;
 
 import lombok.Getter;
 import tla.backend.es.model.LemmaEntity;
+import tla.backend.es.model.parts.Transcription;
+import tla.backend.es.model.parts.Transliteration;
 import tla.backend.es.query.SortSpec.FieldOrder;
 import tla.backend.service.ModelClass;
 import tla.domain.command.TypeSpec;
@@ -46,13 +47,39 @@ public class LemmaSearchQueryBuilder extends ESQueryBuilder implements MultiLing
 		this.filter(scriptFilter);
 	}
 
+	/**
+	 * Escaping of transliteration search input for use in regular expression queries: regex
+	 * characters are masked, characters ignored by the ES index are removed, and wildcards are
+	 * translated.
+	 */
+	static final Transliteration REGEX_MASK = new Transliteration.Builder()
+			.compressWhitespace()
+			// Maskieren (nicht ignorieren)
+			.map(".", "\\.").map("-", "\\-").map("+", "\\+")
+			// treatment of "( )" als Options-Marker
+			.map(")", ")?") // ### to do: abfangen, wenn Klammern nicht ordentlich öffnen/schließen
+			// ignorieren: query und ES-Indizierung; "?", "[" , and "]" are part of allowed RegEx syntax
+			.remove("{", "}", "\u2e22", "\u2e23", "\u2329", "\u232a", "\u2e2e")
+			// legacy TLA wildcards
+			.map("\u00a7", ".")
+			// Usual wildcards
+			.map("_", ".") // any single sign
+			.map("*", ".*") // zero or more signs
+			.build();
+
+	/**
+	 * Normalization and escaping of Unicode transliteration search input in a single pass.
+	 */
+	static final Transliteration UNICODE_REGEX = Transcription.NORMALIZATION.andThen(REGEX_MASK);
+
 	public void setTranscription(TranscriptionSpec transcription) {
 		if (transcription.getText() != null) {
 			if (transcription.getEnc()[0].equals("mdc")) {
-				this.must(regexpQuery("transcription.mdc", maskRegExTranscription(transcription.getText())));
+				this.must(TranscriptionPattern.of(maskRegExTranscription(transcription.getText()))
+						.toQuery("transcription.mdc", true));
 			} else {
-				this.must(regexpQuery("transcription.unicode",
-						maskRegExTranscription(normalizeUnicode(transcription.getText()))));
+				this.must(TranscriptionPattern.of(anchorRegExTranscription(UNICODE_REGEX.apply(transcription.getText())))
+						.toQuery("transcription.unicode", true));
 
 			}
 			// works with Unicode only?
@@ -76,96 +103,39 @@ public class LemmaSearchQueryBuilder extends ESQueryBuilder implements MultiLing
 	 * }
 	 */
 
+	/**
+	 * Apply {@link Transcription#NORMALIZATION} to Unicode transliteration search input.
+	 */
 	public String normalizeUnicode(String transcription) {
-		if (transcription != null) {
-			// case insensitive search (ES analyzer also indexes lowercase)
-			transcription = transcription.toLowerCase();
-			transcription = transcription.replace("h\u0331", "ẖ"); // no atomic char as capital, now lowercase
-			transcription = transcription.replace("i\u0357", "\u0131\u0357"); // BTS yod capital, now lowercase
-
-			// Other Unicode mapping for special chars; normalization
-			transcription = transcription.replace("d\u0331", "ḏ"); // non-atomic encodings
-			transcription = transcription.replace("t\u0331", "ṯ");
-			transcription = transcription.replace("h\u0323", "ḥ");
-			transcription = transcription.replace("t\u0323", "ṭ");
-			transcription = transcription.replace("k\u0323", "ḳ");
-
-			transcription = transcription.replace("ṭ", "d"); // Schenkel's transliteration
-			transcription = transcription.replace("č\u0323", "ḏ");
-			transcription = transcription.replace("č", "ṯ");
-
-			transcription = transcription.replace("ś", "s"); // traditional s
-			transcription = transcription.replace("ḳ", "q"); // traditional qaf
-
-			transcription = transcription.replace("⸗", "="); // double oblique hyphen
-			transcription = transcription.replace("〈", "〈"); // U+27E8 => U+2329, BTS, obsolet
-			transcription = transcription.replace("〉", "〉");
-			transcription = transcription.replace("⌈", "⸢"); // U+2308, obsolet => U+2E22
-			transcription = transcription.replace("⌉", "⸣");
-
-			transcription = transcription.replace("\u1ec9", "\u0131\u0357"); // Ifao yod => BTS yod
-			transcription = transcription.replace("i\u0486", "\u0131\u0357"); // yod with psili pneumata
-			transcription = transcription.replace("i\u0313", "\u0131\u0357"); // yod with superscript comma
-			transcription = transcription.replace("\u021d", "\ua723"); // Ifao alif
-			transcription = transcription.replace("\u02bf", "\ua725"); // ayn workaround
-
-			// no atomic char in transliteration => atomic workarounds
-			transcription = transcription.replace("i\u032f", "i"); // atomic workaround for ult.-inf.-i
-			transcription = transcription.replace("u\u032f", "u"); // atomic workaround for ult.-inf.-u
-			transcription = transcription.replace("\u0131\u0357", "\ua7bd"); // BTS yod => Egyptological Yod
-			transcription = transcription.replace("h\u032d", "\u0125"); // atomic workaround for demotic h
-		}
-		return transcription;
+		return Transcription.NORMALIZATION.apply(transcription);
 	}
 
 	public String maskRegExTranscription(String transcription) {
 		if (transcription != null) {
-			transcription = transcription.trim(); // cut whitespaces
-			transcription = transcription.replaceAll("\\s+", " ");
-
-			// Maskieren (nicht ignorieren)
-			transcription = transcription.replace(".", "\\.");
-			transcription = transcription.replace("-", "\\-");
-			transcription = transcription.replace("+", "\\+");
-
-			// treatment of "( )" als Options-Marker
-			// transcription = transcription.replace("(", "");
-			transcription = transcription.replace(")", ")?"); // ### to do: abfangen, wenn Klammern nicht ordentlich
-																// öffnen/schließen
-
-			// ignorieren: query und ES-Indizierung
-			transcription = transcription.replace("{", "");
-			transcription = transcription.replace("}", "");
-			transcription = transcription.replace("⸢", ""); // U+2E22
-			transcription = transcription.replace("⸣", "");
-			transcription = transcription.replace("〈", ""); // U+2329, BTS, obsolet
-			transcription = transcription.replace("〉", "");
-			transcription = transcription.replace("⸮", "");
-			// "?", "[" , and "]" are part of allowed RegEx syntax
-
-			// leagacy TLA wildcards
-			transcription = transcription.replace("§", "."); // "§" in legacyTLA
+			transcription = anchorRegExTranscription(REGEX_MASK.apply(transcription));
+		}
+		return transcription;
+	}
 
-			// Usual wildcards
-			transcription = transcription.replace("_", "."); // any sigle sign
-			transcription = transcription.replace("*", ".*"); // zero or more signs
-
-			// treatment of right end
-			if (transcription.endsWith("$")) { // "$": wirkliches String-Ende
-				transcription = transcription.replace("$", ""); // remove "$" (all, just to be sure)
-			} else if (!transcription.endsWith(".*")) { // redundant if already ends with ".*"
-				transcription = transcription + ".*"; // right: any signs may follow
-			}
+	/**
+	 * Anchor escaped transliteration search input at either end.
+	 */
+	static String anchorRegExTranscription(String transcription) {
+		// treatment of right end
+		if (transcription.endsWith("$")) { // "$": wirkliches String-Ende
+			transcription = transcription.replace("$", ""); // remove "$" (all, just to be sure)
+		} else if (!transcription.endsWith(".*")) { // redundant if already ends with ".*"
+			transcription = transcription + ".*"; // right: any signs may follow
+		}
 
-			// treatment of left end
-			if (transcription.startsWith(">")) { // ">": search at beginning or in the middle of lemma transliteration
-				transcription = transcription.replace(">", ""); // remove "^" (all, just to be sure)
-				// find words in the middle too
-				transcription = "(.+[\\- ])?" + transcription; // left: anything at beginnig of lemma or after "-" or
-																// blank
-			} else if (transcription.startsWith("\\-")) { // "-": search of non-first lemma
-				transcription = "(.+)?" + transcription; // left: anything may occur before the '-'
-			}
+		// treatment of left end
+		if (transcription.startsWith(">")) { // ">": search at beginning or in the middle of lemma transliteration
+			transcription = transcription.replace(">", ""); // remove "^" (all, just to be sure)
+			// find words in the middle too
+			transcription = "(.+[\\- ])?" + transcription; // left: anything at beginnig of lemma or after "-" or
+															// blank
+		} else if (transcription.startsWith("\\-")) { // "-": search of non-first lemma
+			transcription = "(.+)?" + transcription; // left: anything may occur before the '-'
 		}
 		return transcription;
 	}
@@ -195,7 +165,7 @@ public class LemmaSearchQueryBuilder extends ESQueryBuilder implements MultiLing
 	public void setRoot(String transcription) { // TODO spawn join query
 		if (transcription != null) {
 			// this.must(matchQuery("relations.root.name", transcription));
-			this.must(regexpQuery("relations.root.name", maskRegExTranscription(transcription)));
+			this.must(TranscriptionPattern.of(maskRegExTranscription(transcription)).toQuery("relations.root.name", false));
 		}
 	}
 
@@ -31,7 +31,7 @@ public class PassportIncludingQueryBuilder extends ESQueryBuilder {
             this.getPassport().put(key, values);
         } else {
             this.filter(
-                QueryBuilders.termsQuery(
+                termsFilter(
                     String.format("passport.%s.id.keyword", key),
                     this.getPassport().put(key, values).getValues()
                 )
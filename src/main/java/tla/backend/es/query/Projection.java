@@ -0,0 +1,83 @@
+package tla.backend.es.query;
+
+import java.util.Map;
+
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
+import org.springframework.data.elasticsearch.core.query.SourceFilter;
+
+import tla.backend.es.model.SentenceEntity;
+import tla.backend.es.model.ThsEntryEntity;
+
+/**
+ * Parts of a document's <code>_source</code> which are retrieved from Elasticsearch for a
+ * specific use case. Fields left out by a projection remain empty in the entity read from the
+ * retrieved source, and consequently in the DTO it gets converted to.
+ */
+public enum Projection {
+
+    /**
+     * Complete documents, for the document requested by a detail view.
+     */
+    DETAIL(Map.of()),
+
+    /**
+     * Documents matching a search command. Sentence tokens come without the original
+     * encodings of their hieroglyphs, which are only shown in the sentence detail view.
+     */
+    SEARCH_HIT(
+        Map.of(
+            SentenceEntity.class, new String[]{
+                "tokens.glyphs.mdcOriginal", "tokens.glyphs.mdcOriginalSafe", "tokens.glyphs.order"
+            }
+        )
+    ),
+
+    /**
+     * Documents referenced by the ones requested, which are added to the <code>related</code>
+     * section of a response: thesaurus entries without their passports, and sentences
+     * without their tokens.
+     */
+    RELATED(
+        Map.of(
+            ThsEntryEntity.class, new String[]{"passport"},
+            SentenceEntity.class, new String[]{"tokens"}
+        )
+    );
+
+    private final Map<Class<?>, String[]> excludes;
+
+    private Projection(Map<Class<?>, String[]> excludes) {
+        this.excludes = excludes;
+    }
+
+    /**
+     * Fields left out of documents of the given model class.
+     *
+     * @return field paths, or <code>null</code> if the entire source is retrieved
+     */
+    public String[] getExcludes(Class<?> modelClass) {
+        return modelClass != null ? this.excludes.get(modelClass) : null;
+    }
+
+    /**
+     * Source filter for search queries on the index of the given model class.
+     *
+     * @return source filter, or <code>null</code> if the entire source is retrieved
+     */
+    public SourceFilter getSourceFilter(Class<?> modelClass) {
+        String[] excludes = this.getExcludes(modelClass);
+        return excludes != null ? new FetchSourceFilter(null, excludes) : null;
+    }
+
+    /**
+     * Source filter for get and multi-get requests of documents of the given model class.
+     *
+     * @return source filter, or <code>null</code> if the entire source is retrieved
+     */
+    public FetchSourceContext getFetchSourceContext(Class<?> modelClass) {
+        String[] excludes = this.getExcludes(modelClass);
+        return excludes != null ? new FetchSourceContext(true, null, excludes) : null;
+    }
+
+}
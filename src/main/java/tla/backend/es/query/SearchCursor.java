@@ -0,0 +1,140 @@
+package tla.backend.es.query;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.elasticsearch.search.sort.SortBuilder;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Position within a search result list for cursor-based paging with <code>search_after</code>.
+ * A cursor remembers the sort values of the last hit on a page, the number of that page,
+ * the sort order it is valid for, and the point in time (PIT) all pages are retrieved from,
+ * so that documents indexed or deleted in the meantime do not shift hits between pages.
+ * It is passed around as an opaque URL-safe token.
+ *
+ * A search request starting a cursor session passes {@link #START} as its token; the
+ * token for the next page is then set in {@link #setNext(SearchCursor)} by the search.
+ */
+@Getter
+@NoArgsConstructor
+public class SearchCursor {
+
+    /**
+     * token requesting the first page of a cursor session
+     */
+    public static final String START = "*";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * number of the page this cursor points to
+     */
+    private int page = 0;
+
+    /**
+     * sort order this cursor is valid for
+     */
+    private String sort = null;
+
+    /**
+     * sort values of the last hit on the previous page (none for the first page)
+     */
+    private List<Object> after = null;
+
+    /**
+     * ID of the point in time opened for the first page (none before it has been opened)
+     */
+    private String pit = null;
+
+    /**
+     * cursor pointing to the page after the one retrieved, if there is one
+     */
+    @Setter
+    private SearchCursor next = null;
+
+    public SearchCursor(int page, String sort, List<Object> after) {
+        this(page, sort, after, null);
+    }
+
+    public SearchCursor(int page, String sort, List<Object> after, String pit) {
+        this.page = page;
+        this.sort = sort;
+        this.after = after;
+        this.pit = pit;
+    }
+
+    /**
+     * Decode a cursor token.
+     *
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static SearchCursor decode(String token) {
+        if (token == null || token.isBlank() || token.equals(START)) {
+            return new SearchCursor();
+        }
+        try {
+            var node = MAPPER.readTree(Base64.getUrlDecoder().decode(token));
+            return new SearchCursor(
+                node.path("page").asInt(),
+                node.path("sort").asText(),
+                MAPPER.convertValue(node.path("after"), MAPPER.getTypeFactory().constructCollectionType(List.class, Object.class)),
+                node.hasNonNull("pit") ? node.get("pit").asText() : null
+            );
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid search cursor: " + token, e);
+        }
+    }
+
+    /**
+     * Encode cursor as URL-safe token.
+     */
+    public String encode() {
+        var node = MAPPER.createObjectNode();
+        node.put("page", this.page);
+        node.put("sort", this.sort);
+        node.set("after", MAPPER.valueToTree(this.after));
+        node.put("pit", this.pit);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+            node.toString().getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    /**
+     * Signature of a sort order, so that a cursor cannot be reused with a different one.
+     */
+    public static String signature(List<SortBuilder<?>> sorts) {
+        return Integer.toHexString(
+            sorts.stream().map(
+                sort -> sort.toString().replaceAll("\\s", "")
+            ).collect(Collectors.joining(",")).hashCode()
+        );
+    }
+
+    /**
+     * Make sure this cursor can be used with the given sort order.
+     *
+     * @throws IllegalArgumentException if the cursor was created for a different sort order
+     */
+    public void validate(List<SortBuilder<?>> sorts) {
+        if (this.after != null && !signature(sorts).equals(this.sort)) {
+            throw new IllegalArgumentException("search cursor does not match sort order");
+        }
+    }
+
+    /**
+     * Whether this cursor points to the first page.
+     */
+    public boolean isStart() {
+        return this.after == null;
+    }
+
+}
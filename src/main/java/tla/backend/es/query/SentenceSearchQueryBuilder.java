@@ -24,7 +24,7 @@ import tla.domain.command.SentenceSearch.TokenSpec;
 @ModelClass(SentenceEntity.class)
 public class SentenceSearchQueryBuilder extends ESQueryBuilder implements MultiLingQueryBuilder {
 
-	public final static String AGG_ID_TEXT_IDS = "text_ids";
+	public final static String FIELD_TEXT_ID = "context.textId";
 	
     public void setSort(String sort) {
         super.setSort(sort);
@@ -87,7 +87,7 @@ public class SentenceSearchQueryBuilder extends ESQueryBuilder implements MultiL
 	public void setTextIds(Collection<String> textIds) {
 		if (textIds != null) {
 			log.info("sentence query: receive {} text IDs", textIds.size());
-			this.filter(QueryBuilders.termsQuery("context.textId", textIds));
+			this.filter(termsFilter(FIELD_TEXT_ID, textIds));
 		}
 	}
 
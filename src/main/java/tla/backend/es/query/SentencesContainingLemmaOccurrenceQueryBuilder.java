@@ -2,17 +2,15 @@ package tla.backend.es.query;
 
 import java.util.List;
 
-import org.elasticsearch.search.aggregations.AggregationBuilders;
-import org.elasticsearch.search.aggregations.BucketOrder;
-
 import tla.backend.es.model.SentenceEntity;
 import tla.backend.service.ModelClass;
 import tla.domain.model.SentenceToken.Lemmatization;
 
 /**
  * create sentence query builder matching sentences containing specified lemma,
- * aggregating IDs of containing text entities in a terms aggregation named
- * {@link #AGG_ID_TEXT_IDS}.
+ * collecting the IDs of the containing text entities.
+ *
+ * @see ESQueryResult#getIDAggValues()
  */
 @ModelClass(SentenceEntity.class)
 public class SentencesContainingLemmaOccurrenceQueryBuilder extends SentenceSearchQueryBuilder {
@@ -20,15 +18,7 @@ public class SentencesContainingLemmaOccurrenceQueryBuilder extends SentenceSear
     public SentencesContainingLemmaOccurrenceQueryBuilder(String lemmaId) {
         super();
         setTokens(List.of(occurrenceTokenQuery(lemmaId)));
-        aggregate(
-            AggregationBuilders.terms(AGG_ID_TEXT_IDS).field(
-                "context.textId"
-            ).order(
-                BucketOrder.key(true)
-            ).size(
-                ExpansionQueryBuilder.ID_AGG_SIZE
-            )
-        );
+        setIdCollectionField(FIELD_TEXT_ID);
     }
 
     /**
@@ -6,10 +6,10 @@ import tla.backend.service.ModelClass;
 
 /**
  * ES query builder for searching texts containing occurrences of specific lemma.
- * Lemma occurrence counts per text are gonna be in
- * the result's {@link #AGG_ID_TEXT_IDS} aggregation.
+ * The IDs of texts containing sentences with lemma occurrences are collected
+ * by a sentence query dependency.
  *
- * @see ESQueryResult#getAggregation(String)
+ * @see ESQueryResult#getIDAggValues()
  */
 @ModelClass(TextEntity.class)
 public class TextsContainingLemmaOccurrenceQueryBuilder extends TextSearchQueryBuilder {
@@ -17,7 +17,7 @@ public class TextsContainingLemmaOccurrenceQueryBuilder extends TextSearchQueryB
     /**
      * instantiates a query builder for searching lemma attestations, which is
      * basically a text search query builder fed by a sentence query builder
-     * dependency with a text IDs aggregation and a nested token query looking
+     * dependency collecting text IDs and a nested token query looking
      * for the specified lemma.
      */
     public TextsContainingLemmaOccurrenceQueryBuilder(String lemmaId) {
@@ -20,4 +20,23 @@ public class ThsSearchQueryBuilder extends ESQueryBuilder implements MultiLingQu
         this.expansion = expansion;
     }
 
-}
\ No newline at end of file
+    @Override
+    public void setRootIds(String[] ids) {
+        ExpansionQueryBuilder.super.setRootIds(ids);
+        this.rootIds = ids;
+    }
+
+    /**
+     * Whether this is an expansion query for nothing but the IDs of all thesaurus entries
+     * within the subtrees under its root IDs, so that it can be answered from the
+     * thesaurus hierarchy alone.
+     */
+    public boolean isSubtreeExpansion() {
+        var root = this.getNativeRootQueryBuilder();
+        return this.expansion && this.rootIds != null
+            && root.must().size() == 1 && root.filter().isEmpty()
+            && root.should().isEmpty() && root.mustNot().isEmpty()
+            && this.getNativeAggregationBuilders().isEmpty();
+    }
+
+}
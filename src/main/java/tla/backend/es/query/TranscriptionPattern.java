@@ -0,0 +1,168 @@
+package tla.backend.es.query;
+
+import static org.elasticsearch.index.query.QueryBuilders.matchPhraseQuery;
+import static org.elasticsearch.index.query.QueryBuilders.prefixQuery;
+import static org.elasticsearch.index.query.QueryBuilders.regexpQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+
+import org.elasticsearch.index.query.QueryBuilder;
+
+import lombok.Getter;
+
+/**
+ * Transliteration search pattern as produced by
+ * {@link LemmaSearchQueryBuilder#maskRegExTranscription(String)}, classified by whether it
+ * can be matched by a term, prefix or n-gram query instead of a regular expression.
+ *
+ * <p>Transliteration fields indexed with additional subfields can answer these patterns
+ * from their own term dictionaries:</p>
+ * <ul>
+ * <li><code>reverse</code>: reversed value, for patterns with a leading wildcard</li>
+ * <li><code>ngram</code>: trigrams, for patterns with wildcards on both sides</li>
+ * <li><code>segments</code>: the value from each position following a <code>-</code> or blank
+ * onward, for patterns searching anywhere after such a delimiter</li>
+ * </ul>
+ *
+ * @see tla.backend.es.model.parts.LemmaTranscription
+ */
+@Getter
+public class TranscriptionPattern {
+
+    /**
+     * How a pattern can be matched.
+     */
+    public enum Kind {
+        /** entire value */
+        EQUALS,
+        /** beginning of value */
+        PREFIX,
+        /** end of value */
+        SUFFIX,
+        /** anywhere in value */
+        INFIX,
+        /** beginning of value, or after a delimiter */
+        SEGMENT_PREFIX,
+        /** entire value, or everything after a delimiter */
+        SEGMENT_EQUALS,
+        /** none of the above */
+        REGEXP
+    }
+
+    /**
+     * Length of the n-grams in the <code>ngram</code> subfield. Shorter infixes can only be
+     * searched for by regular expression.
+     */
+    public static final int NGRAM_SIZE = 3;
+
+    static final String ANY = ".*";
+    static final String ANY_START = "(.+)?";
+    static final String SEGMENT_START = "(.+[\\- ])?";
+
+    /**
+     * Characters with a special meaning in Lucene regular expressions.
+     */
+    private static final String RESERVED = ".?+*|{}[]()\"\\#@&<>~";
+
+    private final Kind kind;
+
+    /**
+     * Literal text to be matched, or <code>null</code> if the pattern is not literal.
+     */
+    private final String text;
+
+    private final String regex;
+
+    private TranscriptionPattern(Kind kind, String text, String regex) {
+        this.kind = kind;
+        this.text = text;
+        this.regex = regex;
+    }
+
+    /**
+     * Classify a masked transliteration search pattern.
+     */
+    public static TranscriptionPattern of(String regex) {
+        boolean segment = regex.startsWith(SEGMENT_START);
+        boolean anyStart = !segment && regex.startsWith(ANY_START);
+        String body = regex.substring(
+            segment ? SEGMENT_START.length() : anyStart ? ANY_START.length() : 0
+        );
+        boolean leading = false;
+        boolean trailing = false;
+        StringBuilder text = new StringBuilder(body.length());
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '\\' && i + 1 < body.length()) {
+                text.append(body.charAt(++i));
+            } else if (body.startsWith(ANY, i) && i + ANY.length() == body.length()) {
+                trailing = true;
+                i++;
+            } else if (body.startsWith(ANY, i) && i == 0) {
+                leading = true;
+                i++;
+            } else if (RESERVED.indexOf(c) >= 0) {
+                return new TranscriptionPattern(Kind.REGEXP, null, regex);
+            } else {
+                text.append(c);
+            }
+        }
+        Kind kind;
+        if (segment) {
+            kind = leading ? Kind.REGEXP : trailing ? Kind.SEGMENT_PREFIX : Kind.SEGMENT_EQUALS;
+        } else if (anyStart || leading) {
+            kind = (anyStart && leading) ? Kind.REGEXP : trailing ? Kind.INFIX : Kind.SUFFIX;
+        } else {
+            kind = trailing ? Kind.PREFIX : Kind.EQUALS;
+        }
+        if (kind == Kind.INFIX && text.length() < NGRAM_SIZE) {
+            kind = Kind.REGEXP;
+        }
+        return new TranscriptionPattern(
+            kind, kind != Kind.REGEXP ? text.toString() : null, regex
+        );
+    }
+
+    /**
+     * Create a query matching this pattern on a transliteration field.
+     *
+     * @param field name of the field
+     * @param subfields whether the field is indexed with <code>reverse</code>,
+     * <code>ngram</code> and <code>segments</code> subfields. If not, only patterns which
+     * can be matched on the field itself are converted.
+     */
+    public QueryBuilder toQuery(String field, boolean subfields) {
+        switch (this.kind) {
+            case EQUALS:
+                return termQuery(field, this.text);
+            case PREFIX:
+                return prefixQuery(field, this.text);
+            default:
+                if (!subfields) {
+                    return regexpQuery(field, this.regex);
+                }
+        }
+        switch (this.kind) {
+            case SUFFIX:
+                return prefixQuery(
+                    field + ".reverse", new StringBuilder(this.text).reverse().toString()
+                );
+            case INFIX:
+                return matchPhraseQuery(field + ".ngram", this.text);
+            case SEGMENT_PREFIX:
+                return prefixQuery(field + ".segments", markSegments(this.text));
+            case SEGMENT_EQUALS:
+                return termQuery(field + ".segments", markSegments(this.text));
+            default:
+                return regexpQuery(field, this.regex);
+        }
+    }
+
+    /**
+     * Mark blanks as segment delimiters in the same way as the
+     * <code>transcription_segment_marker</code> char filter does before indexing.
+     */
+    static String markSegments(String text) {
+        return text.replace(" ", "- ");
+    }
+
+}
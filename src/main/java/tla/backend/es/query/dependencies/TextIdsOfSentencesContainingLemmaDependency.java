@@ -18,9 +18,7 @@ public class TextIdsOfSentencesContainingLemmaDependency extends QueryDependency
         super(
             new SentencesContainingLemmaOccurrenceQueryBuilder(lemmaId),
             query::setId,
-            sentenceDependency -> sentenceDependency.getResult().getAggregation(
-                SentencesContainingLemmaOccurrenceQueryBuilder.AGG_ID_TEXT_IDS
-            ).keySet().toArray(new String[]{})
+            sentenceDependency -> sentenceDependency.getResult().getIDAggValues().toArray(new String[]{})
         );
     }
 
@@ -32,6 +32,10 @@ public class ThsRefExpansionDependency extends TLAQueryBuilder.QueryDependency<P
      * subtrees under the specified thesaurus entries). The results are fed into the waiting query builder's
      * {@link PassportIncludingQueryBuilder#setPassport(PassportSpec)} method.
      *
+     * If the thesaurus hierarchy is being kept in memory, the expansion query is answered from it
+     * instead of being sent to Elasticsearch.
+     *
+     * @see ThsSearchQueryBuilder#isSubtreeExpansion()
      */
     public static ThsRefExpansionDependency of(
         PassportIncludingQueryBuilder waitingQuery,
@@ -45,7 +49,7 @@ public class ThsRefExpansionDependency extends TLAQueryBuilder.QueryDependency<P
             expansionQuery,
             waitingQuery::setPassport,
             query -> {
-                log.info("result aggregations: {}", query.getResult().getHits().getAggregations());
+                log.info("expanded thesaurus IDs: {}", query.getResult().getIDAggValues().size());
                 var expanded = new PassportSpec();
                 expanded.put(
                     passportKey,
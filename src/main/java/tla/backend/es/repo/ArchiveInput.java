@@ -0,0 +1,155 @@
+package tla.backend.es.repo;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+
+import lombok.extern.slf4j.Slf4j;
+import tla.backend.config.ApplicationProperties.IngestProperties;
+
+/**
+ * Opens corpus archives for reading. The compression format is detected from the archive's
+ * signature: gzip (including multi-member gzip as written by e.g. <code>pigz</code>), zstd,
+ * and the other formats supported by commons-compress, or none at all for plain TAR files.
+ *
+ * Archive files can be memory-mapped instead of being read through a file stream, and
+ * decompression can run ahead on a separate thread (see {@link ReadAheadInputStream}).
+ */
+@Slf4j
+public class ArchiveInput {
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Reads a file by memory-mapping consecutive windows of it.
+     */
+    static class MappedFileInputStream extends InputStream {
+
+        static final long WINDOW_SIZE = 1L << 26;
+
+        private final FileChannel channel;
+        private final long size;
+        private long position = 0;
+        private MappedByteBuffer window = null;
+
+        MappedFileInputStream(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = this.channel.size();
+        }
+
+        /**
+         * Map next window if current one has been read.
+         *
+         * @return false if end of file has been reached
+         */
+        private boolean next() throws IOException {
+            if (this.window != null && this.window.hasRemaining()) {
+                return true;
+            }
+            if (this.position >= this.size) {
+                return false;
+            }
+            long length = Math.min(WINDOW_SIZE, this.size - this.position);
+            this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, length);
+            this.position += length;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return this.next() ? this.window.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!this.next()) {
+                return -1;
+            }
+            int n = Math.min(length, this.window.remaining());
+            this.window.get(buffer, offset, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return this.window != null ? this.window.remaining() : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.window = null;
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Open an archive and return a stream of its decompressed TAR contents.
+     *
+     * @param archive archive file
+     * @param metrics ingest metrics to record progress and decompression time with
+     * @param properties ingest configuration (memory mapping, read-ahead)
+     */
+    public static InputStream open(File archive, IngestMetrics metrics, IngestProperties properties) throws IOException {
+        InputStream file = properties.isMmap()
+            ? new MappedFileInputStream(archive.toPath())
+            : new FileInputStream(archive);
+        InputStream input = new BufferedInputStream(
+            metrics.trackArchive(file, archive.length()),
+            BUFFER_SIZE
+        );
+        InputStream decompressed;
+        try {
+            decompressed = decompress(input, archive.getName());
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+        decompressed = metrics.timeDecompression(decompressed);
+        if (properties.getReadAhead() > 0) {
+            decompressed = new ReadAheadInputStream(
+                decompressed,
+                properties.getReadAhead(),
+                properties.getReadAheadBufferSize(),
+                "ingest-read-" + archive.getName()
+            );
+        }
+        return decompressed;
+    }
+
+    /**
+     * Wrap stream into a decompressing stream for whatever compression format its signature
+     * indicates, or return it as is if it does not seem to be compressed.
+     *
+     * @param input stream supporting {@link InputStream#mark(int)}
+     */
+    static InputStream decompress(InputStream input, String name) throws IOException {
+        String format;
+        try {
+            format = CompressorStreamFactory.detect(input);
+        } catch (CompressorException e) {
+            log.info("archive {} does not seem to be compressed", name);
+            return input;
+        }
+        log.info("archive {} is {} compressed", name, format);
+        try {
+            return new CompressorStreamFactory(true).createCompressorInputStream(format, input);
+        } catch (CompressorException e) {
+            throw new IOException(
+                String.format("could not decompress %s archive %s", format, name), e
+            );
+        }
+    }
+
+}
@@ -0,0 +1,249 @@
+package tla.backend.es.repo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Goes through a TAR archive and hands its JSON files over to a {@link Sink}, along with the
+ * names of the directories they are in. Each archive being ingested gets its own reader.
+ *
+ * Archive entries are identified by a key made up of the archive's position in the list of
+ * archives being ingested and the entry's position within the archive (see
+ * {@link #entryKey(int, int)}). Entries already committed according to the archive's
+ * {@link IngestCheckpoint} are skipped. Entries which do not get queued for indexing
+ * (directories, unreadable files, lists of deleted documents, documents of unknown type) are
+ * marked as completed in the checkpoint right away; all others have to be marked as completed
+ * by whoever indexes them.
+ */
+@Slf4j
+public class ArchiveReader {
+
+    /**
+     * name of archive files listing IDs of deleted documents in delta mode
+     */
+    final static String DELETED_LIST = "_deleted";
+
+    /**
+     * Receives what is read from archives. Must be thread-safe if several archives are
+     * read at once.
+     */
+    public interface Sink {
+        /**
+         * Hand over an archived document.
+         *
+         * @param type archive directory containing the document
+         * @param entry key of the archive entry
+         * @return whether the document has been queued for indexing. If not, the archive
+         * entry is considered done.
+         */
+        boolean add(String type, byte[] json, long entry);
+
+        /**
+         * Hand over the IDs listed in a {@link ArchiveReader#DELETED_LIST} file.
+         */
+        void delete(String type, List<String> ids);
+
+        /**
+         * Called if archived documents are not going to be handed over, because they have
+         * been committed before or could not be read.
+         */
+        void incomplete(String reason);
+    }
+
+    /**
+     * Opens the decompressed contents of an archive file.
+     */
+    public interface Opener {
+        InputStream open(File archive) throws IOException;
+    }
+
+    private int number;
+    private String name;
+    private IngestCheckpoint checkpoint;
+    private Sink sink;
+
+    /**
+     * directory currently being read
+     */
+    private String type = null;
+
+    /**
+     * @param number position of the archive in the list of archives being ingested
+     * @param name archive name used in log messages
+     * @param checkpoint progress of this archive, or <code>null</code>
+     */
+    public ArchiveReader(int number, String name, IngestCheckpoint checkpoint, Sink sink) {
+        this.number = number;
+        this.name = name;
+        this.checkpoint = checkpoint;
+        this.sink = sink;
+    }
+
+    /**
+     * Key identifying an archive entry across all archives being ingested.
+     *
+     * @param archive position of the archive in the list of archives being ingested
+     * @param position position of the entry within its archive
+     */
+    public static long entryKey(int archive, int position) {
+        return ((long) archive << 32) | position;
+    }
+
+    /**
+     * Position of the archive an entry key belongs to.
+     */
+    public static int archiveOf(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    /**
+     * Position of an archive entry within its archive.
+     */
+    public static int positionOf(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Read all archives, concurrently if there is more than one, each with its own checkpoint.
+     *
+     * @param checkpoints progress of each archive, in the same order
+     * @param threads maximum number of archives read at once
+     * @return whether all archives have been read completely
+     */
+    public static boolean readAll(
+        List<File> archives, List<IngestCheckpoint> checkpoints, int threads, Opener opener, Sink sink
+    ) throws InterruptedException {
+        if (archives.size() == 1) {
+            return read(0, archives.get(0), checkpoints.get(0), opener, sink);
+        }
+        threads = Math.max(1, Math.min(archives.size(), threads));
+        log.info("read {} archives using {} threads", archives.size(), threads);
+        var factory = new CustomizableThreadFactory("ingest-archive-");
+        factory.setDaemon(true);
+        ExecutorService readers = Executors.newFixedThreadPool(threads, factory);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < archives.size(); i++) {
+                final int number = i;
+                results.add(
+                    readers.submit(
+                        () -> read(number, archives.get(number), checkpoints.get(number), opener, sink)
+                    )
+                );
+            }
+            boolean complete = true;
+            for (var result : results) {
+                try {
+                    complete &= result.get();
+                } catch (ExecutionException e) {
+                    log.error("archive reader failed", e.getCause());
+                    complete = false;
+                }
+            }
+            return complete;
+        } finally {
+            readers.shutdown();
+        }
+    }
+
+    /**
+     * Read a single archive.
+     *
+     * @return whether the archive has been read completely
+     */
+    private static boolean read(int number, File archive, IngestCheckpoint checkpoint, Opener opener, Sink sink) {
+        try (TarArchiveInputStream input = new TarArchiveInputStream(opener.open(archive))) {
+            new ArchiveReader(number, archive.getName(), checkpoint, sink).read(input);
+            return true;
+        } catch (IOException e) {
+            log.error(
+                String.format("error during processing tar archive %s", archive),
+                e
+            );
+            return false;
+        }
+    }
+
+    /**
+     * Tries to get a document type identifier out of an archived item's path,
+     * which is the hindmost path segment for directories, and the second path segment from the end
+     * for file entries.
+     *
+     * @return path segment thought to represent a doctype
+     */
+    static String extractDocTypeFromPath(TarArchiveEntry archiveEntry) {
+        String[] segments = archiveEntry.getName().split("/");
+        int segmentOffset = archiveEntry.isDirectory() ? 1 : 2;
+        return segments[
+            segments.length - segmentOffset
+        ];
+    }
+
+    public void read(TarArchiveInputStream input) throws IOException {
+        TarArchiveEntry archiveEntry;
+        long filecount = 0;
+        int entry = -1;
+        int resumeFrom = this.checkpoint != null ? this.checkpoint.getCommitted() : 0;
+        if (resumeFrom > 0) {
+            this.sink.incomplete("resumed ingest skips archive entries committed before");
+        }
+        while ((archiveEntry = input.getNextTarEntry()) != null) {
+            entry++;
+            if (entry < resumeFrom) {
+                continue;
+            }
+            long key = entryKey(this.number, entry);
+            String typeId = extractDocTypeFromPath(archiveEntry);
+            boolean queued = false;
+            if (!archiveEntry.isDirectory()) {
+                if (input.canReadEntryData(archiveEntry)) {
+                    filecount++;
+                    if (archiveEntry.getName().endsWith("/" + DELETED_LIST)) {
+                        this.sink.delete(typeId, readDeletedList(input));
+                    } else {
+                        if (!typeId.equals(this.type)) {
+                            log.info("read directory {} in {}", typeId, this.name);
+                            this.type = typeId;
+                        }
+                        queued = this.sink.add(typeId, input.readAllBytes(), key);
+                    }
+                } else {
+                    log.warn("archived file {} not readable", archiveEntry.getName());
+                    this.sink.incomplete("could not read all archived files");
+                }
+            }
+            if (!queued && this.checkpoint != null) {
+                this.checkpoint.complete(entry, null);
+            }
+        }
+        if (resumeFrom > 0) {
+            log.info("skipped {} entries of {} committed before", resumeFrom, this.name);
+        }
+        log.info("JSON documents extracted from archive {}: {}", this.name, filecount);
+    }
+
+    private static List<String> readDeletedList(InputStream input) throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (String line : new String(input.readAllBytes(), StandardCharsets.UTF_8).split("\\R")) {
+            if (!line.isBlank()) {
+                ids.add(line.strip());
+            }
+        }
+        return ids;
+    }
+
+}
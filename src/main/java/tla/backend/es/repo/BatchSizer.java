@@ -0,0 +1,85 @@
+package tla.backend.es.repo;
+
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.rest.RestStatus;
+
+/**
+ * Determines how many bytes of serialized documents go into one bulk request, and adapts that
+ * number to how Elasticsearch copes: as long as bulk requests complete within the target latency,
+ * the limit grows by a constant step; if they take longer, it shrinks by a quarter, and if
+ * Elasticsearch rejects documents because its queues are full, it is cut in half
+ * (additive increase, multiplicative decrease).
+ */
+public class BatchSizer {
+
+    private final long minBytes;
+    private final long maxBytes;
+    private final long targetLatency;
+
+    private long limit;
+
+    /**
+     * @param minBytes lower bound for the batch size limit
+     * @param maxBytes upper bound for the batch size limit
+     * @param initialBytes batch size limit to start with
+     * @param targetLatency bulk request duration in milliseconds up to which the limit may grow
+     */
+    public BatchSizer(long minBytes, long maxBytes, long initialBytes, long targetLatency) {
+        this.minBytes = Math.max(1, minBytes);
+        this.maxBytes = Math.max(this.minBytes, maxBytes);
+        this.targetLatency = targetLatency;
+        this.limit = clamp(initialBytes);
+    }
+
+    private long clamp(long bytes) {
+        return Math.min(this.maxBytes, Math.max(this.minBytes, bytes));
+    }
+
+    /**
+     * Number of bytes of serialized documents after which a batch should be sent.
+     */
+    public synchronized long getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * Adapt limit to the duration of a completed bulk request.
+     *
+     * @param latency bulk request duration in milliseconds
+     */
+    public synchronized void completed(long latency) {
+        if (latency <= this.targetLatency) {
+            this.limit = clamp(this.limit + this.minBytes);
+        } else {
+            this.limit = clamp(this.limit * 3 / 4);
+        }
+    }
+
+    /**
+     * Adapt limit to Elasticsearch rejecting documents because it is too busy.
+     */
+    public synchronized void rejected() {
+        this.limit = clamp(this.limit / 2);
+    }
+
+    /**
+     * Whether a failed bulk request has been turned down because of back-pressure
+     * (HTTP status 429, <code>es_rejected_execution_exception</code>).
+     */
+    public static boolean isRejection(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ElasticsearchStatusException
+                && ((ElasticsearchStatusException) cause).status() == RestStatus.TOO_MANY_REQUESTS) {
+                return true;
+            }
+            if (cause.getMessage() != null && cause.getMessage().contains("rejected_execution_exception")) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,170 @@
+package tla.backend.es.repo;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.settings.Settings;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Switches indices to settings suited for bulk loading, and back to the settings they had
+ * before, which are the ones they are being served with.
+ *
+ * While the bulk-load profile is applied, indices are not refreshed periodically, keep no
+ * replicas, and fsync their translog asynchronously. Serving settings are only kept in memory
+ * here; callers are expected to persist what {@link #capture(Collection)} returns before
+ * applying the profile, and to pass it back in if the indices have to be restored by another
+ * process.
+ */
+@Slf4j
+public class BulkLoadProfile {
+
+    static final Map<String, String> BULK_LOAD_SETTINGS = Map.of(
+        "index.refresh_interval", "-1",
+        "index.number_of_replicas", "0",
+        "index.translog.durability", "async"
+    );
+
+    static final String REFRESH_INTERVAL = "index.refresh_interval";
+
+    private RestHighLevelClient restClient;
+
+    /**
+     * serving settings of indices currently in bulk-load profile
+     */
+    private Map<String, Map<String, String>> serving = new LinkedHashMap<>();
+
+    public BulkLoadProfile(RestHighLevelClient restClient) {
+        this(restClient, Map.of());
+    }
+
+    /**
+     * Create a bulk-load profile for indices which might still be in bulk-load profile
+     * because an earlier ingest has been interrupted.
+     *
+     * @param serving serving settings recorded by the earlier ingest, by index name
+     */
+    public BulkLoadProfile(RestHighLevelClient restClient, Map<String, Map<String, String>> serving) {
+        this.restClient = restClient;
+        serving.forEach((index, values) -> this.serving.put(index, new HashMap<>(values)));
+    }
+
+    /**
+     * Remember the current settings of those of the given indices whose serving settings
+     * are not known yet. A refresh interval of <code>-1</code> is never taken for a serving
+     * setting, because it is what indices left in bulk-load profile have; the default is
+     * restored instead.
+     *
+     * @return serving settings of all indices known to this profile, to be recorded
+     * before the indices are actually switched
+     */
+    public Map<String, Map<String, String>> capture(Collection<String> indices) throws IOException {
+        for (String index : indices) {
+            if (this.serving.containsKey(index)) {
+                continue;
+            }
+            GetSettingsResponse current = restClient.indices().getSettings(
+                new GetSettingsRequest().indices(index).includeDefaults(true),
+                RequestOptions.DEFAULT
+            );
+            Map<String, String> values = new HashMap<>();
+            for (String key : BULK_LOAD_SETTINGS.keySet()) {
+                values.put(key, current.getSetting(index, key));
+            }
+            if (BULK_LOAD_SETTINGS.get(REFRESH_INTERVAL).equals(values.get(REFRESH_INTERVAL))) {
+                log.warn("index {} not refreshed periodically, will be restored to default refresh interval", index);
+                values.put(REFRESH_INTERVAL, null);
+            }
+            this.serving.put(index, values);
+        }
+        return this.getServing();
+    }
+
+    /**
+     * Remember current settings of the given indices and switch them to bulk-load profile.
+     *
+     * @see #capture(Collection)
+     */
+    public void apply(Collection<String> indices) throws IOException {
+        this.capture(indices);
+        for (String index : indices) {
+            var settings = Settings.builder();
+            BULK_LOAD_SETTINGS.forEach(settings::put);
+            restClient.indices().putSettings(
+                new UpdateSettingsRequest(index).settings(settings),
+                RequestOptions.DEFAULT
+            );
+            log.info("index {} switched to bulk-load profile (serving settings: {})", index, this.serving.get(index));
+        }
+    }
+
+    /**
+     * Serving settings of the indices currently in bulk-load profile, by index name.
+     */
+    public Map<String, Map<String, String>> getServing() {
+        Map<String, Map<String, String>> serving = new LinkedHashMap<>();
+        this.serving.forEach((index, values) -> serving.put(index, new HashMap<>(values)));
+        return serving;
+    }
+
+    /**
+     * Put back the settings all indices had before the bulk-load profile was applied.
+     * Does nothing if no indices are currently in bulk-load profile.
+     *
+     * @return names of the indices which have been restored
+     */
+    public Collection<String> restore() throws IOException {
+        var restored = this.serving.keySet().toArray(new String[0]);
+        for (String index : restored) {
+            var settings = Settings.builder();
+            this.serving.get(index).forEach(
+                (key, value) -> {
+                    if (value != null) {
+                        settings.put(key, value);
+                    } else {
+                        settings.putNull(key);
+                    }
+                }
+            );
+            restClient.indices().putSettings(
+                new UpdateSettingsRequest(index).settings(settings),
+                RequestOptions.DEFAULT
+            );
+            this.serving.remove(index);
+            log.info("index {} switched back to serving profile", index);
+        }
+        return List.of(restored);
+    }
+
+    /**
+     * Merge the segments of the given indices down to the given maximum number.
+     */
+    public void forceMerge(Collection<String> indices, int maxNumSegments) throws IOException {
+        if (indices.isEmpty()) {
+            return;
+        }
+        restClient.indices().forcemerge(
+            new ForceMergeRequest(indices.toArray(new String[0])).maxNumSegments(maxNumSegments),
+            RequestOptions.DEFAULT
+        );
+    }
+
+    /**
+     * Whether any indices are currently in bulk-load profile.
+     */
+    public boolean isApplied() {
+        return !this.serving.isEmpty();
+    }
+
+}
@@ -0,0 +1,26 @@
+package tla.backend.es.repo;
+
+import org.springframework.context.ApplicationEvent;
+
+import lombok.Getter;
+
+/**
+ * Published by the {@link RepoPopulator} after documents have been ingested, so that anything
+ * derived from the previous index contents (e.g. cached search results) can be discarded.
+ */
+@Getter
+public class CorpusIngestedEvent extends ApplicationEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * release identifier of the new index generation, if ingested into one
+     */
+    private final String release;
+
+    public CorpusIngestedEvent(Object source, String release) {
+        super(source);
+        this.release = release;
+    }
+
+}
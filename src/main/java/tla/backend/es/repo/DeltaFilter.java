@@ -0,0 +1,174 @@
+package tla.backend.es.repo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares incoming documents with what is currently indexed, so that a delta ingest only
+ * needs to send documents which have actually changed.
+ *
+ * A document counts as changed if it is not in the index yet, or if its JSON representation
+ * differs from the indexed <code>_source</code>, unless the indexed version has a later edit date
+ * (<code>editors.updated</code>) than the incoming one.
+ */
+@Slf4j
+public class DeltaFilter {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static final int SWEEP_PAGE_SIZE = 5000;
+    static final int DELETE_BATCH_SIZE = 1000;
+
+    private RestHighLevelClient restClient;
+    private String index;
+
+    public DeltaFilter(RestHighLevelClient restClient, String index) {
+        this.restClient = restClient;
+        this.index = index;
+    }
+
+    /**
+     * Look up the indexed versions of the given documents and determine which ones need to be
+     * (re-)indexed.
+     *
+     * @param ids document IDs
+     * @param docs JSON documents in the form they would be indexed in, in the same order as <code>ids</code>
+     * @return for each document, whether it has changed
+     */
+    public boolean[] changed(List<String> ids, List<byte[]> docs) throws IOException {
+        boolean[] changed = new boolean[ids.size()];
+        var request = new MultiGetRequest();
+        ids.forEach(id -> request.add(this.index, id));
+        MultiGetResponse response = restClient.mget(request, RequestOptions.DEFAULT);
+        MultiGetItemResponse[] items = response.getResponses();
+        for (int i = 0; i < ids.size(); i++) {
+            var item = items[i];
+            if (item.isFailed() || !item.getResponse().isExists()) {
+                changed[i] = true;
+            } else {
+                changed[i] = isChanged(
+                    MAPPER.readTree(docs.get(i)),
+                    MAPPER.readTree(item.getResponse().getSourceAsBytes())
+                );
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Decide whether an incoming document should replace the indexed version.
+     */
+    static boolean isChanged(JsonNode incoming, JsonNode existing) {
+        String incomingDate = editDate(incoming);
+        String existingDate = editDate(existing);
+        if (incomingDate != null && existingDate != null && incomingDate.compareTo(existingDate) < 0) {
+            return false;
+        }
+        return !incoming.equals(existing);
+    }
+
+    /**
+     * Date of the latest change according to a document's editor info, which is formatted
+     * <code>yyyy-MM-dd</code> and can therefore be compared lexicographically.
+     */
+    private static String editDate(JsonNode doc) {
+        return doc.path("editors").path("updated").asText(null);
+    }
+
+    /**
+     * Delete documents from the index.
+     *
+     * @return number of documents actually deleted
+     */
+    public int delete(Collection<String> ids) throws IOException {
+        int deleted = 0;
+        List<String> chunk = new ArrayList<>();
+        for (String id : ids) {
+            chunk.add(id);
+            if (chunk.size() >= DELETE_BATCH_SIZE) {
+                deleted += this.deleteChunk(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            deleted += this.deleteChunk(chunk);
+        }
+        return deleted;
+    }
+
+    private int deleteChunk(List<String> ids) throws IOException {
+        var bulk = new BulkRequest();
+        ids.forEach(id -> bulk.add(new DeleteRequest(this.index, id)));
+        BulkResponse response = restClient.bulk(bulk, RequestOptions.DEFAULT);
+        int deleted = 0;
+        for (var item : response.getItems()) {
+            if (!item.isFailed() && item.getResponse().getResult() == DocWriteResponse.Result.DELETED) {
+                deleted++;
+            }
+        }
+        if (response.hasFailures()) {
+            log.warn("could not delete all documents from {}: {}", this.index, response.buildFailureMessage());
+        }
+        return deleted;
+    }
+
+    /**
+     * Delete all documents from the index whose IDs are not in the given set.
+     *
+     * @return number of documents deleted
+     */
+    public int sweep(Set<String> keep) throws IOException {
+        List<String> obsolete = new ArrayList<>();
+        var request = new SearchRequest(this.index).scroll(TimeValue.timeValueMinutes(1)).source(
+            new SearchSourceBuilder().query(QueryBuilders.matchAllQuery()).fetchSource(false).size(SWEEP_PAGE_SIZE)
+        );
+        SearchResponse response = restClient.search(request, RequestOptions.DEFAULT);
+        String scrollId = response.getScrollId();
+        try {
+            while (response.getHits().getHits().length > 0) {
+                for (SearchHit hit : response.getHits().getHits()) {
+                    if (!keep.contains(hit.getId())) {
+                        obsolete.add(hit.getId());
+                    }
+                }
+                response = restClient.scroll(
+                    new SearchScrollRequest(scrollId).scroll(TimeValue.timeValueMinutes(1)),
+                    RequestOptions.DEFAULT
+                );
+                scrollId = response.getScrollId();
+            }
+        } finally {
+            var clear = new ClearScrollRequest();
+            clear.addScrollId(scrollId);
+            restClient.clearScroll(clear, RequestOptions.DEFAULT);
+        }
+        return obsolete.isEmpty() ? 0 : this.delete(obsolete);
+    }
+
+}
@@ -0,0 +1,77 @@
+package tla.backend.es.repo;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import org.springframework.data.annotation.Id;
+
+/**
+ * Pulls the document ID out of a serialized JSON document without deserializing it.
+ * Only the top level of the document is being scanned, nested objects and arrays
+ * are skipped.
+ *
+ * The property names considered to contain the ID are taken from the model class field
+ * annotated with {@link Id}, including its {@link JsonAlias} values.
+ */
+public class DocumentIdExtractor {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private Set<String> idProperties;
+
+    public DocumentIdExtractor(Set<String> idProperties) {
+        this.idProperties = idProperties;
+    }
+
+    /**
+     * Create an ID extractor looking for the ID property of the given model class.
+     */
+    public static DocumentIdExtractor of(Class<?> modelClass) {
+        Set<String> names = new HashSet<>();
+        for (Class<?> c = modelClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Id.class)) {
+                    names.add(field.getName());
+                    var alias = field.getAnnotation(JsonAlias.class);
+                    if (alias != null) {
+                        names.addAll(Set.of(alias.value()));
+                    }
+                }
+            }
+        }
+        if (names.isEmpty()) {
+            names.add("id");
+        }
+        return new DocumentIdExtractor(names);
+    }
+
+    /**
+     * Returns the value of the first top-level ID property found, or <code>null</code>.
+     *
+     * @throws IOException if the input is not well-formed JSON up to the ID property
+     */
+    public String extract(byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (idProperties.contains(name) && value.isScalarValue()) {
+                    return parser.getValueAsString();
+                }
+                parser.skipChildren();
+            }
+        }
+        return null;
+    }
+
+}
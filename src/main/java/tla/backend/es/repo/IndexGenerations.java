@@ -0,0 +1,254 @@
+package tla.backend.es.repo;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import tla.backend.es.model.meta.Indexable;
+
+/**
+ * Manages versioned physical indices behind the stable index names specified in the model
+ * classes' <code>@Document</code> annotations, which are used as aliases.
+ *
+ * A new generation of physical indices (named like <code>sentence_20230101-120000</code>) is
+ * created for a corpus release, populated while search traffic keeps hitting the current
+ * generation, and then put live by moving all aliases in one atomic
+ * <code>_aliases</code> request. If the alias name is still taken by a concrete index from
+ * before aliases were used, that index gets removed in the same request.
+ */
+@Slf4j
+public class IndexGenerations {
+
+    private static final DateTimeFormatter RELEASE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /**
+     * characters a normalized release identifier consists of
+     */
+    private static final Pattern RELEASE_PATTERN = Pattern.compile("[a-z0-9.\\-]+");
+
+    private ElasticsearchOperations operations;
+    private RestHighLevelClient restClient;
+
+    /**
+     * release identifier used as suffix of the physical index names
+     */
+    @Getter
+    private String release;
+
+    /**
+     * whether to keep the previous generation of indices around after an alias swap
+     */
+    private boolean keepPrevious;
+
+    /**
+     * physical indices of this generation by alias
+     */
+    private Map<String, String> indices = new HashMap<>();
+
+    public IndexGenerations(
+        ElasticsearchOperations operations, RestHighLevelClient restClient, String release, boolean keepPrevious
+    ) {
+        this.operations = operations;
+        this.restClient = restClient;
+        this.release = normalizeRelease(
+            (release != null && !release.isBlank()) ? release : LocalDateTime.now().format(RELEASE_FORMAT)
+        );
+        this.keepPrevious = keepPrevious;
+    }
+
+    /**
+     * turn release identifier into something that can be part of an index name.
+     */
+    static String normalizeRelease(String release) {
+        return release.toLowerCase().replaceAll("[^a-z0-9.\\-]+", "-");
+    }
+
+    /**
+     * Whether an index name is that of a generation of physical indices behind the given alias,
+     * i.e. the alias followed by <code>_</code> and a normalized release identifier. Other
+     * indices whose names merely start with the alias, like <code>text_word_index</code>
+     * for <code>text</code>, are not.
+     */
+    static boolean isGeneration(String alias, String index) {
+        String prefix = physicalName(alias, "");
+        return index.startsWith(prefix) && RELEASE_PATTERN.matcher(index.substring(prefix.length())).matches();
+    }
+
+    /**
+     * Name of the physical index of a given release behind an alias.
+     */
+    public static String physicalName(String alias, String release) {
+        return String.format("%s_%s", alias, release);
+    }
+
+    /**
+     * Creates the physical index of this generation for a model class, with the settings and mappings
+     * specified by that class. Does nothing if it exists already.
+     *
+     * @return name of the physical index
+     */
+    public String create(Class<? extends Indexable> modelClass) {
+        String alias = operations.getIndexCoordinatesFor(modelClass).getIndexName();
+        String name = physicalName(alias, this.release);
+        var source = operations.indexOps(modelClass);
+        var target = operations.indexOps(IndexCoordinates.of(name));
+        if (!target.exists()) {
+            target.create(
+                source.createSettings(modelClass),
+                source.createMapping(modelClass)
+            );
+            log.info("created index {} for alias {}", name, alias);
+        }
+        this.indices.put(alias, name);
+        return name;
+    }
+
+    /**
+     * Returns the physical indices of this generation by alias.
+     */
+    public Map<String, String> getIndices() {
+        return Map.copyOf(this.indices);
+    }
+
+    /**
+     * Atomically point the given aliases to the physical indices of this generation. Physical indices
+     * of this generation whose aliases are not in the list are deleted.
+     * Indices previously behind the swapped aliases are deleted as well, unless the previous
+     * generation is to be kept, in which case only generations older than that are deleted.
+     */
+    public void swap(Collection<String> aliases) throws IOException {
+        Map<String, String> targets = new LinkedHashMap<>();
+        Map<String, Set<String>> aliased = new HashMap<>();
+        Set<String> concrete = new HashSet<>();
+        for (String alias : aliases) {
+            String index = this.indices.get(alias);
+            if (index == null) {
+                continue;
+            }
+            targets.put(alias, index);
+            Set<String> current = this.getAliasedIndices(alias);
+            aliased.put(alias, current);
+            if (current.isEmpty() && this.exists(alias)) {
+                log.info("replace concrete index {} with alias", alias);
+                concrete.add(alias);
+            }
+        }
+        List<String> replaced = new ArrayList<>();
+        var request = swapRequest(targets, aliased, concrete, replaced);
+        if (!request.getAliasActions().isEmpty()) {
+            restClient.indices().updateAliases(request, RequestOptions.DEFAULT);
+            log.info("aliases {} now point to release {}", aliases, this.release);
+        }
+        for (var e : this.indices.entrySet()) {
+            if (!aliases.contains(e.getKey())) {
+                log.info("drop unused index {}", e.getValue());
+                this.delete(e.getValue());
+            }
+        }
+        for (String alias : targets.keySet()) {
+            this.deleteOldGenerations(alias, replaced);
+        }
+    }
+
+    /**
+     * Build the <code>_aliases</code> request pointing aliases to new physical indices.
+     *
+     * @param targets new physical index by alias
+     * @param aliased physical indices currently behind each alias
+     * @param concrete aliases whose names are still taken by concrete indices, which are removed
+     * @param replaced receives the physical indices no longer behind their alias
+     */
+    static IndicesAliasesRequest swapRequest(
+        Map<String, String> targets, Map<String, Set<String>> aliased, Set<String> concrete, List<String> replaced
+    ) {
+        var request = new IndicesAliasesRequest();
+        targets.forEach(
+            (alias, index) -> {
+                if (concrete.contains(alias)) {
+                    request.addAliasAction(AliasActions.removeIndex().index(alias));
+                }
+                for (String old : aliased.getOrDefault(alias, Set.of())) {
+                    if (!old.equals(index)) {
+                        request.addAliasAction(AliasActions.remove().index(old).alias(alias));
+                        replaced.add(old);
+                    }
+                }
+                request.addAliasAction(AliasActions.add().index(index).alias(alias));
+            }
+        );
+        return request;
+    }
+
+    /**
+     * Delete all generations of an alias except for the current one and, if configured,
+     * the ones it just replaced.
+     */
+    private void deleteOldGenerations(String alias, Collection<String> replaced) throws IOException {
+        var response = restClient.indices().get(
+            new GetIndexRequest(physicalName(alias, "*")), RequestOptions.DEFAULT
+        );
+        for (String index : oldGenerations(
+            alias, List.of(response.getIndices()), this.indices.get(alias), keepPrevious ? replaced : List.of()
+        )) {
+            log.info("delete index {} of previous generation", index);
+            this.delete(index);
+        }
+    }
+
+    /**
+     * Select the generations of an alias to be deleted from a list of indices.
+     *
+     * @param indices names of indices matching <code>alias_*</code>
+     * @param current generation now behind the alias
+     * @param keep generations not to be deleted
+     */
+    static List<String> oldGenerations(String alias, Collection<String> indices, String current, Collection<String> keep) {
+        List<String> old = new ArrayList<>();
+        for (String index : indices) {
+            if (isGeneration(alias, index) && !index.equals(current) && !keep.contains(index)) {
+                old.add(index);
+            }
+        }
+        return old;
+    }
+
+    private Set<String> getAliasedIndices(String alias) throws IOException {
+        return restClient.indices().getAlias(
+            new GetAliasesRequest(alias), RequestOptions.DEFAULT
+        ).getAliases().keySet();
+    }
+
+    private boolean exists(String index) throws IOException {
+        return restClient.indices().exists(
+            new GetIndexRequest(index), RequestOptions.DEFAULT
+        );
+    }
+
+    private void delete(String index) throws IOException {
+        restClient.indices().delete(
+            new DeleteIndexRequest(index), RequestOptions.DEFAULT
+        );
+    }
+
+}
@@ -0,0 +1,246 @@
+package tla.backend.es.repo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps track of which entries of a TAR archive have been indexed, and persists that
+ * information in a checkpoint file, so that an interrupted ingest can be resumed.
+ *
+ * Archive entries are identified by their position within the archive. Because documents
+ * are indexed in batches, and in pipelined mode out of order, the checkpoint records a
+ * watermark: the number of leading archive entries which have all been indexed (or
+ * permanently rejected, or skipped because there is no ingestor for them).
+ */
+@Slf4j
+public class IngestCheckpoint {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * maximum number of archive entries completed ahead of the watermark which are kept track
+     * of. Entries completed beyond that are forgotten and get processed again on resume.
+     */
+    static final int MAX_PENDING = 100000;
+
+    /**
+     * Checkpoint file contents.
+     */
+    @Data
+    @NoArgsConstructor
+    public static class State {
+        /**
+         * absolute path of the archive
+         */
+        private String archive;
+        /**
+         * archive file size in bytes
+         */
+        private long archiveSize;
+        /**
+         * index generation being populated, if ingesting into new indices
+         */
+        private String release;
+        /**
+         * number of leading archive entries which have been committed
+         */
+        private int committed;
+        /**
+         * number of committed documents by archive directory
+         */
+        private Map<String, Long> counts = new TreeMap<>();
+        /**
+         * serving settings of indices switched to {@link BulkLoadProfile}, by index name
+         */
+        private Map<String, Map<String, String>> serving = new TreeMap<>();
+    }
+
+    private Path file;
+    private State state;
+    private long saveInterval;
+    private long lastSaved;
+
+    /**
+     * archive entries which have been completed, but not all of their predecessors,
+     * with the directory of each (or <code>null</code> for skipped entries)
+     */
+    private Map<Integer, String> completed = new HashMap<>();
+
+    /**
+     * whether entries completed ahead of the watermark have been forgotten
+     */
+    private boolean overflow = false;
+
+    private IngestCheckpoint(Path file, State state, long saveInterval) {
+        this.file = file;
+        this.state = state;
+        this.saveInterval = saveInterval;
+        this.lastSaved = System.currentTimeMillis();
+    }
+
+    /**
+     * Start keeping track of the ingest of an archive. If <code>resume</code> is set and
+     * a checkpoint file exists, continue from there.
+     *
+     * @param file location of checkpoint file
+     * @param archive archive being ingested
+     * @param resume whether to pick up an existing checkpoint
+     * @param saveInterval minimum number of milliseconds between checkpoint file updates
+     * @throws IllegalArgumentException if the checkpoint to resume from belongs to a different archive
+     */
+    public static IngestCheckpoint open(Path file, File archive, boolean resume, long saveInterval) throws IOException {
+        State state = null;
+        if (resume && Files.exists(file)) {
+            state = MAPPER.readValue(file.toFile(), State.class);
+            if (!state.getArchive().equals(archive.getAbsolutePath()) || state.getArchiveSize() != archive.length()) {
+                throw new IllegalArgumentException(
+                    String.format(
+                        "checkpoint %s belongs to archive %s (%d bytes), not %s (%d bytes)",
+                        file, state.getArchive(), state.getArchiveSize(), archive.getAbsolutePath(), archive.length()
+                    )
+                );
+            }
+            log.info(
+                "resume ingest of {} after {} committed archive entries ({})",
+                archive, state.getCommitted(), state.getCounts()
+            );
+        } else if (resume) {
+            log.info("no checkpoint found at {}, ingest {} from the start", file, archive);
+        }
+        if (state == null) {
+            state = new State();
+            state.setArchive(archive.getAbsolutePath());
+            state.setArchiveSize(archive.length());
+            if (Files.exists(file)) {
+                state.setServing(readServing(file));
+            }
+        }
+        return new IngestCheckpoint(file, state, saveInterval);
+    }
+
+    /**
+     * Serving settings recorded by an earlier ingest run are needed even if that run is not
+     * resumed, because its indices may still be in bulk-load profile.
+     */
+    private static Map<String, Map<String, String>> readServing(Path file) {
+        try {
+            var serving = MAPPER.readValue(file.toFile(), State.class).getServing();
+            if (serving != null && !serving.isEmpty()) {
+                log.warn("indices {} left in bulk-load profile by ingest recorded in {}", serving.keySet(), file);
+                return serving;
+            }
+        } catch (IOException e) {
+            log.warn("could not read serving settings from ingest checkpoint {}: {}", file, e.getMessage());
+        }
+        return new TreeMap<>();
+    }
+
+    /**
+     * Number of leading archive entries which do not need to be processed again.
+     */
+    public synchronized int getCommitted() {
+        return this.state.getCommitted();
+    }
+
+    public synchronized String getRelease() {
+        return this.state.getRelease();
+    }
+
+    public synchronized void setRelease(String release) {
+        this.state.setRelease(release);
+    }
+
+    /**
+     * Serving settings of indices which have been switched to bulk-load profile and not been
+     * switched back yet.
+     */
+    public synchronized Map<String, Map<String, String>> getServing() {
+        return new TreeMap<>(this.state.getServing());
+    }
+
+    public synchronized void setServing(Map<String, Map<String, String>> serving) {
+        this.state.setServing(new TreeMap<>(serving));
+    }
+
+    /**
+     * Mark an archive entry as done, and advance the watermark as far as possible. Writes the
+     * checkpoint file if it has not been written for a while. If the watermark is stuck (e.g.
+     * behind a document which could not be indexed) and {@link #MAX_PENDING} entries have been
+     * completed ahead of it, further entries are not kept track of.
+     *
+     * @param entry position of the entry within the archive
+     * @param type archive directory of the entry, or <code>null</code> if it did not contain a
+     * document which got indexed
+     */
+    public synchronized void complete(int entry, String type) {
+        if (entry < this.state.getCommitted()) {
+            return;
+        }
+        if (entry > this.state.getCommitted() && this.completed.size() >= MAX_PENDING) {
+            if (!this.overflow) {
+                log.warn(
+                    "{} archive entries completed after uncommitted entry {}, stop keeping track of them",
+                    this.completed.size(), this.state.getCommitted()
+                );
+                this.overflow = true;
+            }
+            return;
+        }
+        this.completed.put(entry, type);
+        int committed = this.state.getCommitted();
+        while (this.completed.containsKey(committed)) {
+            String committedType = this.completed.remove(committed);
+            if (committedType != null) {
+                this.state.getCounts().merge(committedType, 1L, Long::sum);
+            }
+            committed++;
+        }
+        this.state.setCommitted(committed);
+        if (System.currentTimeMillis() - this.lastSaved >= this.saveInterval) {
+            this.trySave();
+        }
+    }
+
+    /**
+     * Write the checkpoint file, replacing the previous one atomically.
+     */
+    public synchronized void save() throws IOException {
+        Path tmp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        MAPPER.writeValue(tmp.toFile(), this.state);
+        Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.lastSaved = System.currentTimeMillis();
+    }
+
+    private void trySave() {
+        try {
+            this.save();
+        } catch (IOException e) {
+            log.warn("could not write ingest checkpoint {}: {}", this.file, e.getMessage());
+        }
+    }
+
+    /**
+     * Remove the checkpoint file after the archive has been ingested completely.
+     */
+    public synchronized void delete() throws IOException {
+        Files.deleteIfExists(this.file);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d archive entries committed %s", state.getCommitted(), state.getCounts());
+    }
+
+}
@@ -0,0 +1,305 @@
+package tla.backend.es.repo;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Throughput and timing figures of an ingest run, per document type: documents and bytes per
+ * second, bulk request latency percentiles, rejected and failed documents, and time spent
+ * parsing JSON and waiting for bulk requests. Time spent decompressing archives and overall
+ * progress (measured in compressed archive bytes read) are tracked across all archives.
+ *
+ * Figures can be logged periodically while ingesting, and written to a JSON file at the end.
+ */
+@Slf4j
+public class IngestMetrics {
+
+    /**
+     * Figures of a single document type.
+     */
+    public static class TypeMetrics {
+        final LongAdder docs = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder parseNanos = new LongAdder();
+        final LongAdder bulkNanos = new LongAdder();
+        final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * Record a document read and parsed.
+         */
+        public void parsed(long bytes, long nanos) {
+            this.bytes.add(bytes);
+            this.parseNanos.add(nanos);
+        }
+
+        /**
+         * Record documents successfully indexed.
+         */
+        public void indexed(int docs) {
+            this.docs.add(docs);
+        }
+
+        /**
+         * Record documents turned down by Elasticsearch because it was too busy.
+         */
+        public void rejected(int docs) {
+            this.rejected.add(docs);
+        }
+
+        /**
+         * Record documents which could not be indexed.
+         */
+        public void failed(int docs) {
+            this.failed.add(docs);
+        }
+
+        /**
+         * Record duration of a bulk request.
+         */
+        public void bulk(long nanos) {
+            this.bulkNanos.add(nanos);
+            this.latencies.add(nanos / 1000000);
+        }
+
+        /**
+         * Bulk request latency percentiles in milliseconds.
+         */
+        Map<String, Long> latencyPercentiles() {
+            List<Long> sorted;
+            synchronized (this.latencies) {
+                sorted = new ArrayList<>(this.latencies);
+            }
+            Collections.sort(sorted);
+            Map<String, Long> result = new LinkedHashMap<>();
+            result.put("p50", percentile(sorted, 50));
+            result.put("p90", percentile(sorted, 90));
+            result.put("p99", percentile(sorted, 99));
+            result.put("max", sorted.isEmpty() ? 0 : sorted.get(sorted.size() - 1));
+            return result;
+        }
+
+        Map<String, Object> summary(long elapsedMillis) {
+            double seconds = Math.max(1, elapsedMillis) / 1000.;
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("docs", this.docs.sum());
+            result.put("bytes", this.bytes.sum());
+            result.put("docsPerSecond", Math.round(this.docs.sum() / seconds));
+            result.put("bytesPerSecond", Math.round(this.bytes.sum() / seconds));
+            result.put("rejected", this.rejected.sum());
+            result.put("failed", this.failed.sum());
+            result.put("parseMillis", this.parseNanos.sum() / 1000000);
+            result.put("bulkMillis", this.bulkNanos.sum() / 1000000);
+            result.put("bulkRequests", this.latencies.size());
+            result.put("bulkLatencyMillis", this.latencyPercentiles());
+            return result;
+        }
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values.
+     */
+    static long percentile(List<Long> sorted, int percent) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100. * sorted.size());
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    /**
+     * Counts bytes read from a stream, and optionally the time spent reading.
+     */
+    private static class MeteredInputStream extends FilterInputStream {
+        private final LongAdder bytes;
+        private final LongAdder nanos;
+
+        MeteredInputStream(InputStream in, LongAdder bytes, LongAdder nanos) {
+            super(in);
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            this.record(b < 0 ? 0 : 1, start);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            int n = super.read(buffer, offset, length);
+            this.record(Math.max(0, n), start);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long start = System.nanoTime();
+            long skipped = super.skip(n);
+            this.record(skipped, start);
+            return skipped;
+        }
+
+        private void record(long count, long start) {
+            if (this.bytes != null) {
+                this.bytes.add(count);
+            }
+            if (this.nanos != null) {
+                this.nanos.add(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private final long start = System.currentTimeMillis();
+    private final Map<String, TypeMetrics> types = new ConcurrentHashMap<>();
+    private final AtomicLong archiveBytes = new AtomicLong();
+    private final LongAdder archiveBytesRead = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    private ScheduledExecutorService reporter = null;
+
+    /**
+     * Figures for a document type.
+     */
+    public TypeMetrics of(String type) {
+        return this.types.computeIfAbsent(type, k -> new TypeMetrics());
+    }
+
+    /**
+     * Wrap a compressed archive stream so that progress can be estimated.
+     *
+     * @param size archive size in bytes
+     */
+    public InputStream trackArchive(InputStream compressed, long size) {
+        this.archiveBytes.addAndGet(size);
+        return new MeteredInputStream(compressed, this.archiveBytesRead, null);
+    }
+
+    /**
+     * Wrap a decompressing stream so that the time spent reading from it gets recorded.
+     */
+    public InputStream timeDecompression(InputStream decompressed) {
+        return new MeteredInputStream(decompressed, null, this.decompressNanos);
+    }
+
+    /**
+     * Share of compressed archive bytes read so far (between 0 and 1).
+     */
+    public double getProgress() {
+        long total = this.archiveBytes.get();
+        return total > 0 ? Math.min(1., (double) this.archiveBytesRead.sum() / total) : 0;
+    }
+
+    /**
+     * Estimated number of seconds until all archives have been read, or <code>-1</code> if
+     * there is no estimate yet.
+     */
+    public long getEtaSeconds() {
+        double progress = this.getProgress();
+        if (progress <= 0) {
+            return -1;
+        }
+        long elapsed = System.currentTimeMillis() - this.start;
+        return Math.round(elapsed * (1 - progress) / progress / 1000);
+    }
+
+    /**
+     * Log current figures every so many seconds until {@link #stopReporting()} is called.
+     */
+    public void startReporting(long intervalSeconds) {
+        if (intervalSeconds <= 0 || this.reporter != null) {
+            return;
+        }
+        var factory = new CustomizableThreadFactory("ingest-metrics-");
+        factory.setDaemon(true);
+        this.reporter = Executors.newSingleThreadScheduledExecutor(factory);
+        this.reporter.scheduleAtFixedRate(this::log, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void stopReporting() {
+        if (this.reporter != null) {
+            this.reporter.shutdownNow();
+            this.reporter = null;
+        }
+    }
+
+    /**
+     * Log current figures.
+     */
+    public void log() {
+        long elapsed = System.currentTimeMillis() - this.start;
+        log.info(
+            "ingest progress: {}% of archive data read, ETA {} s, {} ms decompressing",
+            Math.round(this.getProgress() * 100),
+            this.getEtaSeconds(),
+            this.decompressNanos.sum() / 1000000
+        );
+        new TreeMap<>(this.types).forEach(
+            (type, metrics) -> {
+                var summary = metrics.summary(elapsed);
+                log.info(
+                    "{}: {} docs ({} docs/s, {} bytes/s), {} rejected, {} failed, parse {} ms, bulk {} ms, latency {}",
+                    type,
+                    summary.get("docs"),
+                    summary.get("docsPerSecond"),
+                    summary.get("bytesPerSecond"),
+                    summary.get("rejected"),
+                    summary.get("failed"),
+                    summary.get("parseMillis"),
+                    summary.get("bulkMillis"),
+                    summary.get("bulkLatencyMillis")
+                );
+            }
+        );
+    }
+
+    /**
+     * All figures in a form suitable for JSON serialization.
+     */
+    public Map<String, Object> summary() {
+        long elapsed = System.currentTimeMillis() - this.start;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("elapsedMillis", elapsed);
+        result.put("archiveBytes", this.archiveBytes.get());
+        result.put("archiveBytesRead", this.archiveBytesRead.sum());
+        result.put("decompressMillis", this.decompressNanos.sum() / 1000000);
+        Map<String, Object> types = new TreeMap<>();
+        this.types.forEach((type, metrics) -> types.put(type, metrics.summary(elapsed)));
+        result.put("types", types);
+        return result;
+    }
+
+    /**
+     * Write summary to a JSON file.
+     */
+    public void writeSummary(Path file) throws IOException {
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), this.summary());
+        log.info("ingest metrics written to {}", file);
+    }
+
+}
@@ -0,0 +1,119 @@
+package tla.backend.es.repo;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Thread pools used by the {@link RepoPopulator} in pipelined mode: while the populator thread
+ * keeps decompressing and reading archive entries, a pool of workers deserializes them into
+ * model class instances, and a bounded number of bulk senders ships full batches off to
+ * Elasticsearch.
+ *
+ * Both stages are bounded, so that a slow Elasticsearch node eventually blocks the workers,
+ * and busy workers eventually block the archive reader, instead of buffering the whole
+ * corpus in memory.
+ */
+@Slf4j
+public class IngestPipeline implements AutoCloseable {
+
+    private ExecutorService workers;
+    private ExecutorService senders;
+
+    /**
+     * archived documents waiting for deserialization
+     */
+    private Semaphore workSlots;
+
+    /**
+     * bulk requests being prepared or in flight
+     */
+    private Semaphore bulkSlots;
+
+    /**
+     * keeps track of unfinished tasks of both stages
+     */
+    private Phaser pending;
+
+    public IngestPipeline(int workerThreads, int bulkSenders, int queueCapacity) {
+        this.workers = Executors.newFixedThreadPool(
+            workerThreads, daemonThreadFactory("ingest-worker-")
+        );
+        this.senders = Executors.newFixedThreadPool(
+            bulkSenders, daemonThreadFactory("ingest-bulk-")
+        );
+        this.workSlots = new Semaphore(queueCapacity);
+        this.bulkSlots = new Semaphore(bulkSenders);
+        this.pending = new Phaser(1);
+        log.info(
+            "set up ingest pipeline with {} workers and {} bulk senders",
+            workerThreads,
+            bulkSenders
+        );
+    }
+
+    private static CustomizableThreadFactory daemonThreadFactory(String prefix) {
+        var factory = new CustomizableThreadFactory(prefix);
+        factory.setDaemon(true);
+        return factory;
+    }
+
+    /**
+     * Queue a deserialization task. Blocks if the maximum number of queued documents
+     * has been reached.
+     */
+    public void process(Runnable task) throws InterruptedException {
+        submit(workers, workSlots, task);
+    }
+
+    /**
+     * Queue a bulk request. Blocks if the maximum number of concurrent bulk requests
+     * has been reached.
+     */
+    public void send(Runnable task) throws InterruptedException {
+        submit(senders, bulkSlots, task);
+    }
+
+    private void submit(ExecutorService executor, Semaphore slots, Runnable task) throws InterruptedException {
+        slots.acquire();
+        pending.register();
+        try {
+            executor.execute(
+                () -> {
+                    try {
+                        task.run();
+                    } catch (Exception e) {
+                        log.error("ingest pipeline task failed", e);
+                    } finally {
+                        slots.release();
+                        pending.arriveAndDeregister();
+                    }
+                }
+            );
+        } catch (RuntimeException e) {
+            slots.release();
+            pending.arriveAndDeregister();
+            throw e;
+        }
+    }
+
+    /**
+     * Block until all tasks submitted so far, as well as any tasks submitted by them,
+     * have completed.
+     */
+    public void await() {
+        pending.arriveAndAwaitAdvance();
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+        senders.shutdown();
+    }
+
+}
@@ -0,0 +1,199 @@
+package tla.backend.es.repo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Renames the aliased properties of a model class and of its nested objects (see
+ * {@link JsonAliases}) in a serialized JSON document without deserializing it, so that the
+ * document can be indexed as it is.
+ *
+ * The document is copied token by token. Property names listed in a {@link JsonAlias}
+ * annotation are replaced by the name of the annotated field in the index mapping (as given by
+ * its {@link org.springframework.data.elasticsearch.annotations.Field} annotation, or the
+ * field name). Nested objects and arrays are only looked into if their type has aliased
+ * properties somewhere below; everything else is copied as a whole.
+ */
+public class JsonAliasRenamer {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Property names and types of a class with aliased properties somewhere below.
+     */
+    private static class ClassProperties {
+        /**
+         * aliases mapped to the field names they stand for in the index mapping
+         */
+        private final Map<String, String> renames = new HashMap<>();
+        /**
+         * field types by any of the names their values can appear under
+         */
+        private final Map<String, Type> types = new HashMap<>();
+    }
+
+    private final Class<?> modelClass;
+
+    private final Map<Class<?>, ClassProperties> classes = new HashMap<>();
+
+    private JsonAliasRenamer(Class<?> modelClass) {
+        this.modelClass = modelClass;
+        this.collect(modelClass);
+    }
+
+    /**
+     * Create a renamer for documents of the given model class.
+     */
+    public static JsonAliasRenamer of(Class<?> modelClass) {
+        return new JsonAliasRenamer(modelClass);
+    }
+
+    /**
+     * Whether there is nothing to rename in documents of this model class.
+     */
+    public boolean isEmpty() {
+        return this.classes.isEmpty();
+    }
+
+    private void collect(Type type) {
+        Class<?> c = rawClass(type);
+        Type element = elementType(type);
+        if (element != null) {
+            this.collect(element);
+        } else if (c != null && !this.classes.containsKey(c) && !JsonAliases.of(c).isEmpty()) {
+            var properties = new ClassProperties();
+            this.classes.put(c, properties);
+            for (; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    String name = mappedName(field);
+                    properties.types.put(field.getName(), field.getGenericType());
+                    properties.types.put(name, field.getGenericType());
+                    var alias = field.getAnnotation(JsonAlias.class);
+                    if (alias != null) {
+                        for (String value : alias.value()) {
+                            properties.types.put(value, field.getGenericType());
+                            if (!value.equals(name)) {
+                                properties.renames.put(value, name);
+                            }
+                        }
+                    }
+                    this.collect(field.getGenericType());
+                }
+            }
+        }
+    }
+
+    /**
+     * Name of a field in the index mapping.
+     */
+    private static String mappedName(Field field) {
+        var mapping = field.getAnnotation(org.springframework.data.elasticsearch.annotations.Field.class);
+        if (mapping != null) {
+            if (!mapping.name().isEmpty()) {
+                return mapping.name();
+            } else if (!mapping.value().isEmpty()) {
+                return mapping.value();
+            }
+        }
+        return field.getName();
+    }
+
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return rawClass(((ParameterizedType) type).getRawType());
+        } else if (type instanceof WildcardType) {
+            Type[] bounds = ((WildcardType) type).getUpperBounds();
+            return bounds.length > 0 ? rawClass(bounds[0]) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Type of the elements of arrays and collections, or <code>null</code> if the given type is
+     * neither.
+     */
+    private static Type elementType(Type type) {
+        if (type instanceof GenericArrayType) {
+            return ((GenericArrayType) type).getGenericComponentType();
+        } else if (type instanceof Class && ((Class<?>) type).isArray()) {
+            return ((Class<?>) type).getComponentType();
+        } else if (type instanceof ParameterizedType && Collection.class.isAssignableFrom(rawClass(type))) {
+            return ((ParameterizedType) type).getActualTypeArguments()[0];
+        } else if (type instanceof WildcardType) {
+            Type[] bounds = ((WildcardType) type).getUpperBounds();
+            return bounds.length > 0 ? elementType(bounds[0]) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Whether values of the given type can contain aliased property names.
+     */
+    private boolean hasAliases(Type type) {
+        Type element = elementType(type);
+        return element != null ? this.hasAliases(element) : this.classes.containsKey(rawClass(type));
+    }
+
+    /**
+     * Copy a UTF-8 encoded JSON document with aliased property names replaced.
+     *
+     * @throws IOException if the input is not well-formed JSON
+     */
+    public byte[] rename(byte[] json) throws IOException {
+        var out = new ByteArrayOutputStream(json.length);
+        try (
+            JsonParser parser = JSON_FACTORY.createParser(json);
+            JsonGenerator generator = JSON_FACTORY.createGenerator(out)
+        ) {
+            if (parser.nextToken() != null) {
+                this.copy(parser, generator, this.modelClass);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private void copy(JsonParser parser, JsonGenerator generator, Type type) throws IOException {
+        JsonToken token = parser.currentToken();
+        Type element = elementType(type);
+        ClassProperties properties = this.classes.get(rawClass(type));
+        if (token == JsonToken.START_ARRAY && element != null && this.hasAliases(element)) {
+            generator.writeStartArray();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                this.copy(parser, generator, element);
+            }
+            generator.writeEndArray();
+        } else if (token == JsonToken.START_OBJECT && element == null && properties != null) {
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                generator.writeFieldName(properties.renames.getOrDefault(name, name));
+                parser.nextToken();
+                this.copy(parser, generator, properties.types.get(name));
+            }
+            generator.writeEndObject();
+        } else {
+            generator.copyCurrentStructure(parser);
+        }
+    }
+
+}
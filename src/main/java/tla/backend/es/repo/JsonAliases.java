@@ -0,0 +1,73 @@
+package tla.backend.es.repo;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+
+/**
+ * Finds the properties of a model class, and of the classes of its nested objects, which accept
+ * alternative names in JSON input by means of {@link JsonAlias}.
+ *
+ * Documents of such model classes can not be indexed as they were archived, because their
+ * aliased property names would end up in the index instead of the names the mapping expects.
+ * A {@link JsonAliasRenamer} replaces them.
+ */
+public class JsonAliases {
+
+    /**
+     * packages of classes whose fields are being scanned
+     */
+    private static final String MODEL_PACKAGE = "tla.";
+
+    private JsonAliases() {}
+
+    /**
+     * Returns the aliased properties as <code>Class.field</code>, or an empty set.
+     */
+    public static Set<String> of(Class<?> modelClass) {
+        Set<String> aliased = new TreeSet<>();
+        scan(modelClass, new HashSet<>(), aliased);
+        return aliased;
+    }
+
+    private static void scan(Type type, Set<Class<?>> visited, Set<String> aliased) {
+        if (type instanceof ParameterizedType) {
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                scan(argument, visited, aliased);
+            }
+            scan(((ParameterizedType) type).getRawType(), visited, aliased);
+        } else if (type instanceof GenericArrayType) {
+            scan(((GenericArrayType) type).getGenericComponentType(), visited, aliased);
+        } else if (type instanceof WildcardType) {
+            for (Type bound : ((WildcardType) type).getUpperBounds()) {
+                scan(bound, visited, aliased);
+            }
+        } else if (type instanceof Class) {
+            Class<?> c = (Class<?>) type;
+            if (c.isArray()) {
+                scan(c.getComponentType(), visited, aliased);
+            } else if (c.getName().startsWith(MODEL_PACKAGE) && visited.add(c)) {
+                for (; c != null && c != Object.class; c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        if (Modifier.isStatic(field.getModifiers())) {
+                            continue;
+                        }
+                        if (field.isAnnotationPresent(JsonAlias.class)) {
+                            aliased.add(c.getSimpleName() + "." + field.getName());
+                        }
+                        scan(field.getGenericType(), visited, aliased);
+                    }
+                }
+            }
+        }
+    }
+
+}
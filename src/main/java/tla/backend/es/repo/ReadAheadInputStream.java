@@ -0,0 +1,145 @@
+package tla.backend.es.repo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a source stream on a separate thread into a bounded queue of buffers, so that e.g. the
+ * decompression of an archive can run ahead of whatever processes its contents.
+ *
+ * The source stream is closed by the reading thread once it is exhausted, or after this stream
+ * has been closed. Anything thrown by the source (including unchecked exceptions and errors)
+ * is rethrown to the consumer after all buffers read before have been consumed; checked
+ * exceptions other than {@link IOException} are wrapped in one.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    private static final byte[] EOF = new byte[0];
+
+    private final BlockingQueue<byte[]> queue;
+    private final Thread reader;
+    private volatile Throwable failure = null;
+    private volatile boolean closed = false;
+
+    private byte[] current = null;
+    private int position = 0;
+    private boolean eof = false;
+
+    /**
+     * @param source stream to be read ahead
+     * @param buffers maximum number of buffers read ahead
+     * @param bufferSize size of each buffer in bytes
+     * @param name name of the reading thread
+     */
+    public ReadAheadInputStream(InputStream source, int buffers, int bufferSize, String name) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, buffers));
+        this.reader = new Thread(() -> this.fill(source, Math.max(1, bufferSize)), name);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    private void fill(InputStream source, int bufferSize) {
+        try (source) {
+            while (!this.closed) {
+                byte[] buffer = new byte[bufferSize];
+                int n = source.readNBytes(buffer, 0, bufferSize);
+                if (n > 0) {
+                    this.queue.put(n < bufferSize ? Arrays.copyOf(buffer, n) : buffer);
+                }
+                if (n < bufferSize) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (Throwable e) {
+            this.failure = e;
+        } finally {
+            if (!this.closed) {
+                try {
+                    this.queue.put(EOF);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Make sure there is an unconsumed buffer.
+     *
+     * @return false if source is exhausted
+     */
+    private boolean next() throws IOException {
+        if (this.eof) {
+            return false;
+        }
+        if (this.current != null && this.position < this.current.length) {
+            return true;
+        }
+        try {
+            this.current = this.queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for read-ahead buffer");
+        }
+        this.position = 0;
+        if (this.current == EOF) {
+            this.eof = true;
+            if (this.failure != null) {
+                rethrow(this.failure);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private static void rethrow(Throwable failure) throws IOException {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw new IOException("read-ahead failed", failure);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!this.next()) {
+            return -1;
+        }
+        return this.current[this.position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!this.next()) {
+            return -1;
+        }
+        int n = Math.min(length, this.current.length - this.position);
+        System.arraycopy(this.current, this.position, buffer, offset, n);
+        this.position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return this.current != null ? this.current.length - this.position : 0;
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        this.reader.interrupt();
+    }
+
+}
@@ -4,6 +4,7 @@ import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.Map;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.elasticsearch.client.RestHighLevelClient;
@@ -96,18 +97,19 @@ public class RepoConfig extends AbstractElasticsearchConfiguration {
         );
     }
 
+    /**
+     * Converts a passport into the map structure of an Elasticsearch document. The passport's
+     * JSON tokens are buffered and read into nested maps directly, without being written out
+     * as a JSON string and parsed back.
+     */
     @WritingConverter
-    @SuppressWarnings("unchecked")
     public static class PassportToMap implements Converter<Passport, Map<String, Object>> {
         private static ObjectMapper mapper = tla.domain.util.IO.getMapper();
+        private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
         @Override
         public Map<String, Object> convert(Passport source) {
             try {
-                Map<String, Object> res = mapper.readValue(
-                    mapper.writeValueAsString(source),
-                    Map.class
-                );
-                return res;
+                return mapper.convertValue(source, MAP_TYPE);
             } catch (Exception e) {
                 log.warn(
                     String.format(
@@ -1,23 +1,47 @@
 package tla.backend.es.repo;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
-import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
-import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.RestStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import tla.backend.config.ApplicationProperties;
 import tla.backend.es.model.meta.Indexable;
 import tla.backend.service.EntityService;
 import tla.backend.service.ModelClass;
@@ -53,92 +77,686 @@ import tla.domain.model.meta.AbstractBTSBaseClass;
  * bootRun --args="--date-file=sample.tar.gz --shutdown"
  * </pre>
  *
+ * The <code>--data-file</code> argument can be repeated, and it can point to a directory containing
+ * archives as well (e.g. one per document type, like <code>lemma.tar.gz</code> and
+ * <code>sentence.tar.gz</code>). Multiple archives are read in parallel.
+ * Besides gzip (including multi-member gzip as written by <code>pigz</code>), archives may be
+ * zstd compressed (<code>*.tar.zst</code>) or not compressed at all (see {@link ArchiveInput}).
+ *
+ * By default, archive entries are read, deserialized and indexed one after another. If the
+ * <code>tla.ingest.workers</code> property is set to a positive number, ingestion is
+ * pipelined instead: the populator thread only decompresses and reads archive entries, while
+ * an {@link IngestPipeline} deserializes them and sends full batches to Elasticsearch
+ * concurrently.
+ *
+ * <pre>
+ * bootRun --args="--data-file=sample.tar.gz --tla.ingest.workers=4 --shutdown"
+ * </pre>
+ *
+ * With <code>tla.ingest.raw</code> enabled, archived documents are not deserialized at all,
+ * but sent to the Elasticsearch <code>_bulk</code> API byte for byte, with only their IDs being
+ * extracted by a {@link DocumentIdExtractor}. This skips entity conversion and Spring Data's
+ * <code>BeforeConvertCallback</code> hooks, so it is only suitable for archives whose documents
+ * already match the index mappings (property names, date formats). Alternative property names
+ * accepted by model classes (see {@link JsonAliases}) are replaced on the fly by a
+ * {@link JsonAliasRenamer}, which streams the document without deserializing it. Set <code>tla.ingest.validate</code> to have each document checked against its
+ * model class anyway.
+ *
+ * If <code>tla.ingest.aliases</code> is enabled, documents do not go into the live indices,
+ * but into a new generation of physical indices managed by {@link IndexGenerations}. Once the
+ * archive has been processed completely and all batch ingestors have been flushed, the index
+ * names used by the rest of the application are switched over to the new indices as aliases in a
+ * single atomic operation. Only aliases of document types actually present in the archive are
+ * switched. If any documents could not be indexed, the aliases are left alone, and the
+ * incomplete generation can be completed by ingesting again with <code>--resume</code>.
+ *
+ * Unless <code>tla.ingest.bulk-profile</code> is disabled, target indices are switched to a
+ * {@link BulkLoadProfile} for the duration of the ingest, and back to their serving settings
+ * once all batches have been flushed. With <code>tla.ingest.force-merge</code> set to a positive
+ * number, they are force-merged afterwards as well. The serving settings are recorded in the
+ * checkpoint files first, so that the next ingest can restore them if this one gets killed.
+ *
+ * Progress is recorded in an {@link IngestCheckpoint} file next to the archive (or at
+ * <code>tla.ingest.checkpoint</code>) while ingesting, and removed once the archive has been
+ * ingested completely. Failed bulk requests are retried with exponential backoff
+ * (<code>tla.ingest.retries</code>, <code>tla.ingest.retry-backoff</code>). If retries run
+ * out for any batch, its archive entries are not committed, the checkpoint files are kept, and
+ * the ingest ends with an error. If ingest is aborted like that or otherwise, pass the
+ * <code>--resume</code> flag to skip all archive entries committed before:
+ *
+ * <pre>
+ * bootRun --args="--data-file=sample.tar.gz --resume --shutdown"
+ * </pre>
+ *
+ * In delta mode (<code>tla.ingest.delta</code>), documents are written to the live indices,
+ * but only if they differ from what is indexed already (see {@link DeltaFilter}). With
+ * <code>full</code>, the archive is expected to contain the entire corpus, and indexed documents
+ * not found in it are deleted afterwards. With <code>changes</code>, the archive only contains
+ * modified documents, and a file named <code>_deleted</code> in a document type directory
+ * can list the IDs of documents to be deleted, one per line.
+ *
+ * <pre>
+ * bootRun --args="--data-file=changes.tar.gz --tla.ingest.delta=changes --shutdown"
+ * </pre>
+ *
  */
 @Slf4j
 public class RepoPopulator {
 
+    /**
+     * upper limit for waiting periods between retries of failed bulk requests (ms)
+     */
+    final static long MAX_RETRY_BACKOFF = 30000;
+
+    /**
+     * file name endings of archives picked up from directories
+     */
+    final static List<String> ARCHIVE_EXTENSIONS = List.of(".tar.gz", ".tgz", ".tar.zst", ".tzst", ".tar");
+
+    /**
+     * Action sent to Elasticsearch which can be retried.
+     */
+    private interface BulkAction {
+        void run() throws Exception;
+    }
+
+    /**
+     * Documents waiting to be indexed together, along with the keys of the archive
+     * entries they came from (or <code>-1</code>).
+     *
+     * @see ArchiveReader#entryKey(int, int)
+     */
+    private static class Batch<T> {
+        final List<T> docs = new ArrayList<>();
+        final List<Long> entries = new ArrayList<>();
+        long bytes = 0;
+
+        void add(T doc, long entry) {
+            this.add(doc, entry, 0);
+        }
+
+        void add(T doc, long entry, long bytes) {
+            this.docs.add(doc);
+            this.entries.add(entry);
+            this.bytes += bytes;
+        }
+
+        int size() {
+            return this.docs.size();
+        }
+
+        boolean isEmpty() {
+            return this.docs.isEmpty();
+        }
+    }
+
     /**
      * Batch indexer capable of deserializing JSON strings into instances of the
-     * model class it typed for.
+     * model class it typed for. Batches are sent once the serialized size of their documents
+     * reaches the limit determined by the ingestor's {@link BatchSizer}.
      */
     protected class RepoBatchIngestor<S extends Indexable> {
 
-        final static int MAX_BATCH_SIZE = 750;
+        /**
+         * upper limit for the number of documents in a batch, regardless of their size
+         */
+        final static int MAX_BATCH_SIZE = 10000;
 
-        private List<S> batch;
+        /**
+         * size assumed for documents added without their serialized form
+         */
+        final static int DEFAULT_DOC_BYTES = 1024;
+
+        private Batch<S> batch;
+        private Batch<IndexRequest> rawBatch;
         @Getter private EntityService<S,?,?> service;
         private Class<S> modelClass;
         private String path;
-        private int count;
+        /**
+         * index name specified by the model class
+         */
+        private String alias;
+        /**
+         * index documents are being written to
+         */
+        private String index;
+        private AtomicInteger count;
+        private volatile boolean used = false;
+
+        /**
+         * comparison with indexed documents in delta mode
+         */
+        private DeltaFilter delta = null;
+        private AtomicInteger unchanged = new AtomicInteger();
+        private AtomicInteger deleted = new AtomicInteger();
+        /**
+         * documents which could not be indexed before retries ran out, and whose archive
+         * entries have therefore not been committed
+         */
+        private AtomicInteger lost = new AtomicInteger();
 
-        private ObjectMapper jsonMapper = new ObjectMapper();
+        private ObjectReader jsonReader;
+        private DocumentIdExtractor idExtractor;
+        private BatchSizer sizer;
+        /**
+         * whether archived documents are indexed without being deserialized
+         */
+        private boolean raw;
+        /**
+         * replaces aliased property names in raw documents, if the model class has any
+         */
+        private JsonAliasRenamer renamer = null;
 
         public RepoBatchIngestor(EntityService<S,?,?> service) {
             this.service = service;
             this.modelClass = service.getModelClass();
             this.path = getModelClassServicePath(service);
-            this.batch = new ArrayList<>();
-            this.count = 0;
+            this.batch = new Batch<>();
+            this.rawBatch = new Batch<>();
+            this.count = new AtomicInteger();
+            this.jsonReader = new ObjectMapper().readerFor(this.modelClass);
+            this.idExtractor = DocumentIdExtractor.of(this.modelClass);
+            this.alias = operations != null ? operations.getIndexCoordinatesFor(this.modelClass).getIndexName() : null;
+            this.index = this.alias;
+            var ingestProperties = getIngestProperties();
+            this.raw = ingestProperties.isRaw();
+            if (this.raw) {
+                var renamer = JsonAliasRenamer.of(this.modelClass);
+                if (!renamer.isEmpty()) {
+                    log.info(
+                        "rename aliased properties {} in raw documents of model class {}",
+                        JsonAliases.of(this.modelClass),
+                        this.modelClass.getName()
+                    );
+                    this.renamer = renamer;
+                }
+            }
+            this.sizer = new BatchSizer(
+                ingestProperties.getBatchMinBytes(),
+                ingestProperties.getBatchMaxBytes(),
+                ingestProperties.getBatchInitialBytes(),
+                ingestProperties.getBatchTargetLatency()
+            );
             log.info("set up batch ingestor for model class {}", modelClass.getName());
         }
 
         public void add(S doc) {
-            this.batch.add(doc);
-            if (this.batch.size() >= MAX_BATCH_SIZE) {
-                this.ingest();
+            this.add(doc, -1, DEFAULT_DOC_BYTES);
+        }
+
+        private void add(S doc, long entry, long bytes) {
+            Batch<S> full = null;
+            synchronized (this) {
+                this.batch.add(doc, entry, bytes);
+                if (this.isFull(this.batch)) {
+                    full = this.takeBatch();
+                }
+            }
+            if (full != null) {
+                this.ingest(full);
             }
         }
 
         /**
          * Deserialize a domain model entity from a JSON string and either cache it for later, or batch-index it along all
-         * other cached entities in case their number exceeds the threshold defined in {@link #MAX_BATCH_SIZE}.
+         * other cached entities in case their size exceeds the current limit.
          *
          * @see #ingest()
          */
         public void add(String json) {
+            this.add(json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Deserialize a domain model entity from UTF-8 encoded JSON and add it to the batch,
+         * or, in raw mode, add the JSON document itself.
+         *
+         * @see #add(String)
+         */
+        public void add(byte[] json) {
+            this.add(json, -1);
+        }
+
+        /**
+         * Add a document read from the archive entry at the given position.
+         */
+        void add(byte[] json, long entry) {
+            this.used = true;
             try {
-                S doc = jsonMapper.readValue(
-                    json,
-                    this.modelClass
-                );
-                this.add(doc);
+                if (this.raw) {
+                    this.addRaw(json, entry);
+                } else {
+                    long start = System.nanoTime();
+                    S doc = jsonReader.readValue(json);
+                    this.stats().parsed(json.length, System.nanoTime() - start);
+                    this.add(doc, entry, json.length);
+                }
             } catch (IOException e) {
                 log.warn(
                     String.format(
                         "ingestor could not instantiate %s class from %s",
                         this.modelClass.getName(),
-                        json
+                        new String(json, StandardCharsets.UTF_8)
                     ),
                     e
                 );
+                this.stats().failed(1);
+                skipSweep("could not deserialize all archived documents");
+                complete(entry, null);
             }
         }
 
+        /**
+         * Figures of this ingestor's document type in the current ingest run.
+         */
+        private IngestMetrics.TypeMetrics stats() {
+            return metrics.of(this.modelClass.getSimpleName());
+        }
+
+        /**
+         * Wrap JSON document into an index request without deserializing it, and add that
+         * to the raw batch.
+         */
+        private void addRaw(byte[] json, long entry) throws IOException {
+            long start = System.nanoTime();
+            String id = this.idExtractor.extract(json);
+            if (id == null) {
+                log.warn(
+                    "{} ingestor could not find ID in {}",
+                    this.modelClass.getSimpleName(),
+                    new String(json, StandardCharsets.UTF_8)
+                );
+                this.stats().failed(1);
+                skipSweep("could not find IDs of all archived documents");
+                complete(entry, null);
+                return;
+            }
+            if (getIngestProperties().isValidate()) {
+                jsonReader.readValue(json);
+            }
+            byte[] source = this.renamer != null ? this.renamer.rename(json) : json;
+            this.stats().parsed(json.length, System.nanoTime() - start);
+            Batch<IndexRequest> full = null;
+            synchronized (this) {
+                this.rawBatch.add(
+                    new IndexRequest(this.index).id(id).source(source, XContentType.JSON),
+                    entry,
+                    json.length
+                );
+                if (this.isFull(this.rawBatch)) {
+                    full = this.takeRawBatch();
+                }
+            }
+            if (full != null) {
+                this.ingestRaw(full);
+            }
+        }
+
+        private boolean isFull(Batch<?> batch) {
+            return batch.bytes >= this.sizer.getLimit() || batch.size() >= MAX_BATCH_SIZE;
+        }
+
+        /**
+         * replace current batch with an empty one and return it.
+         */
+        private synchronized Batch<S> takeBatch() {
+            Batch<S> full = this.batch;
+            this.batch = new Batch<>();
+            return full;
+        }
+
+        private synchronized Batch<IndexRequest> takeRawBatch() {
+            Batch<IndexRequest> full = this.rawBatch;
+            this.rawBatch = new Batch<>();
+            return full;
+        }
+
         /**
          * Get the {@link EntityService} instance of which the {@link ModelClass} annotation specifies the
          * same model class as this batch indexer is typed for, and uses that service's {@link ElasticsearchRepository}
          * to batch-index all entities currently in the cache.
          */
         public void ingest() {
+            Batch<S> rest = this.takeBatch();
+            if (!rest.isEmpty()) {
+                this.ingest(rest);
+            }
+            Batch<IndexRequest> rawRest = this.takeRawBatch();
+            if (!rawRest.isEmpty()) {
+                this.ingestRaw(rawRest);
+            }
+        }
+
+        /**
+         * Index a full batch, either right away or, in pipelined mode, by handing it over
+         * to one of the pipeline's bulk senders.
+         */
+        private void ingest(Batch<S> docs) {
+            this.dispatch(() -> this.save(docs), docs.size());
+        }
+
+        private void ingestRaw(Batch<IndexRequest> requests) {
+            this.dispatch(() -> this.send(requests), requests.size());
+        }
+
+        private void dispatch(Runnable bulk, int size) {
+            if (pipeline != null) {
+                try {
+                    pipeline.send(bulk);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.error(
+                        "{} ingestor interrupted while waiting for bulk sender. {} docs lost!",
+                        this.modelClass.getSimpleName(),
+                        size
+                    );
+                    this.lost.addAndGet(size);
+                }
+            } else if (bulkSlots != null) {
+                try {
+                    bulkSlots.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.error(
+                        "{} ingestor interrupted while waiting for bulk slot. {} docs lost!",
+                        this.modelClass.getSimpleName(),
+                        size
+                    );
+                    this.lost.addAndGet(size);
+                    return;
+                }
+                try {
+                    bulk.run();
+                } finally {
+                    bulkSlots.release();
+                }
+            } else {
+                bulk.run();
+            }
+        }
+
+        /**
+         * In delta mode, remove documents from a batch which are indexed in the same version already.
+         *
+         * @param id document ID getter
+         * @param json serializer producing the JSON document as it would be indexed
+         */
+        private <T> Batch<T> changedOnly(Batch<T> batch, Function<T, String> id, Function<T, byte[]> json) {
+            if (this.delta == null) {
+                return batch;
+            }
+            List<String> ids = new ArrayList<>();
+            List<byte[]> docs = new ArrayList<>();
+            for (T doc : batch.docs) {
+                ids.add(id.apply(doc));
+                docs.add(json.apply(doc));
+            }
+            var seenIds = seen;
+            if (seenIds != null) {
+                if (ids.contains(null)) {
+                    skipSweep("archived documents without ID");
+                } else {
+                    seenIds.computeIfAbsent(this.index, k -> ConcurrentHashMap.newKeySet()).addAll(ids);
+                }
+            }
+            boolean[] changed;
             try {
-                (
-                    (ElasticsearchRepository<S, String>) service.getRepo()
-                ).saveAll(this.batch);
-                this.count += this.batch.size();
-                this.batch.clear();
-            } catch (Exception e) {
+                changed = this.delta.changed(ids, docs);
+            } catch (IOException e) {
+                log.warn(
+                    "{} ingestor could not compare {} docs with index, sending all of them: {}",
+                    this.modelClass.getSimpleName(),
+                    ids.size(),
+                    e.getMessage()
+                );
+                return batch;
+            }
+            Batch<T> result = new Batch<>();
+            for (int i = 0; i < changed.length; i++) {
+                if (changed[i]) {
+                    result.add(batch.docs.get(i), batch.entries.get(i));
+                } else {
+                    this.unchanged.incrementAndGet();
+                    complete(batch.entries.get(i), this.path);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Delete documents listed in an archive file in delta mode.
+         */
+        private void delete(List<String> ids) {
+            try {
+                this.deleted.addAndGet(this.delta.delete(ids));
+            } catch (IOException e) {
                 log.warn(
                     String.format(
-                        "%s ingestor could not save %d docs (%s)! Trying again...",
+                        "%s ingestor could not delete %d docs (%s)!",
                         this.modelClass.getSimpleName(),
-                        this.batch.size(),
-                        e.getClass().getSimpleName()
+                        ids.size(),
+                        e.getMessage()
                     )
                 );
             }
         }
+
+        @SuppressWarnings("unchecked")
+        private void save(Batch<S> batch) {
+            Batch<S> docs = this.changedOnly(
+                batch,
+                S::getId,
+                doc -> operations.getElasticsearchConverter().mapObject(doc).toJson().getBytes(StandardCharsets.UTF_8)
+            );
+            if (docs.isEmpty()) {
+                return;
+            }
+            boolean saved = this.retrying(
+                docs.size(),
+                () -> {
+                    if (generations != null) {
+                        operations.save(docs.docs, IndexCoordinates.of(this.index));
+                    } else {
+                        (
+                            (ElasticsearchRepository<S, String>) service.getRepo()
+                        ).saveAll(docs.docs);
+                    }
+                }
+            );
+            if (saved) {
+                this.stats().indexed(docs.size());
+                this.count.addAndGet(docs.size());
+                docs.entries.forEach(entry -> complete(entry, this.path));
+            } else {
+                this.stats().failed(docs.size());
+                this.lost.addAndGet(docs.size());
+            }
+        }
+
+        /**
+         * Send a batch of raw JSON documents to the <code>_bulk</code> API. Documents rejected
+         * because Elasticsearch is too busy are sent again, other failures are only reported.
+         */
+        private void send(Batch<IndexRequest> batch) {
+            Batch<IndexRequest> requests = this.changedOnly(
+                batch,
+                IndexRequest::id,
+                request -> BytesReference.toBytes(request.source())
+            );
+            if (requests.isEmpty()) {
+                return;
+            }
+            AtomicReference<Batch<IndexRequest>> pending = new AtomicReference<>(requests);
+            boolean sent = this.retrying(
+                requests.size(),
+                () -> {
+                    Batch<IndexRequest> current = pending.get();
+                    BulkRequest bulk = new BulkRequest();
+                    current.docs.forEach(bulk::add);
+                    BulkResponse response = restClient.bulk(bulk, RequestOptions.DEFAULT);
+                    Batch<IndexRequest> rejected = new Batch<>();
+                    int failed = 0;
+                    int indexed = 0;
+                    for (BulkItemResponse item : response.getItems()) {
+                        int i = item.getItemId();
+                        if (!item.isFailed()) {
+                            indexed++;
+                            complete(current.entries.get(i), this.path);
+                        } else if (item.status() == RestStatus.TOO_MANY_REQUESTS) {
+                            rejected.add(current.docs.get(i), current.entries.get(i));
+                        } else {
+                            failed++;
+                            complete(current.entries.get(i), null);
+                        }
+                    }
+                    this.count.addAndGet(indexed);
+                    this.stats().indexed(indexed);
+                    this.stats().failed(failed);
+                    if (failed > 0) {
+                        log.warn(
+                            "{} ingestor: {} of {} docs rejected: {}",
+                            this.modelClass.getSimpleName(),
+                            failed,
+                            current.size(),
+                            response.buildFailureMessage()
+                        );
+                    }
+                    pending.set(rejected);
+                    if (!rejected.isEmpty()) {
+                        this.stats().rejected(rejected.size());
+                        this.sizer.rejected();
+                        throw new IllegalStateException(
+                            String.format("%d docs rejected by busy cluster", rejected.size())
+                        );
+                    }
+                }
+            );
+            if (!sent) {
+                this.stats().failed(pending.get().size());
+                this.lost.addAndGet(pending.get().size());
+            }
+        }
+
+        /**
+         * Run a bulk action, and run it again after increasing waiting periods if it fails,
+         * until it succeeds or the maximum number of retries is exhausted. Lets the batch sizer
+         * know how long the action took or whether it was rejected, and records its duration.
+         *
+         * @return whether the action eventually succeeded
+         */
+        private boolean retrying(int size, BulkAction action) {
+            var ingestProperties = getIngestProperties();
+            long backoff = Math.max(1, ingestProperties.getRetryBackoff());
+            for (int attempt = 0; ; attempt++) {
+                long start = System.nanoTime();
+                try {
+                    action.run();
+                    long nanos = System.nanoTime() - start;
+                    this.stats().bulk(nanos);
+                    this.sizer.completed(nanos / 1000000);
+                    return true;
+                } catch (Exception e) {
+                    this.stats().bulk(System.nanoTime() - start);
+                    if (BatchSizer.isRejection(e)) {
+                        this.stats().rejected(size);
+                        this.sizer.rejected();
+                    }
+                    if (attempt >= ingestProperties.getRetries()) {
+                        log.error(
+                            String.format(
+                                "%s ingestor could not save %d docs after %d attempts. Docs lost!",
+                                this.modelClass.getSimpleName(),
+                                size,
+                                attempt + 1
+                            ),
+                            e
+                        );
+                        return false;
+                    }
+                    log.warn(
+                        String.format(
+                            "%s ingestor could not save %d docs (%s)! Trying again in %d ms...",
+                            this.modelClass.getSimpleName(),
+                            size,
+                            e.getMessage(),
+                            backoff
+                        )
+                    );
+                    try {
+                        Thread.sleep(backoff);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                    backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF);
+                }
+            }
+        }
+
+        /**
+         * Make documents sent in raw mode, into a new index generation, or into an index in
+         * bulk-load profile visible to search.
+         */
+        private void refresh() {
+            if (this.index != null && this.used) {
+                try {
+                    restClient.indices().refresh(new RefreshRequest(this.index), RequestOptions.DEFAULT);
+                } catch (Exception e) {
+                    log.warn("could not refresh index {}: {}", this.index, e.getMessage());
+                }
+            }
+        }
     }
 
+    @Autowired
+    private ApplicationProperties properties;
+
+    @Autowired
+    private ElasticsearchOperations operations;
+
+    @Autowired
+    private RestHighLevelClient restClient;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * concurrent deserialization and bulk indexing, if configured
+     */
+    private IngestPipeline pipeline = null;
+
+    /**
+     * new generation of physical indices, if configured
+     */
+    private IndexGenerations generations = null;
+
+    /**
+     * settings of target indices during ingest, if configured
+     */
+    private BulkLoadProfile bulkLoadProfile = null;
+
+    private long ingestStart;
+
+    /**
+     * throughput figures of the current ingest run
+     */
+    private IngestMetrics metrics = new IngestMetrics();
+
+    /**
+     * progress of the archives currently being ingested
+     */
+    private List<IngestCheckpoint> checkpoints = null;
+
+    /**
+     * limits the number of concurrent bulk requests if not in pipelined mode
+     */
+    private Semaphore bulkSlots = null;
+
+    /**
+     * IDs of all archived documents by index, in full delta mode
+     */
+    private volatile Map<String, Set<String>> seen = null;
+
     /**
      * batch indexer registry
      */
@@ -198,52 +816,412 @@ public class RepoPopulator {
     }
 
     /**
-     * Indexes all documents inside a <code>*.tar.gz</code> file at the specified location.
-     * @param filenames List of length 1
+     * Indexes all documents inside the <code>*.tar.gz</code> files at the specified locations.
+     * @param filenames archive files or directories containing archive files
      * @throws IOException
      * @see {@link #init()}
      */
     public void ingestTarFile(List<String> filenames) throws Exception {
+        this.ingestTarFile(filenames, false);
+    }
+
+    /**
+     * Indexes all documents inside the <code>*.tar.gz</code> files at the specified locations,
+     * while keeping a checkpoint file up to date for each of them. If <code>resume</code> is set,
+     * archive entries already committed according to existing checkpoint files are skipped.
+     *
+     * Locations can be archive files or directories containing archive files (e.g. one per
+     * document type). Multiple archives are read concurrently, each on its own thread
+     * (up to <code>tla.ingest.archive-readers</code>), while sharing batch ingestors and the
+     * limit on concurrent bulk requests.
+     *
+     * @param filenames archive files or directories
+     * @param resume whether to continue where an earlier ingest of the same archives left off
+     * @throws FileNotFoundException if any of the locations does not exist
+     * @see #ingestTarFile(List)
+     */
+    public void ingestTarFile(List<String> filenames, boolean resume) throws Exception {
         log.info("process tar file {}", String.join(", ", filenames));
-        if (filenames.size() == 1) {
-            String filename = filenames.get(0);
-            try (
-                TarArchiveInputStream input = new TarArchiveInputStream(
-                    new GzipCompressorInputStream(
-                        new FileInputStream(filename)
+        int lost = 0;
+        List<File> archives = collectArchives(filenames);
+        var ingestProperties = this.getIngestProperties();
+        if (ingestProperties.getWorkers() > 0) {
+            this.pipeline = new IngestPipeline(
+                ingestProperties.getWorkers(),
+                Math.max(1, ingestProperties.getBulkSenders()),
+                Math.max(1, ingestProperties.getQueueCapacity())
+            );
+        }
+        this.bulkSlots = new Semaphore(Math.max(1, ingestProperties.getBulkSenders()));
+        this.metrics = new IngestMetrics();
+        this.metrics.startReporting(ingestProperties.getMetricsInterval());
+        try {
+            List<IngestCheckpoint> checkpoints = new ArrayList<>();
+            for (File archive : archives) {
+                checkpoints.add(
+                    IngestCheckpoint.open(
+                        this.getCheckpointFile(archive, archives.size() == 1), archive, resume,
+                        ingestProperties.getCheckpointInterval() * 1000L
                     )
-                )
-            ) {
-                processTarArchive(input);
-            } catch (FileNotFoundException e) {
-                log.error(
-                    String.format("file not found: %s", filename),
-                    e
                 );
-                throw e;
+            }
+            this.checkpoints = List.copyOf(checkpoints);
+            if (ingestProperties.getDelta() != ApplicationProperties.DeltaMode.OFF) {
+                this.prepareDelta(ingestProperties.getDelta());
+            } else if (ingestProperties.isAliases()) {
+                String release = ingestProperties.getRelease();
+                for (IngestCheckpoint checkpoint : checkpoints) {
+                    if (resume && checkpoint.getRelease() != null) {
+                        release = checkpoint.getRelease();
+                    }
+                }
+                this.prepareGeneration(ingestProperties, release);
+                checkpoints.forEach(checkpoint -> checkpoint.setRelease(this.generations.getRelease()));
+            }
+            this.ingestStart = System.currentTimeMillis();
+            this.applyBulkLoadProfile(
+                ingestProperties.isBulkProfile() && ingestProperties.getDelta() == ApplicationProperties.DeltaMode.OFF
+            );
+            boolean complete = this.readArchives(archives);
+            if (!complete) {
+                this.seen = null;
+            }
+            this.flushIngestors();
+            lost = this.countLostDocs();
+            String release = complete && lost == 0 && this.generations != null ? this.generations.getRelease() : null;
+            if (complete) {
+                if (lost == 0) {
+                    this.commitGeneration();
+                } else if (this.generations != null) {
+                    log.error(
+                        "index generation {} incomplete, aliases not switched over to it",
+                        this.generations.getRelease()
+                    );
+                }
+                for (IngestCheckpoint checkpoint : checkpoints) {
+                    if (lost > 0) {
+                        log.error("keep ingest checkpoint for resuming: {}", checkpoint);
+                    } else if (checkpoint.getServing().isEmpty()) {
+                        checkpoint.delete();
+                    } else {
+                        log.warn("keep ingest checkpoint with serving settings of indices {}", checkpoint.getServing().keySet());
+                    }
+                }
+            }
+            if (this.eventPublisher != null) {
+                this.eventPublisher.publishEvent(new CorpusIngestedEvent(this, release));
+            }
+        } catch (IOException e) {
+            log.error(
+                String.format("error during processing tar archives %s", archives),
+                e
+            );
+        } finally {
+            this.closePipeline();
+            this.restoreServingProfile();
+            this.generations = null;
+            this.checkpoints = null;
+            this.bulkSlots = null;
+            this.seen = null;
+            this.reportMetrics();
+        }
+        repoIngestors.clear();
+        if (lost > 0) {
+            throw new IllegalStateException(
+                String.format("%d documents could not be indexed, ingest again with --resume", lost)
+            );
+        }
+    }
+
+    /**
+     * Sum up the documents of all batch ingestors which could not be indexed because
+     * retries ran out, and report them by document type.
+     */
+    private int countLostDocs() {
+        int lost = 0;
+        for (RepoBatchIngestor<? extends Indexable> ingestor : this.repoIngestors.values()) {
+            int count = ingestor.lost.get();
+            if (count > 0) {
+                log.error("{} documents of type {} could not be indexed", count, ingestor.modelClass.getSimpleName());
+                lost += count;
+            }
+        }
+        return lost;
+    }
+
+    /**
+     * Stop periodic metrics logging, log final figures and write them to the configured
+     * summary file.
+     */
+    private void reportMetrics() {
+        this.metrics.stopReporting();
+        this.metrics.log();
+        String file = this.getIngestProperties().getMetricsFile();
+        if (file != null && !file.isBlank()) {
+            try {
+                this.metrics.writeSummary(Path.of(file));
             } catch (IOException e) {
+                log.warn("could not write ingest metrics to {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Resolve locations to archive files. Directories are searched for archive files
+     * (non-recursively).
+     */
+    static List<File> collectArchives(List<String> filenames) throws FileNotFoundException {
+        List<File> archives = new ArrayList<>();
+        for (String filename : filenames) {
+            File file = new File(filename);
+            if (file.isDirectory()) {
+                File[] contents = file.listFiles(
+                    (dir, name) -> ARCHIVE_EXTENSIONS.stream().anyMatch(name::endsWith)
+                );
+                if (contents == null || contents.length < 1) {
+                    log.warn("no archives found in directory {}", filename);
+                } else {
+                    Arrays.sort(contents);
+                    archives.addAll(List.of(contents));
+                }
+            } else if (file.isFile()) {
+                archives.add(file);
+            } else {
+                var e = new FileNotFoundException(filename);
                 log.error(
-                    String.format("error during processing tar archive %s", filename),
+                    String.format("file not found: %s", filename),
                     e
                 );
+                throw e;
             }
         }
-        repoIngestors.clear();
+        return archives;
+    }
+
+    /**
+     * Read all archives, concurrently if there is more than one.
+     *
+     * @return whether all archives have been read completely
+     */
+    private boolean readArchives(List<File> archives) throws InterruptedException {
+        return ArchiveReader.readAll(
+            archives,
+            this.checkpoints,
+            this.getIngestProperties().getArchiveReaders(),
+            archive -> ArchiveInput.open(archive, this.metrics, getIngestProperties()),
+            new ArchiveReader.Sink() {
+                @Override
+                public boolean add(String type, byte[] json, long entry) {
+                    var ingestor = repoIngestors.get(type);
+                    if (ingestor == null) {
+                        return false;
+                    }
+                    addToBatch(ingestor, json, entry);
+                    return true;
+                }
+                @Override
+                public void delete(String type, List<String> ids) {
+                    processDeletedList(type, ids);
+                }
+                @Override
+                public void incomplete(String reason) {
+                    skipSweep(reason);
+                }
+            }
+        );
     }
 
     /**
-     * Tries to get a document type identifier out of an archived item's path,
-     * which is the hindmost path segment for directories, and the second path segment from the end
-     * for file entries.
+     * Create a new generation of physical indices and point all batch ingestors to them.
+     */
+    private void prepareGeneration(ApplicationProperties.IngestProperties ingestProperties, String release) {
+        this.generations = new IndexGenerations(
+            operations, restClient, release, ingestProperties.isKeepPrevious()
+        );
+        log.info("ingest into new index generation {}", this.generations.getRelease());
+        for (RepoBatchIngestor<? extends Indexable> ingestor : this.repoIngestors.values()) {
+            ingestor.index = this.generations.create(ingestor.modelClass);
+        }
+    }
+
+    /**
+     * Set up batch ingestors to compare documents with their indexed versions before sending them.
+     */
+    private void prepareDelta(ApplicationProperties.DeltaMode mode) {
+        if (this.getIngestProperties().isAliases()) {
+            log.warn("delta ingest writes into live indices, ignoring index alias configuration");
+        }
+        log.info("delta ingest ({})", mode);
+        for (RepoBatchIngestor<? extends Indexable> ingestor : this.repoIngestors.values()) {
+            ingestor.delta = new DeltaFilter(restClient, ingestor.index);
+        }
+        if (mode == ApplicationProperties.DeltaMode.FULL) {
+            this.seen = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * In full delta mode, stop collecting the IDs of archived documents, so that no indexed
+     * documents get deleted afterwards. Needed whenever an archived document could not be
+     * identified, because its indexed version would be taken for obsolete otherwise.
+     */
+    private void skipSweep(String reason) {
+        if (this.seen != null) {
+            log.warn("{}, skip deleting documents not in archive", reason);
+            this.seen = null;
+        }
+    }
+
+    /**
+     * In full delta mode, delete indexed documents which have not been in the archive.
+     */
+    private void sweepIndices() {
+        if (this.seen == null) {
+            return;
+        }
+        for (var e : this.seen.entrySet()) {
+            try {
+                int deleted = new DeltaFilter(restClient, e.getKey()).sweep(e.getValue());
+                log.info("deleted {} documents not in archive from index {}", deleted, e.getKey());
+            } catch (IOException ex) {
+                log.error(String.format("could not delete obsolete documents from index %s", e.getKey()), ex);
+            }
+        }
+    }
+
+    /**
+     * Switch all target indices to bulk-load settings, after recording their serving settings
+     * in the checkpoint files. Indices left in bulk-load profile by an interrupted earlier
+     * ingest, as recorded in its checkpoint files, are switched back along with the target
+     * indices, or right away if no bulk-load profile is to be applied.
      *
-     * @return path segment thought to represent a doctype
-     */
-    private String extractDocTypeFromPath(TarArchiveEntry archiveEntry) {
-        String[] segments = archiveEntry.getName().split("/");
-        int segmentOffset = archiveEntry.isDirectory() ? 1 : 2;
-        return segments[
-            segments.length - segmentOffset
-        ];
+     * @param bulkLoad whether to switch target indices to bulk-load settings
+     */
+    private void applyBulkLoadProfile(boolean bulkLoad) throws IOException {
+        Map<String, Map<String, String>> recorded = new LinkedHashMap<>();
+        for (IngestCheckpoint checkpoint : this.checkpoints) {
+            recorded.putAll(checkpoint.getServing());
+        }
+        var profile = new BulkLoadProfile(restClient, recorded);
+        if (!bulkLoad) {
+            if (profile.isApplied()) {
+                log.warn("restore serving settings of indices {} left in bulk-load profile", recorded.keySet());
+                profile.restore();
+                this.recordServingSettings(Map.of());
+            }
+            return;
+        }
+        List<String> indices = new ArrayList<>();
+        for (RepoBatchIngestor<? extends Indexable> ingestor : this.repoIngestors.values()) {
+            if (ingestor.index != null) {
+                indices.add(ingestor.index);
+            }
+        }
+        this.recordServingSettings(profile.capture(indices));
+        this.bulkLoadProfile = profile;
+        profile.apply(indices);
+    }
+
+    /**
+     * Write serving settings of indices in bulk-load profile to all checkpoint files, so that
+     * they can be restored even if this JVM does not get to do it.
+     */
+    private void recordServingSettings(Map<String, Map<String, String>> serving) throws IOException {
+        var checkpoints = this.checkpoints;
+        if (checkpoints == null) {
+            return;
+        }
+        for (IngestCheckpoint checkpoint : checkpoints) {
+            checkpoint.setServing(serving);
+            checkpoint.save();
+        }
+    }
+
+    /**
+     * Put target indices back to their serving settings, force-merge them if configured,
+     * and report how long all that took. Does nothing if no bulk-load profile is applied.
+     */
+    private void restoreServingProfile() {
+        if (this.bulkLoadProfile == null) {
+            return;
+        }
+        var profile = this.bulkLoadProfile;
+        this.bulkLoadProfile = null;
+        try {
+            long loaded = System.currentTimeMillis();
+            var indices = profile.restore();
+            long restored = System.currentTimeMillis();
+            this.recordServingSettings(Map.of());
+            int maxSegments = this.getIngestProperties().getForceMerge();
+            if (maxSegments > 0) {
+                profile.forceMerge(indices, maxSegments);
+            }
+            long merged = System.currentTimeMillis();
+            log.info(
+                "bulk load: {} ms, restoring serving settings: {} ms, force-merge: {} ms",
+                loaded - this.ingestStart,
+                restored - loaded,
+                merged - restored
+            );
+        } catch (IOException e) {
+            log.error("could not restore serving settings of ingested indices", e);
+        }
+    }
+
+    /**
+     * Switch the aliases of all document types found in the archive over to the new
+     * index generation.
+     */
+    private void commitGeneration() throws IOException {
+        if (this.generations == null) {
+            return;
+        }
+        Set<String> aliases = new LinkedHashSet<>();
+        for (RepoBatchIngestor<? extends Indexable> ingestor : this.repoIngestors.values()) {
+            if (ingestor.used) {
+                aliases.add(ingestor.alias);
+            }
+        }
+        this.generations.swap(aliases);
+    }
+
+    /**
+     * Returns the <code>tla.ingest</code> configuration, or the defaults if the populator
+     * has not been created by the application context.
+     */
+    protected ApplicationProperties.IngestProperties getIngestProperties() {
+        return this.properties != null ? this.properties.getIngest() : new ApplicationProperties.IngestProperties();
+    }
+
+    /**
+     * Location of the checkpoint file for an archive: either as configured (if it is the only
+     * archive being ingested), or next to the archive.
+     */
+    private Path getCheckpointFile(File archive, boolean single) {
+        String configured = this.getIngestProperties().getCheckpoint();
+        return Path.of(
+            (single && configured != null && !configured.isBlank()) ? configured : archive.getPath() + ".checkpoint"
+        );
+    }
+
+    /**
+     * Mark the archive entry with the given key as done, if checkpoints are being kept.
+     *
+     * @param type archive directory, if a document from that entry has been indexed
+     * @see ArchiveReader#entryKey(int, int)
+     */
+    private void complete(long entry, String type) {
+        var checkpoints = this.checkpoints;
+        if (checkpoints != null && entry >= 0) {
+            checkpoints.get(ArchiveReader.archiveOf(entry)).complete(ArchiveReader.positionOf(entry), type);
+        }
+    }
+
+    private void closePipeline() {
+        if (this.pipeline != null) {
+            this.pipeline.close();
+            this.pipeline = null;
+        }
     }
 
     /**
@@ -268,48 +1246,76 @@ public class RepoPopulator {
     }
 
     /**
-     * Add single TLA entity deserialized from a JSON document to buffer of currently active
-     * {@link RepoBatchIngestor} for later batch ingestion into Elasticsearch index.
+     * Add document read from the archive entry with the given key.
      */
-    protected void addToBatch(String json) {
-        this.batchIngestor.add(json);
+    private void addToBatch(RepoBatchIngestor<?> ingestor, byte[] json, long entry) {
+        if (this.pipeline != null) {
+            try {
+                this.pipeline.process(() -> ingestor.add(json, entry));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while queuing archived document", e);
+            }
+        } else {
+            ingestor.add(json, entry);
+        }
     }
 
     /**
-     * Go through a TAR archive and uses the appropriate {@link ElasticsearchRepository> to index
-     * JSON files.
-     */
-    private void processTarArchive(TarArchiveInputStream input) throws IOException {
-        TarArchiveEntry archiveEntry;
-        long filecount = 0;
-        while ((archiveEntry = input.getNextTarEntry()) != null) {
-            String typeId = this.extractDocTypeFromPath(archiveEntry);
-            if (!archiveEntry.isDirectory()) {
-                if (input.canReadEntryData(archiveEntry)) {
-                    filecount++;
-                    if (this.selectBatchIngestor(typeId) != null) {
-                        this.addToBatch(
-                            new String(input.readAllBytes())
-                        );
-                    }
-                } else {
-                    log.warn("archived file {} not readable", archiveEntry.getName());
-                }
-            }
+     * Delete the documents whose IDs are listed in an archived file, if in delta mode.
+     */
+    private void processDeletedList(String typeId, List<String> ids) {
+        var ingestor = this.repoIngestors.get(typeId);
+        if (ingestor == null || ingestor.delta == null) {
+            log.info("ignore list of deleted {} documents outside of delta mode", typeId);
+            return;
         }
-        log.info("JSON documents extracted from archive: {}", filecount);
-        flushIngestors();
+        ingestor.used = true;
+        ingestor.delete(ids);
     }
 
+    /**
+     * Index whatever is left in the batch indexers' buffers. In pipelined mode, this waits for
+     * all queued documents to be deserialized and for all bulk requests to complete.
+     */
     protected void flushIngestors() {
         this.batchIngestor = null;
+        if (this.pipeline != null) {
+            this.pipeline.await();
+        }
         for (RepoBatchIngestor<? extends Indexable> batchIngestor : this.repoIngestors.values()) {
             batchIngestor.ingest();
+        }
+        if (this.pipeline != null) {
+            this.pipeline.await();
+        }
+        this.restoreServingProfile();
+        this.sweepIndices();
+        for (RepoBatchIngestor<? extends Indexable> batchIngestor : this.repoIngestors.values()) {
+            batchIngestor.refresh();
             log.info(
                 "ingested {} documents of type {}",
-                batchIngestor.count,
+                batchIngestor.count.get(),
                 batchIngestor.modelClass.getSimpleName()
             );
+            if (batchIngestor.delta != null) {
+                log.info(
+                    "{} documents of type {} unchanged, {} deleted",
+                    batchIngestor.unchanged.get(),
+                    batchIngestor.modelClass.getSimpleName(),
+                    batchIngestor.deleted.get()
+                );
+            }
+        }
+        if (this.checkpoints != null) {
+            for (IngestCheckpoint checkpoint : this.checkpoints) {
+                try {
+                    checkpoint.save();
+                    log.info("ingest checkpoint: {}", checkpoint);
+                } catch (IOException e) {
+                    log.warn("could not write ingest checkpoint: {}", e.getMessage());
+                }
+            }
         }
     }
 
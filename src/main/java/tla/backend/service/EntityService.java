@@ -1,6 +1,9 @@
 package tla.backend.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -9,6 +12,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
@@ -24,8 +29,12 @@ import tla.backend.es.model.meta.ModelConfig;
 import tla.backend.es.model.meta.TLAEntity;
 import tla.backend.es.query.ESQueryBuilder;
 import tla.backend.es.query.ESQueryResult;
+import tla.backend.es.query.Projection;
+import tla.backend.es.query.SearchCursor;
+import tla.backend.service.component.EntityLookup;
 import tla.backend.service.component.EntityRetrieval;
 import tla.backend.service.search.AutoCompleteSupport;
+import tla.backend.service.search.ExportWriter;
 import tla.backend.service.search.SearchService;
 import tla.domain.command.SearchCommand;
 import tla.domain.dto.extern.SearchResultsWrapper;
@@ -52,6 +61,9 @@ public abstract class EntityService<T extends Indexable, R extends Elasticsearch
     @Autowired
     protected SearchService searchService;
 
+    @Autowired
+    protected EntityLookup lookup;
+
     @Autowired
     private ModelMapper modelMapper;
 
@@ -198,10 +210,7 @@ public abstract class EntityService<T extends Indexable, R extends Elasticsearch
      * @see {@link ModelConfig#toDTO}
      */
     public SingleDocumentWrapper<? extends AbstractDto> getDetails(String id) {
-        T document = this.retrieve(id);
-        if (document == null) {
-           document = this.retrieve(id.concat("-0")); // try again as an instance of a sentence variant
-        }
+        T document = this.retrieveDetails(id);
         final SingleDocumentWrapper<?> container;
         if (document != null) {
             container = new SingleDocumentWrapper<>(
@@ -215,7 +224,11 @@ public abstract class EntityService<T extends Indexable, R extends Elasticsearch
                 );
             }
             try {
-                bulk.resolve().forEach(
+                Collection<Indexable> related = new ArrayList<>(lookup.resolve(bulk));
+                related.addAll(
+                    lookup.resolve(this.retrieveIndirectlyRelatedDocs(document, related))
+                );
+                related.forEach(
                     relatedObject -> {
                         container.addRelated(
                             (DocumentDto) ModelConfig.toDTO(relatedObject)
@@ -231,6 +244,34 @@ public abstract class EntityService<T extends Indexable, R extends Elasticsearch
         return container;
     }
     
+    /**
+     * Retrieve the document requested by {@link #getDetails(String)}. If lookups are batched, all
+     * queries returned by {@link #getLookupQueries(String)} are sent in a single multi-search
+     * request.
+     */
+    protected T retrieveDetails(String id) {
+        if (lookup.isBatching()) {
+            return lookup.findFirst(this.getModelClass(), this.getLookupQueries(id));
+        }
+        T document = this.retrieve(id);
+        if (document == null) {
+           document = this.retrieve(id.concat("-0")); // try again as an instance of a sentence variant
+        }
+        return document;
+    }
+
+    /**
+     * Queries identifying the document requested by {@link #getDetails(String)}, in order of
+     * precedence: the document with the given ID, or else the first variant of a sentence
+     * with that ID.
+     */
+    protected List<QueryBuilder> getLookupQueries(String id) {
+        return List.of(
+            QueryBuilders.idsQuery().addIds(id),
+            QueryBuilders.idsQuery().addIds(id.concat("-0"))
+        );
+    }
+
 	public Boolean existsById(String id) { //TODO in unterklassen verschieben/anpassen für Token
 		Boolean exists = false;
 		exists = this.getRepo().existsById(id);
@@ -253,6 +294,20 @@ public abstract class EntityService<T extends Indexable, R extends Elasticsearch
         ) : new EntityRetrieval.BulkEntityResolver();
     }
 
+    /**
+     * Documents which can only be looked up once the documents related to the requested one
+     * have been retrieved. Returns an empty bulk entity resolver, but can be overridden by
+     * subclasses.
+     *
+     * @param document An instance of the model class this service is for
+     * @param related Documents retrieved via {@link #retrieveRelatedDocs(Indexable)}
+     */
+    protected EntityRetrieval.BulkEntityResolver retrieveIndirectlyRelatedDocs(
+        T document, Collection<Indexable> related
+    ) {
+        return new EntityRetrieval.BulkEntityResolver();
+    }
+
     /**
      * If a document is of type {@link TLAEntity}, then extract all document references
      * from its passport and try to retrieve them from the respective Elasticsearch indices
@@ -304,7 +359,7 @@ public abstract class EntityService<T extends Indexable, R extends Elasticsearch
      */
     public List<D> hitsToDTO(SearchHits<?> hits, Class<D> dtoClass) {
         return hits.getSearchHits().stream().map(
-            hit -> modelMapper.map(
+            hit -> ModelConfig.map(
                 hit.getContent(),
                 dtoClass
             )
@@ -348,10 +403,24 @@ public abstract class EntityService<T extends Indexable, R extends Elasticsearch
      * TODO: doc
      */
     public Optional<SearchResultsWrapper<? extends D>> runSearchCommand(SearchCommand<D> command, Pageable page) {
+        return this.runSearchCommand(command, page, null);
+    }
+
+    /**
+     * Run search command, retrieving the page following the position of a search cursor
+     * if one is given. The cursor pointing to the next page is then set in the cursor passed.
+     *
+     * @param cursor search cursor, or <code>null</code> for offset-based paging
+     * @see SearchCursor
+     */
+    public Optional<SearchResultsWrapper<? extends D>> runSearchCommand(
+        SearchCommand<D> command, Pageable page, SearchCursor cursor
+    ) {
         Assert.notNull(page, "pageable must be specified");
         log.info("page: {}", page);
         var queryAdapter = this.getSearchCommandAdapter(command);
-        ESQueryResult<?> result = searchService.register(queryAdapter).run(page);
+        queryAdapter.setProjection(Projection.SEARCH_HIT);
+        ESQueryResult<?> result = searchService.register(queryAdapter).run(page, cursor);
         try {
             result.getAggregations().remove(ESQueryResult.AGGS_ID_IDS);
             var wrapper = new SearchResultsWrapper<D>(
@@ -360,7 +429,7 @@ public abstract class EntityService<T extends Indexable, R extends Elasticsearch
                 result.getPageInfo(),
                 result.getAggregations()
             );
-            retrieveRelatedDocs(result).resolve().forEach(
+            lookup.resolve(retrieveRelatedDocs(result)).forEach(
                 relatedObject -> wrapper.addRelated(
                     (DocumentDto) ModelConfig.toDTO(relatedObject)
                 )
@@ -371,6 +440,22 @@ public abstract class EntityService<T extends Indexable, R extends Elasticsearch
         }
     }
 
+    /**
+     * Run search command and write all matching documents to an output stream.
+     *
+     * @param fields fields to be exported (all if empty or <code>null</code>)
+     * @return number of documents exported
+     * @see ExportWriter
+     */
+    public long exportSearchCommand(
+        SearchCommand<D> command, List<String> fields, ExportWriter.Format format, OutputStream out
+    ) throws IOException {
+        var queryAdapter = this.getSearchCommandAdapter(command);
+        try (var writer = new ExportWriter(out, format, fields)) {
+            return searchService.register(queryAdapter).export(fields, writer::write);
+        }
+    }
+
     /**
      * initializes a bulk entity resolver with all object references (inside relations element) found in the
      * entities from a given search result.
@@ -29,8 +29,6 @@ import tla.backend.service.search.AutoCompleteSupport;
 import tla.backend.service.search.SearchService;
 import tla.domain.command.SearchCommand;
 import tla.domain.dto.LemmaDto;
-import tla.domain.dto.extern.SingleDocumentWrapper;
-import tla.domain.dto.meta.AbstractDto;
 import tla.domain.model.Language;
 
 
@@ -53,23 +51,6 @@ public class LemmaService extends EntityService<LemmaEntity, ElasticsearchReposi
         return repo;
     }
 
-    /**
-     * Extends superclass implementation {@link EntityService#getDetails(String)} in
-     * that lemma attestations are computed from occurrences and put into the
-     * wrapped lemma DTO.
-     *
-     * @see {@link #setAttestationsAndPeriod(String)}
-     */
-    @Override
-    public SingleDocumentWrapper<? extends AbstractDto> getDetails(String id) {
-        LemmaEntity lemma = retrieve(id);
-        if (lemma == null) {
-            return null;
-        }
-       SingleDocumentWrapper<?> wrapper = super.getDetails(id); 
-        return wrapper;
-    }
-
     public Map<String, Long> getMostFrequent(int limit) {
         SearchResponse response = this.searchService.query(SentenceEntity.class, matchAllQuery(),
                 AggregationBuilders.nested("aggs", "tokens").subAggregation(AggregationBuilders.terms("lemmata")
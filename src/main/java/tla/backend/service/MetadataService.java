@@ -5,11 +5,13 @@ import java.io.IOException;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
 import org.springframework.stereotype.Service;
 
 import tla.backend.es.model.Metadata;
 import tla.backend.es.query.ESQueryBuilder;
+import tla.backend.es.repo.CorpusIngestedEvent;
 import tla.backend.es.repo.MetadataRepo;
 import tla.domain.command.SearchCommand;
 import tla.domain.dto.meta.DocumentDto;
@@ -37,6 +39,14 @@ public class MetadataService extends EntityService<Metadata, ElasticsearchReposi
         return metadata;
     }
 
+    /**
+     * Forget corpus metadata, so that it gets reloaded after a new corpus has been ingested.
+     */
+    @EventListener
+    public void onCorpusIngested(CorpusIngestedEvent event) {
+        this.metadata = null;
+    }
+
     /**
      * retrieve version number of connected Elasticsearch node
      */
@@ -1,16 +1,21 @@
 package tla.backend.service;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
 import org.springframework.stereotype.Service;
 
 import tla.backend.es.model.SentenceEntity;
+import tla.backend.es.model.meta.Indexable;
 import tla.backend.es.query.ESQueryBuilder;
 import tla.backend.es.query.SentenceSearchQueryBuilder;
 import tla.backend.es.repo.SentenceRepo;
 import tla.backend.service.component.EntityRetrieval;
 import tla.domain.command.SearchCommand;
 import tla.domain.dto.SentenceDto;
+import tla.domain.model.ObjectReference;
 
 @Service
 @ModelClass(value = SentenceEntity.class, path = "sentence")
@@ -29,14 +34,27 @@ public class SentenceService extends EntityService<SentenceEntity, Elasticsearch
      */
     @Override
     protected EntityRetrieval.BulkEntityResolver retrieveRelatedDocs(SentenceEntity document) {
-        EntityRetrieval.BulkEntityResolver relatedDocuments = super.retrieveRelatedDocs(document);
-        var text = this.retrieveSingleBTSDoc(
-            "BTSText", document.getContext().getTextId()
+        return super.retrieveRelatedDocs(document).addAll(
+            List.of(
+                ObjectReference.builder().id(document.getContext().getTextId()).eclass("BTSText").build()
+            )
         );
-        relatedDocuments.merge(
-            super.retrieveReferencedThesaurusEntries(text)
+    }
+
+    /**
+     * make sure thesaurus entries referenced by the containing text get included.
+     */
+    @Override
+    protected EntityRetrieval.BulkEntityResolver retrieveIndirectlyRelatedDocs(
+        SentenceEntity document, Collection<Indexable> related
+    ) {
+        return related.stream().filter(
+            doc -> document.getContext().getTextId().equals(doc.getId())
+        ).findFirst().map(
+            text -> super.retrieveReferencedThesaurusEntries(text)
+        ).orElseGet(
+            () -> super.retrieveIndirectlyRelatedDocs(document, related)
         );
-        return relatedDocuments;
     }
     
 
@@ -10,6 +10,7 @@ import tla.backend.es.model.ThsEntryEntity;
 import tla.backend.es.model.meta.Indexable;
 import tla.backend.es.model.meta.TLAEntity;
 import tla.backend.es.query.ESQueryBuilder;
+import tla.backend.es.query.Projection;
 import tla.backend.es.query.ThsSearchQueryBuilder;
 import tla.backend.es.repo.ThesaurusRepo;
 import tla.backend.es.repo.custom.UserFriendlyEntityRepo;
@@ -41,15 +42,18 @@ public class ThesaurusService extends UserFriendlyEntityService<ThsEntryEntity,
      */
     public List<ThsEntryEntity> extractThsEntriesFromPassport(Passport passport, String path) {
         List<Passport> leafNodes = passport.extractProperty(path);
-        return EntityRetrieval.BulkEntityResolver.of(
-            leafNodes.stream().filter(
-                node -> node.get() instanceof Resolvable
-            ).map(
-                node -> (Resolvable) node.get()
-            ).collect(
-                Collectors.toList()
-            )
-        ).resolve().stream().map(
+        return lookup.resolve(
+            EntityRetrieval.BulkEntityResolver.of(
+                leafNodes.stream().filter(
+                    node -> node.get() instanceof Resolvable
+                ).map(
+                    node -> (Resolvable) node.get()
+                ).collect(
+                    Collectors.toList()
+                )
+            ),
+            Projection.DETAIL
+        ).stream().map(
             term -> (ThsEntryEntity) term
         ).collect(
             Collectors.toList()
@@ -0,0 +1,115 @@
+package tla.backend.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+import tla.backend.config.ApplicationProperties;
+import tla.backend.es.query.ThsSearchQueryBuilder;
+import tla.backend.es.repo.CorpusIngestedEvent;
+import tla.backend.service.component.ThesaurusTree;
+import tla.backend.service.search.SearchService;
+
+/**
+ * Keeps the hierarchy of all thesaurus entries in memory, so that thesaurus subtree expansions,
+ * ancestors and entry names can be looked up without querying Elasticsearch.
+ *
+ * The hierarchy is loaded from the paths of all thesaurus entries once the application has
+ * started, and reloaded after each corpus ingest. Until it is available, {@link #getTree()}
+ * returns <code>null</code>.
+ */
+@Slf4j
+@Service
+public class ThesaurusTreeService {
+
+    static final List<String> SOURCE_FIELDS = List.of("id", "name", "paths.id");
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired(required = false)
+    private ApplicationProperties properties;
+
+    private volatile ThesaurusTree tree = null;
+
+    protected boolean isEnabled() {
+        return this.properties == null || this.properties.getSearch().isThesaurusTree();
+    }
+
+    /**
+     * In-memory thesaurus hierarchy, or <code>null</code> if it is not available.
+     */
+    public ThesaurusTree getTree() {
+        return this.tree;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (this.isEnabled() && this.tree == null) {
+            this.load();
+        }
+    }
+
+    /**
+     * Replace thesaurus hierarchy with the one from the newly ingested corpus.
+     */
+    @EventListener
+    public void onCorpusIngested(CorpusIngestedEvent event) {
+        this.tree = null;
+        if (this.isEnabled()) {
+            this.load();
+        }
+    }
+
+    /**
+     * Read the paths of all thesaurus entries from their index and build the thesaurus hierarchy.
+     * If this fails, thesaurus expansion queries keep being executed by Elasticsearch.
+     */
+    public synchronized ThesaurusTree load() {
+        var builder = new ThesaurusTree.Builder();
+        try {
+            long count = this.searchService.scroll(
+                new ThsSearchQueryBuilder(),
+                SOURCE_FIELDS,
+                source -> builder.add(
+                    (String) source.get("id"),
+                    (String) source.get("name"),
+                    parentIds(source.get("paths"))
+                )
+            );
+            this.tree = builder.build();
+            log.info("loaded thesaurus hierarchy of {} entries", count);
+        } catch (Exception e) {
+            log.warn("could not load thesaurus hierarchy: {}", e.getMessage());
+        }
+        return this.tree;
+    }
+
+    /**
+     * Extract the ID of the last entry in each path from the <code>paths</code> property of a
+     * thesaurus entry document source.
+     */
+    @SuppressWarnings("unchecked")
+    static Collection<String> parentIds(Object paths) {
+        List<String> parentIds = new ArrayList<>();
+        if (paths instanceof List) {
+            for (Object path : (List<Object>) paths) {
+                if (path instanceof List && !((List<Object>) path).isEmpty()) {
+                    Object parent = ((List<Object>) path).get(((List<Object>) path).size() - 1);
+                    if (parent instanceof Map && ((Map<String, Object>) parent).get("id") != null) {
+                        parentIds.add(((Map<String, Object>) parent).get("id").toString());
+                    }
+                }
+            }
+        }
+        return parentIds;
+    }
+
+}
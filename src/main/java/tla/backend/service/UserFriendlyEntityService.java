@@ -1,5 +1,12 @@
 package tla.backend.service;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+
 import tla.backend.es.model.meta.UserFriendlyEntity;
 import tla.backend.es.repo.custom.UserFriendlyEntityRepo;
 import tla.backend.service.search.AutoCompleteSupport;
@@ -20,11 +27,22 @@ public abstract class UserFriendlyEntityService<
 
     @Override
     public T retrieve(String id) {
-        return getRepo().findBySUID(id).orElse(
-            super.retrieve(id)
+        return getRepo().findBySUID(id).orElseGet(
+            () -> super.retrieve(id)
         );
     }
 
+    /**
+     * Look up requested document by its short ID first, like {@link #retrieve(String)}.
+     */
+    @Override
+    protected List<QueryBuilder> getLookupQueries(String id) {
+        List<QueryBuilder> queries = new ArrayList<>();
+        queries.add(QueryBuilders.matchQuery("hash", id).operator(Operator.AND));
+        queries.addAll(super.getLookupQueries(id));
+        return queries;
+    }
+
     @Override
     public AutoCompleteSupport getAutoCompleteSupport() {
         return this.autoComplete;
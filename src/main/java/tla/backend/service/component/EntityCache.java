@@ -0,0 +1,180 @@
+package tla.backend.service.component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+import tla.backend.es.model.meta.Indexable;
+
+/**
+ * Size-bounded read-through cache of entities referenced by other documents, kept separately for
+ * each eclass it is configured for. Each eclass has its own least recently used map of entities
+ * by ID. IDs which could not be found are cached as well, so that dangling references do not
+ * cause repeated lookups. Entities are cached in the form in which they are retrieved for the
+ * <code>related</code> section of responses, i.e. in {@link tla.backend.es.query.Projection#RELATED}
+ * projection.
+ *
+ * Every time the cache is cleared, a new generation starts. Entities retrieved before that
+ * must not end up in the new generation, so writes name the generation which was current
+ * when retrieval started (see {@link #getGeneration()}), and are dropped if it has ended since.
+ *
+ * @see EntityLookup#resolve(EntityRetrieval.BulkEntityResolver)
+ */
+public class EntityCache {
+
+    /**
+     * Marks IDs for which no entity exists.
+     */
+    public static final Indexable MISSING = () -> null;
+
+    /**
+     * Hit and miss counts of the cache for a single eclass.
+     */
+    @Getter
+    public static class Stats {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong negativeHits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+
+        /**
+         * Share of lookups answered from cache, including cached missing IDs.
+         */
+        public double getHitRate() {
+            long hits = this.hits.get() + this.negativeHits.get();
+            long total = hits + this.misses.get();
+            return total > 0 ? (double) hits / total : 0;
+        }
+    }
+
+    private final int size;
+
+    private final Map<String, Map<String, Indexable>> entities = new ConcurrentHashMap<>();
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param eclasses eclasses whose entities are to be cached
+     * @param size maximum number of entities kept per eclass
+     */
+    public EntityCache(Collection<String> eclasses, int size) {
+        this.size = size;
+        if (size > 0) {
+            eclasses.forEach(
+                eclass -> {
+                    this.entities.put(eclass, this.newCache());
+                    this.stats.put(eclass, new Stats());
+                }
+            );
+        }
+    }
+
+    private Map<String, Indexable> newCache() {
+        return Collections.synchronizedMap(
+            new LinkedHashMap<>(16, .75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Indexable> eldest) {
+                    return this.size() > EntityCache.this.size;
+                }
+            }
+        );
+    }
+
+    /**
+     * Whether entities of an eclass are being cached.
+     */
+    public boolean isCached(String eclass) {
+        return this.entities.containsKey(eclass);
+    }
+
+    /**
+     * Look up a cached entity.
+     *
+     * @return cached entity, {@link #MISSING} if the ID is known not to exist, or
+     * <code>null</code> if the ID is not in cache
+     */
+    public Indexable get(String eclass, String id) {
+        var cache = this.entities.get(eclass);
+        if (cache == null) {
+            return null;
+        }
+        Indexable entity = cache.get(id);
+        var stats = this.stats.get(eclass);
+        if (entity == null) {
+            stats.misses.incrementAndGet();
+        } else if (entity == MISSING) {
+            stats.negativeHits.incrementAndGet();
+        } else {
+            stats.hits.incrementAndGet();
+        }
+        return entity;
+    }
+
+    /**
+     * Current generation of the cache, to be passed to {@link #put(String, Indexable, long)} and
+     * {@link #putMissing(String, Set, long)} for entities retrieved from now on.
+     */
+    public long getGeneration() {
+        return this.generation.get();
+    }
+
+    /**
+     * Cache an entity (if its eclass is being cached, and the cache has not been cleared since
+     * the given generation).
+     */
+    public void put(String eclass, Indexable entity, long generation) {
+        var cache = this.entities.get(eclass);
+        if (cache != null) {
+            synchronized (cache) {
+                if (generation == this.generation.get()) {
+                    cache.put(entity.getId(), entity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remember IDs for which no entity exists (if their eclass is being cached, and the cache
+     * has not been cleared since the given generation).
+     */
+    public void putMissing(String eclass, Set<String> ids, long generation) {
+        var cache = this.entities.get(eclass);
+        if (cache != null) {
+            synchronized (cache) {
+                if (generation == this.generation.get()) {
+                    ids.forEach(
+                        id -> cache.put(id, MISSING)
+                    );
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all cached entities and start a new generation. Statistics are kept.
+     */
+    public void clear() {
+        this.generation.incrementAndGet();
+        this.entities.values().forEach(
+            cache -> {
+                synchronized (cache) {
+                    cache.clear();
+                }
+            }
+        );
+    }
+
+    /**
+     * Hit and miss counts for each cached eclass.
+     */
+    public Map<String, Stats> getStats() {
+        return Collections.unmodifiableMap(this.stats);
+    }
+
+}
@@ -0,0 +1,373 @@
+package tla.backend.service.component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import tla.backend.config.ApplicationProperties;
+import tla.backend.es.model.meta.Indexable;
+import tla.backend.es.model.meta.ModelConfig;
+import tla.backend.es.query.Projection;
+import tla.backend.es.repo.CorpusIngestedEvent;
+
+/**
+ * Retrieves documents for a single API request with as few round trips to Elasticsearch
+ * as possible: alternative lookups of the same document are sent as one <code>_msearch</code>
+ * request, and referenced documents from any number of indices are fetched with one
+ * <code>_mget</code> request.
+ *
+ * Depending on the configured {@link Mode} (<code>tla.search.lookup-mode</code>), referenced
+ * documents can be retrieved through the entity repositories instead, with one lookup per
+ * index.
+ */
+@Slf4j
+@Component
+public class EntityLookup implements DisposableBean {
+
+    /**
+     * How referenced documents from different indices are retrieved.
+     */
+    public enum Mode {
+        /**
+         * single multi-get request for all indices
+         */
+        MULTI_GET,
+        /**
+         * one repository lookup per index, all at the same time
+         */
+        CONCURRENT,
+        /**
+         * one repository lookup per index, one after another
+         */
+        SEQUENTIAL
+    }
+
+    @Autowired
+    private ElasticsearchOperations operations;
+
+    @Autowired
+    private RestHighLevelClient restClient;
+
+    @Autowired(required = false)
+    private ApplicationProperties properties;
+
+    private ExecutorService executor;
+
+    private EntityCache entityCache;
+
+    private static final EntityCache NO_CACHE = new EntityCache(List.of(), 0);
+
+    protected ApplicationProperties.SearchProperties getSearchProperties() {
+        return this.properties != null ? this.properties.getSearch() : new ApplicationProperties.SearchProperties();
+    }
+
+    public Mode getMode() {
+        return getSearchProperties().getLookupMode();
+    }
+
+    /**
+     * Whether lookups are sent to Elasticsearch as multi-get and multi-search requests.
+     */
+    public boolean isBatching() {
+        return this.getMode() == Mode.MULTI_GET;
+    }
+
+    /**
+     * Bounded thread pool on which repository lookups are run in {@link Mode#CONCURRENT} mode.
+     * If it is saturated, lookups are run on the thread of the request waiting for them.
+     */
+    protected synchronized Executor getExecutor() {
+        if (this.executor == null) {
+            int threads = Math.max(1, getSearchProperties().getLookupThreads());
+            var factory = new CustomizableThreadFactory("entity-lookup-");
+            factory.setDaemon(true);
+            this.executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 4),
+                factory,
+                new ThreadPoolExecutor.CallerRunsPolicy()
+            );
+            ((ThreadPoolExecutor) this.executor).allowCoreThreadTimeOut(true);
+        }
+        return this.executor;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Retrieve the first document found by any of the given queries, in order of precedence.
+     * All queries are sent in a single multi-search request.
+     *
+     * @return first document found, or <code>null</code> if no query has any hits
+     */
+    public <T extends Indexable> T findFirst(Class<T> modelClass, List<QueryBuilder> queries) {
+        String index = operations.getIndexCoordinatesFor(modelClass).getIndexName();
+        var request = new MultiSearchRequest();
+        queries.forEach(
+            query -> request.add(
+                new SearchRequest(index).source(
+                    new SearchSourceBuilder().query(query).size(1)
+                )
+            )
+        );
+        final MultiSearchResponse response;
+        try {
+            response = restClient.msearch(request, RequestOptions.DEFAULT);
+        } catch (IOException e) {
+            log.error("could not look up document in index {}", index);
+            throw new UncheckedIOException(e);
+        }
+        for (MultiSearchResponse.Item item : response.getResponses()) {
+            if (item.isFailure()) {
+                throw new IllegalStateException(
+                    String.format("lookup in index %s failed: %s", index, item.getFailureMessage()),
+                    item.getFailure()
+                );
+            }
+            SearchHit[] hits = item.getResponse().getHits().getHits();
+            if (hits.length > 0) {
+                return this.read(modelClass, hits[0].getId(), hits[0].getSourceAsMap());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieve all documents queued in a bulk entity resolver for the <code>related</code>
+     * section of a response, i.e. in {@link Projection#RELATED} projection. Documents of cached
+     * eclasses are taken from the {@link EntityCache} if possible; all others are retrieved in
+     * the way specified by the configured {@link Mode}, and cached. IDs are cached as missing
+     * only if Elasticsearch has confirmed that they do not exist. Documents are returned in
+     * queue order; queued references which cannot be found are reported by the bulk entity
+     * resolver.
+     *
+     * @see EntityRetrieval.BulkEntityResolver#getMissing()
+     */
+    public Collection<Indexable> resolve(EntityRetrieval.BulkEntityResolver bulk) {
+        return this.resolve(bulk, Projection.RELATED);
+    }
+
+    /**
+     * Retrieve all documents queued in a bulk entity resolver in the given projection.
+     * Only documents in {@link Projection#RELATED} projection are cached. Projections are
+     * applied to multi-get requests only; repository lookups retrieve complete documents.
+     */
+    public Collection<Indexable> resolve(EntityRetrieval.BulkEntityResolver bulk, Projection projection) {
+        var cache = projection == Projection.RELATED ? this.getEntityCache() : NO_CACHE;
+        long generation = cache.getGeneration();
+        Map<String, List<Indexable>> found = new LinkedHashMap<>();
+        Map<String, Set<String>> uncached = new LinkedHashMap<>();
+        bulk.getQueue().forEach(
+            (eclass, ids) -> ids.forEach(
+                id -> {
+                    Indexable entity = cache.get(eclass, id);
+                    if (entity == null) {
+                        uncached.computeIfAbsent(eclass, k -> new LinkedHashSet<>()).add(id);
+                    } else if (entity != EntityCache.MISSING) {
+                        found.computeIfAbsent(eclass, k -> new ArrayList<>()).add(entity);
+                    }
+                }
+            )
+        );
+        if (!uncached.isEmpty()) {
+            Map<String, Set<String>> absent = new LinkedHashMap<>();
+            this.fetch(uncached, projection, absent).forEach(
+                (eclass, entities) -> entities.forEach(
+                    entity -> {
+                        cache.put(eclass, entity, generation);
+                        found.computeIfAbsent(eclass, k -> new ArrayList<>()).add(entity);
+                    }
+                )
+            );
+            absent.forEach(
+                (eclass, ids) -> cache.putMissing(eclass, ids, generation)
+            );
+        }
+        return bulk.collect(found);
+    }
+
+    /**
+     * Retrieve documents identified by eclass and ID in the way specified by the configured
+     * {@link Mode}. Repository lookups do not tell missing documents apart from documents
+     * which could not be retrieved, so only multi-get requests report absent IDs.
+     *
+     * @param absent receives the IDs which are known not to exist, grouped by eclass
+     * @return documents found, grouped by eclass
+     */
+    protected Map<String, List<Indexable>> fetch(
+        Map<String, Set<String>> refs, Projection projection, Map<String, Set<String>> absent
+    ) {
+        switch (this.getMode()) {
+            case MULTI_GET:
+                return this.multiGet(refs, projection, absent);
+            case CONCURRENT:
+                return EntityRetrieval.BulkEntityResolver.of(refs).fetch(this.getExecutor());
+            default:
+                return EntityRetrieval.BulkEntityResolver.of(refs).fetch(null);
+        }
+    }
+
+    /**
+     * Cache of referenced entities of the eclasses configured in
+     * <code>tla.cache.entity-cache-eclasses</code>.
+     */
+    protected synchronized EntityCache getEntityCache() {
+        if (this.entityCache == null) {
+            var cacheProperties = this.properties != null ?
+                this.properties.getCache() : new ApplicationProperties.CacheProperties();
+            this.entityCache = new EntityCache(
+                cacheProperties.getEntityCacheEclasses(),
+                cacheProperties.getEntityCacheSize()
+            );
+        }
+        return this.entityCache;
+    }
+
+    /**
+     * Hit and miss counts of the entity cache for each cached eclass.
+     */
+    public Map<String, EntityCache.Stats> getCacheStats() {
+        return this.getEntityCache().getStats();
+    }
+
+    /**
+     * Discard all cached entities once another corpus has been ingested.
+     */
+    @EventListener
+    public void onCorpusIngested(CorpusIngestedEvent event) {
+        var cache = this.getEntityCache();
+        cache.getStats().forEach(
+            (eclass, stats) -> log.info(
+                "discard cached {} entities (hit rate {})", eclass, String.format("%.3f", stats.getHitRate())
+            )
+        );
+        cache.clear();
+    }
+
+    /**
+     * Fetch documents identified by eclass and ID with a single multi-get request.
+     * Documents which cannot be found are left out.
+     *
+     * @param refs document IDs grouped by eclass
+     * @param projection parts of the documents' sources to be retrieved
+     * @return documents found, grouped by eclass
+     */
+    public Map<String, List<Indexable>> multiGet(Map<String, Set<String>> refs, Projection projection) {
+        return this.multiGet(refs, projection, new LinkedHashMap<>());
+    }
+
+    /**
+     * Fetch documents identified by eclass and ID with a single multi-get request, and
+     * collect the IDs of documents which do not exist. Documents which could not be retrieved
+     * for other reasons (failed items) are neither returned nor reported as absent.
+     *
+     * @param absent receives the IDs which are known not to exist, grouped by eclass
+     * @see #multiGet(Map, Projection)
+     */
+    public Map<String, List<Indexable>> multiGet(
+        Map<String, Set<String>> refs, Projection projection, Map<String, Set<String>> absent
+    ) {
+        Map<String, List<Indexable>> results = new LinkedHashMap<>();
+        var request = new MultiGetRequest();
+        List<String> itemEclasses = new ArrayList<>();
+        List<Class<?>> itemClasses = new ArrayList<>();
+        refs.forEach(
+            (eclass, ids) -> {
+                Class<?> modelClass = ModelConfig.getModelClass(eclass);
+                if (modelClass == null) {
+                    log.error("Could not find model class for eclass {}!", eclass);
+                    return;
+                }
+                String index = operations.getIndexCoordinatesFor(modelClass).getIndexName();
+                var sourceFilter = projection.getFetchSourceContext(modelClass);
+                ids.forEach(
+                    id -> {
+                        request.add(
+                            new MultiGetRequest.Item(index, id).fetchSourceContext(sourceFilter)
+                        );
+                        itemEclasses.add(eclass);
+                        itemClasses.add(modelClass);
+                    }
+                );
+            }
+        );
+        if (itemClasses.isEmpty()) {
+            return results;
+        }
+        final MultiGetItemResponse[] items;
+        try {
+            items = restClient.mget(request, RequestOptions.DEFAULT).getResponses();
+        } catch (IOException e) {
+            log.error("could not retrieve {} referenced documents", itemClasses.size());
+            throw new UncheckedIOException(e);
+        }
+        // responses come in request order, but may name concrete indices instead of aliases
+        for (int i = 0; i < items.length; i++) {
+            var item = items[i];
+            if (item.isFailed()) {
+                log.error(
+                    "could not retrieve document {} from index {}: {}",
+                    item.getId(), item.getIndex(), item.getFailure().getMessage()
+                );
+            } else if (item.getResponse().isExists()) {
+                results.computeIfAbsent(
+                    itemEclasses.get(i), eclass -> new ArrayList<>()
+                ).add(
+                    (Indexable) this.read(
+                        itemClasses.get(i), item.getId(), item.getResponse().getSourceAsMap()
+                    )
+                );
+            } else {
+                absent.computeIfAbsent(
+                    itemEclasses.get(i), eclass -> new LinkedHashSet<>()
+                ).add(item.getId());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Convert document source into model class instance.
+     */
+    private <T> T read(Class<T> modelClass, String id, Map<String, Object> source) {
+        Document document = Document.from(source);
+        document.setId(id);
+        return operations.getElasticsearchConverter().read(modelClass, document);
+    }
+
+}
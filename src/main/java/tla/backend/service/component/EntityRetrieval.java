@@ -1,15 +1,20 @@
 package tla.backend.service.component;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import lombok.extern.slf4j.Slf4j;
 import tla.backend.es.model.meta.Indexable;
 import tla.backend.es.model.meta.LinkedEntity;
 import tla.backend.es.model.meta.ModelConfig;
@@ -19,6 +24,12 @@ import tla.domain.model.meta.Resolvable;
 
 public class EntityRetrieval {
 
+    /**
+     * Queues object references and retrieves the entities they point to, grouped by eclass.
+     * Entities are returned in the order in which their eclasses and IDs have first been queued.
+     * References which could not be resolved are reported by {@link #getMissing()}.
+     */
+    @Slf4j
     public static class BulkEntityResolver {
 
         /**
@@ -26,8 +37,14 @@ public class EntityRetrieval {
          */
         protected Map<String, Set<String>> refs;
 
+        /**
+         * IDs of queued object references which could not be found, grouped by eclass
+         */
+        protected Map<String, Set<String>> missing;
+
         public BulkEntityResolver() {
-            this.refs = new HashMap<>();
+            this.refs = new LinkedHashMap<>();
+            this.missing = new LinkedHashMap<>();
         }
 
         /**
@@ -39,6 +56,18 @@ public class EntityRetrieval {
             return new BulkEntityResolver().addAll(references);
         }
 
+        /**
+         * creates a new bulk entity resolver instance and initialize it
+         * with given entity IDs grouped by eclass.
+         */
+        public static BulkEntityResolver of(Map<String, ? extends Collection<String>> queue) {
+            var bulk = new BulkEntityResolver();
+            queue.forEach(
+                (eclass, ids) -> bulk.refs.put(eclass, new LinkedHashSet<>(ids))
+            );
+            return bulk;
+        }
+
         /**
          * creates a new bulk entity resolver instance and initialize it
          * with given stream of object reference items to be resolved to actual
@@ -126,7 +155,7 @@ public class EntityRetrieval {
         protected void add(Resolvable ref) {
             this.refs.merge(
                 ref.getEclass(),
-                new HashSet<>(List.of(ref.getId())),
+                new LinkedHashSet<>(List.of(ref.getId())),
                 (cur, id) -> {
                     cur.addAll(id);
                     return cur;
@@ -154,17 +183,123 @@ public class EntityRetrieval {
             );
         }
 
+        /**
+         * Retrieve all queued objects, looking them up in their respective ES indices all at
+         * the same time. Results are merged in queue order, regardless of which lookup
+         * finishes first.
+         *
+         * @param executor runs the lookups for each eclass
+         * @see #resolve()
+         */
+        public Collection<Indexable> resolve(Executor executor) {
+            return this.collect(this.fetch(executor));
+        }
+
+        /**
+         * Retrieve all queued objects from their respective ES indices without recording
+         * missing references.
+         *
+         * @param executor runs the lookups for each eclass at the same time, or <code>null</code>
+         * for looking them up one after another
+         * @return retrieved objects grouped by eclass, in queue order
+         */
+        public Map<String, List<Indexable>> fetch(Executor executor) {
+            Map<String, CompletableFuture<List<Indexable>>> lookups = new LinkedHashMap<>();
+            this.refs.forEach(
+                (eclass, ids) -> lookups.put(
+                    eclass,
+                    executor != null ? CompletableFuture.supplyAsync(
+                        () -> this.retrieve(eclass, ids), executor
+                    ) : CompletableFuture.completedFuture(
+                        this.retrieve(eclass, ids)
+                    )
+                )
+            );
+            Map<String, List<Indexable>> results = new LinkedHashMap<>();
+            lookups.forEach(
+                (eclass, lookup) -> results.put(eclass, lookup.join())
+            );
+            return results;
+        }
+
+        /**
+         * Merge objects which have been retrieved for each eclass in queue order (of both eclasses
+         * and IDs), and record queued references which are missing from them.
+         *
+         * @param found retrieved objects grouped by eclass
+         * @see #getMissing()
+         */
+        public Collection<Indexable> collect(Map<String, ? extends Collection<? extends Indexable>> found) {
+            List<Indexable> results = new ArrayList<>();
+            this.refs.forEach(
+                (eclass, ids) -> {
+                    Map<String, Indexable> entities = new HashMap<>();
+                    if (found.containsKey(eclass)) {
+                        found.get(eclass).forEach(
+                            entity -> entities.put(entity.getId(), entity)
+                        );
+                    }
+                    ids.stream().map(entities::get).filter(
+                        entity -> entity != null
+                    ).forEach(results::add);
+                    this.checkFound(eclass, ids, entities.values());
+                }
+            );
+            return results;
+        }
+
+        /**
+         * Get IDs of queued object references which could not be resolved, grouped by eclass.
+         * Only available once objects have been retrieved.
+         */
+        public Map<String, Set<String>> getMissing() {
+            synchronized (this.missing) {
+                return Map.copyOf(this.missing);
+            }
+        }
+
         /**
          * Retrieve object references to entities of specified type from respective ES repository.
          */
         protected Stream<? extends Indexable> resolve(String eclass, Collection<String> ids) {
+            return this.checkFound(eclass, ids, this.retrieve(eclass, ids)).stream();
+        }
+
+        /**
+         * Look up entities of specified type in respective ES repository.
+         */
+        protected List<Indexable> retrieve(String eclass, Collection<String> ids) {
             EntityService<?,?,?> service = EntityService.getService(
                 ModelConfig.getModelClass(eclass)
             );
+            if (service == null) {
+                return List.of();
+            }
             return StreamSupport.stream(
                 service.getRepo().findAllById(ids).spliterator(),
                 false
+            ).collect(
+                Collectors.<Indexable>toList()
+            );
+        }
+
+        /**
+         * Record which of the IDs queued for an eclass are not among the objects retrieved for them.
+         */
+        protected <E extends Indexable> Collection<E> checkFound(
+            String eclass, Collection<String> ids, Collection<E> found
+        ) {
+            Set<String> missingIds = new LinkedHashSet<>(ids);
+            found.forEach(
+                entity -> missingIds.remove(entity.getId())
             );
+            if (!missingIds.isEmpty()) {
+                log.warn("could not find {} object(s) {}", eclass, missingIds);
+                synchronized (this.missing) {
+                    this.missing.put(eclass, missingIds);
+                }
+            }
+            return found;
         }
 
     }
@@ -0,0 +1,157 @@
+package tla.backend.service.component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import tla.backend.config.ApplicationProperties;
+import tla.backend.es.model.Metadata;
+import tla.backend.es.repo.CorpusIngestedEvent;
+import tla.backend.es.repo.MetadataRepo;
+
+/**
+ * Notices corpus releases ingested by another process (e.g. the <code>tla-ingest</code>
+ * container), which do not publish a {@link CorpusIngestedEvent} in this one.
+ *
+ * Every few seconds (see {@link ApplicationProperties.CacheProperties#getReleaseCheckInterval()}),
+ * the corpus metadata document and the physical indices behind the index aliases are read
+ * from Elasticsearch. If either of them has changed since the last check, a
+ * {@link CorpusIngestedEvent} is published, so that all caches of the previous release get
+ * discarded. Documents ingested in place without changing the metadata document or any alias
+ * (e.g. delta ingests without index generations) go unnoticed.
+ */
+@Slf4j
+@Component
+public class ReleaseWatcher implements DisposableBean {
+
+    @Autowired
+    private MetadataRepo metadataRepo;
+
+    @Autowired
+    private RestHighLevelClient restClient;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired(required = false)
+    private ApplicationProperties properties;
+
+    private ScheduledExecutorService scheduler = null;
+
+    /**
+     * what the last check has found, or <code>null</code> if nothing has been checked since
+     * the last ingest
+     */
+    private String served = null;
+
+    protected ApplicationProperties.CacheProperties getCacheProperties() {
+        return this.properties != null ? this.properties.getCache() : new ApplicationProperties.CacheProperties();
+    }
+
+    protected ApplicationEventPublisher getEventPublisher() {
+        return this.eventPublisher;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void onApplicationReady() {
+        long interval = getCacheProperties().getReleaseCheckInterval();
+        if (interval <= 0 || this.scheduler != null) {
+            return;
+        }
+        var factory = new CustomizableThreadFactory("release-watcher-");
+        factory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(factory);
+        this.scheduler.scheduleWithFixedDelay(this::check, 0, interval, TimeUnit.SECONDS);
+        log.info("check for newly ingested corpus every {} seconds", interval);
+    }
+
+    /**
+     * Compare the release being served with the one found last time, and publish a
+     * {@link CorpusIngestedEvent} if they differ.
+     *
+     * @return whether a different release has been found
+     */
+    public boolean check() {
+        String current;
+        try {
+            current = this.currentRelease();
+        } catch (Exception e) {
+            log.warn("could not check corpus release: {}", e.getMessage());
+            return false;
+        }
+        synchronized (this) {
+            String previous = this.served;
+            this.served = current;
+            if (previous == null || previous.equals(current)) {
+                return false;
+            }
+        }
+        log.info("corpus release changed to {}", current);
+        this.getEventPublisher().publishEvent(new CorpusIngestedEvent(this, null));
+        return true;
+    }
+
+    /**
+     * Read corpus metadata and index aliases from Elasticsearch.
+     */
+    protected String currentRelease() throws IOException {
+        List<String> parts = new ArrayList<>();
+        this.metadataRepo.findAll().forEach(
+            metadata -> parts.add(describe(metadata))
+        );
+        this.restClient.indices().getAlias(
+            new GetAliasesRequest(), RequestOptions.DEFAULT
+        ).getAliases().forEach(
+            (index, aliases) -> aliases.forEach(
+                alias -> parts.add(alias.alias() + "=" + index)
+            )
+        );
+        parts.sort(null);
+        return String.join("\n", parts);
+    }
+
+    static String describe(Metadata metadata) {
+        return String.join(
+            "/",
+            Objects.toString(metadata.getId()),
+            Objects.toString(metadata.getEtlVersion()),
+            Objects.toString(metadata.getDate())
+        );
+    }
+
+    /**
+     * Start comparing against whatever is found next, after a corpus has been ingested
+     * (possibly by this process).
+     */
+    @EventListener
+    public synchronized void onCorpusIngested(CorpusIngestedEvent event) {
+        if (event.getSource() != this) {
+            this.served = null;
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+package tla.backend.service.component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact in-memory representation of the thesaurus hierarchy. Entries are numbered, and parent
+ * and child relations are kept as arrays of entry numbers, so that subtrees can be expanded
+ * without querying Elasticsearch.
+ *
+ * Thesaurus entries can appear in more than one place within the hierarchy, so an entry can have
+ * several parents.
+ *
+ * @see Builder
+ */
+public class ThesaurusTree {
+
+    private static final int[] NONE = new int[0];
+
+    private final String[] ids;
+    private final String[] names;
+    private final Map<String, Integer> index;
+    private final int[][] parents;
+    private final int[][] children;
+
+    private ThesaurusTree(String[] ids, String[] names, Map<String, Integer> index, int[][] parents) {
+        this.ids = ids;
+        this.names = names;
+        this.index = index;
+        this.parents = parents;
+        int[] childCount = new int[ids.length];
+        for (int[] entryParents : parents) {
+            for (int parent : entryParents) {
+                childCount[parent]++;
+            }
+        }
+        this.children = new int[ids.length][];
+        for (int i = 0; i < ids.length; i++) {
+            this.children[i] = childCount[i] > 0 ? new int[childCount[i]] : NONE;
+            childCount[i] = 0;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            for (int parent : parents[i]) {
+                this.children[parent][childCount[parent]++] = i;
+            }
+        }
+    }
+
+    /**
+     * Collects thesaurus entries and the IDs of their parents.
+     */
+    public static class Builder {
+
+        private List<String> ids = new ArrayList<>();
+        private List<String> names = new ArrayList<>();
+        private List<Collection<String>> parentIds = new ArrayList<>();
+
+        /**
+         * Add a thesaurus entry.
+         *
+         * @param parentIds IDs of the entries directly above this one, i.e. the last entry of
+         * each of its paths
+         */
+        public synchronized Builder add(String id, String name, Collection<String> parentIds) {
+            this.ids.add(id);
+            this.names.add(name);
+            this.parentIds.add(parentIds);
+            return this;
+        }
+
+        /**
+         * Create thesaurus tree from all entries added. References to parents which have not been
+         * added themselves are ignored.
+         */
+        public synchronized ThesaurusTree build() {
+            Map<String, Integer> index = new HashMap<>(this.ids.size() * 4 / 3 + 1);
+            for (int i = 0; i < this.ids.size(); i++) {
+                index.put(this.ids.get(i), i);
+            }
+            int[][] parents = new int[this.ids.size()][];
+            for (int i = 0; i < parents.length; i++) {
+                parents[i] = this.parentIds.get(i).stream().map(
+                    index::get
+                ).filter(
+                    parent -> parent != null
+                ).mapToInt(
+                    Integer::intValue
+                ).distinct().toArray();
+            }
+            return new ThesaurusTree(
+                this.ids.toArray(new String[this.ids.size()]),
+                this.names.toArray(new String[this.names.size()]),
+                index,
+                parents
+            );
+        }
+
+    }
+
+    /**
+     * Number of thesaurus entries.
+     */
+    public int size() {
+        return this.ids.length;
+    }
+
+    public boolean contains(String id) {
+        return this.index.containsKey(id);
+    }
+
+    /**
+     * Look up the name of a thesaurus entry.
+     *
+     * @return name, or <code>null</code> if there is no such entry
+     */
+    public String getName(String id) {
+        Integer entry = this.index.get(id);
+        return entry != null ? this.names[entry] : null;
+    }
+
+    /**
+     * IDs of all entries located within the subtrees under any of the given entries (not
+     * including those entries themselves, unless they are located under one of the others).
+     * This is what a thesaurus expansion query on <code>paths.id</code> returns.
+     *
+     * @return sorted distinct IDs
+     */
+    public String[] descendants(Collection<String> rootIds) {
+        return this.collect(rootIds, this.children);
+    }
+
+    /**
+     * IDs of all entries above the given entry, on any of its paths.
+     *
+     * @return sorted distinct IDs
+     */
+    public String[] ancestors(String id) {
+        return this.collect(List.of(id), this.parents);
+    }
+
+    /**
+     * Traverse relation starting from the given entries, and collect the IDs of all
+     * entries reached.
+     */
+    private String[] collect(Collection<String> startIds, int[][] relation) {
+        boolean[] reached = new boolean[this.ids.length];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (String id : startIds) {
+            Integer entry = this.index.get(id);
+            if (entry != null) {
+                queue.add(entry);
+            }
+        }
+        int count = 0;
+        while (!queue.isEmpty()) {
+            for (int next : relation[queue.poll()]) {
+                if (!reached[next]) {
+                    reached[next] = true;
+                    count++;
+                    queue.add(next);
+                }
+            }
+        }
+        String[] result = new String[count];
+        for (int i = 0, j = 0; j < count; i++) {
+            if (reached[i]) {
+                result[j++] = this.ids[i];
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+}
@@ -9,6 +9,7 @@ import java.util.stream.Stream;
 import org.elasticsearch.index.query.MultiMatchQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilter;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQueryBuilder;
 
@@ -88,11 +89,14 @@ public class AutoCompleteSupport {
     }
 
     /**
-     * create native ES search query.
+     * create native ES search query, retrieving nothing but the response fields from
+     * the source of matching documents.
      */
     public NativeSearchQuery autoCompleteQuery(String term, String type) {
         return new NativeSearchQueryBuilder().withFields(
             this.getResponseFields()
+        ).withSourceFilter(
+            new FetchSourceFilter(this.getResponseFields(), null)
         ).withFilter(
             (type != null && !type.isBlank()) ?
             QueryBuilders.termQuery("type", type) :
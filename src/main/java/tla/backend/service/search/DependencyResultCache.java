@@ -0,0 +1,125 @@
+package tla.backend.service.search;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+import tla.backend.es.query.ESQueryBuilder;
+import tla.backend.es.query.ESQueryResult;
+
+/**
+ * Least recently used cache of query dependency results (e.g. thesaurus subtree expansions),
+ * keyed on the dependency query's model class, its canonical JSON representation, its
+ * aggregations and ID collection field, and the current index generation.
+ *
+ * The cache is bounded by number of entries and by the total number of collected IDs and
+ * search hits held by its entries. Calling {@link #invalidate(String)} after new documents have been ingested
+ * empties it and starts a new generation.
+ */
+@Slf4j
+public class DependencyResultCache {
+
+    private final int maxEntries;
+    private final long maxIds;
+
+    private final LinkedHashMap<String, ESQueryResult<?>> entries = new LinkedHashMap<>(16, .75f, true);
+    private long ids = 0;
+    private long generation = 0;
+    private String release = null;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param maxEntries maximum number of cached results (<code>0</code> disables caching)
+     * @param maxIds maximum number of collected IDs and search hits held by all cached results together
+     */
+    public DependencyResultCache(int maxEntries, long maxIds) {
+        this.maxEntries = maxEntries;
+        this.maxIds = maxIds;
+    }
+
+    /**
+     * Build cache key for a dependency query whose dependencies have been resolved already.
+     */
+    public String key(ESQueryBuilder query) {
+        return String.join(
+            "\n",
+            this.generationKey(),
+            String.valueOf(query.getModelClass()),
+            String.valueOf(query.getIdCollectionField()),
+            query.getNativeAggregationBuilders().toString(),
+            query.toJson()
+        );
+    }
+
+    /**
+     * Return cached result or <code>null</code>.
+     */
+    public synchronized ESQueryResult<?> get(String key) {
+        var result = this.entries.get(key);
+        if (result != null) {
+            this.hits++;
+        } else {
+            this.misses++;
+        }
+        return result;
+    }
+
+    /**
+     * Cache a result, evicting the least recently used entries if necessary.
+     * Results from a previous generation are not cached.
+     */
+    public synchronized void put(String key, ESQueryResult<?> result) {
+        if (this.maxEntries < 1 || !key.startsWith(this.generationKey() + "\n")) {
+            return;
+        }
+        long weight = weight(result);
+        if (weight > this.maxIds) {
+            return;
+        }
+        var previous = this.entries.put(key, result);
+        this.ids += weight - (previous != null ? weight(previous) : 0);
+        Iterator<Map.Entry<String, ESQueryResult<?>>> eldest = this.entries.entrySet().iterator();
+        while (eldest.hasNext() && (this.entries.size() > this.maxEntries || this.ids > this.maxIds)) {
+            this.ids -= weight(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Discard all cached results and start a new generation.
+     *
+     * @param release release identifier of the new index generation (if known)
+     */
+    public synchronized void invalidate(String release) {
+        log.info(
+            "invalidate {} cached dependency results ({} hits, {} misses)",
+            this.entries.size(), this.hits, this.misses
+        );
+        this.entries.clear();
+        this.ids = 0;
+        this.generation++;
+        this.release = release;
+    }
+
+    private synchronized String generationKey() {
+        return String.format("%d:%s", this.generation, this.release);
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Number of collected IDs and search hits held by a result.
+     */
+    static long weight(ESQueryResult<?> result) {
+        return 1 + (
+            result.getCollectedIds() != null ? result.getCollectedIds().length : 0
+        ) + (
+            result.getHits() != null ? result.getHits().getSearchHits().size() : 0
+        );
+    }
+
+}
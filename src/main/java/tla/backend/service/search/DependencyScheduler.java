@@ -0,0 +1,131 @@
+package tla.backend.service.search;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import tla.backend.es.query.TLAQueryBuilder;
+import tla.backend.es.query.TLAQueryBuilder.QueryDependency;
+
+/**
+ * Executes the dependency graph of a search query builder. Every query builder a dependency
+ * refers to gets executed as soon as the queries it depends on itself have been executed and
+ * their results have been fed into it, so that independent branches (e.g. thesaurus expansion
+ * queries for several passport keys) run concurrently on the given executor.
+ *
+ * Query builders appearing in more than one place of the graph are executed only once.
+ * Results are fed into a waiting query builder one dependency at a time.
+ */
+@Slf4j
+public class DependencyScheduler {
+
+    private final Executor executor;
+    private final Consumer<TLAQueryBuilder> execution;
+
+    /**
+     * query builders scheduled for execution, each with its future
+     */
+    private final Map<TLAQueryBuilder, CompletableFuture<Void>> executions = new IdentityHashMap<>();
+    private final List<CompletableFuture<Void>> futures = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param executor executor on which dependency queries get executed
+     * @param execution executes a single query builder and stores the result in it
+     */
+    public DependencyScheduler(Executor executor, Consumer<TLAQueryBuilder> execution) {
+        this.executor = executor;
+        this.execution = execution;
+    }
+
+    /**
+     * Execute all dependencies of a query builder and feed their results into it.
+     * The query builder itself is not being executed.
+     *
+     * @param query query builder whose dependencies are to be resolved
+     * @param timeoutMillis maximum time to wait for all dependencies (<code>0</code> means no limit)
+     * @throws TimeoutException if dependencies could not be resolved in time; pending dependency
+     * queries get cancelled
+     * @throws ExecutionException if a dependency query failed
+     */
+    public void resolve(TLAQueryBuilder query, long timeoutMillis)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        CompletableFuture<Void> resolved = this.dependenciesOf(query);
+        try {
+            if (timeoutMillis > 0) {
+                resolved.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } else {
+                resolved.get();
+            }
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            this.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * Cancel all dependency executions that have not started yet.
+     */
+    public void cancel() {
+        this.futures.forEach(future -> future.cancel(true));
+    }
+
+    /**
+     * Future completing once all dependencies of a query builder have been executed and fed into it.
+     */
+    private CompletableFuture<Void> dependenciesOf(TLAQueryBuilder query) {
+        List<CompletableFuture<Void>> resolutions = new ArrayList<>();
+        for (QueryDependency<?> dependency : query.getDependencies()) {
+            resolutions.add(
+                this.executionOf(dependency.getQuery()).thenRun(
+                    () -> {
+                        synchronized (query) {
+                            log.info("feed result of {} into {}", dependency.getQuery(), query);
+                            dependency.resolve();
+                        }
+                    }
+                )
+            );
+        }
+        var future = CompletableFuture.allOf(resolutions.toArray(new CompletableFuture[]{}));
+        future.whenComplete(
+            (result, e) -> {
+                if (e != null && !(e instanceof CancellationException)) {
+                    this.cancel();
+                }
+            }
+        );
+        this.futures.addAll(resolutions);
+        return future;
+    }
+
+    /**
+     * Future completing once a query builder has been executed after all of its own dependencies
+     * have been resolved.
+     */
+    private CompletableFuture<Void> executionOf(TLAQueryBuilder query) {
+        var future = this.executions.get(query);
+        if (future == null) {
+            future = this.dependenciesOf(query).thenRunAsync(
+                () -> {
+                    log.info("execute query dependency {}", query);
+                    this.execution.accept(query);
+                },
+                this.executor
+            );
+            this.executions.put(query, future);
+            this.futures.add(future);
+        }
+        return future;
+    }
+
+}
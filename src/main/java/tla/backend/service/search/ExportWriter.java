@@ -0,0 +1,146 @@
+package tla.backend.service.search;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import lombok.Getter;
+
+/**
+ * Writes search result documents to a stream one at a time, either as newline-delimited JSON
+ * or as CSV.
+ *
+ * CSV columns are the selected fields (which may be dot-separated paths into nested objects),
+ * or the top-level properties of the first document if no fields have been selected.
+ * Values which are objects or lists are written as JSON.
+ */
+public class ExportWriter implements Closeable {
+
+    public enum Format {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+
+        @Getter
+        private final String mediaType;
+
+        Format(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        /**
+         * Look up format by name (case-insensitive).
+         *
+         * @throws IllegalArgumentException if there is no such format
+         */
+        public static Format of(String name) {
+            return Format.valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().configure(
+        JsonGenerator.Feature.AUTO_CLOSE_TARGET, false
+    ).configure(
+        SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false
+    );
+
+    private final Writer out;
+    private final Format format;
+    private List<String> columns;
+
+    @Getter
+    private long count = 0;
+
+    /**
+     * @param fields selected fields, or <code>null</code> for all
+     */
+    public ExportWriter(OutputStream out, Format format, List<String> fields) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        this.format = format;
+        this.columns = fields != null && !fields.isEmpty() ? List.copyOf(fields) : null;
+    }
+
+    /**
+     * Write a single document.
+     */
+    public void write(Map<String, Object> doc) throws IOException {
+        if (this.format == Format.NDJSON) {
+            MAPPER.writeValue(this.out, doc);
+            this.out.write('\n');
+        } else {
+            if (this.columns == null) {
+                this.columns = new ArrayList<>(doc.keySet());
+            }
+            if (this.count == 0) {
+                this.writeCsvLine(new ArrayList<>(this.columns));
+            }
+            List<Object> values = new ArrayList<>(this.columns.size());
+            for (String column : this.columns) {
+                values.add(lookup(doc, column));
+            }
+            this.writeCsvLine(values);
+        }
+        this.count++;
+    }
+
+    private void writeCsvLine(List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                this.out.write(',');
+            }
+            this.out.write(csvValue(values.get(i)));
+        }
+        this.out.write("\r\n");
+    }
+
+    /**
+     * Resolve a dot-separated path within a document.
+     */
+    @SuppressWarnings("unchecked")
+    static Object lookup(Map<String, Object> doc, String path) {
+        if (doc.containsKey(path)) {
+            return doc.get(path);
+        }
+        Object value = doc;
+        for (String segment : path.split("\\.")) {
+            if (!(value instanceof Map)) {
+                return null;
+            }
+            value = ((Map<String, Object>) value).get(segment);
+        }
+        return value;
+    }
+
+    /**
+     * Format a value as CSV field, quoting it if necessary.
+     */
+    static String csvValue(Object value) throws IOException {
+        if (value == null) {
+            return "";
+        }
+        String text = (value instanceof Map || value instanceof List)
+            ? MAPPER.writeValueAsString(value)
+            : value.toString();
+        if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.out.flush();
+    }
+
+}
@@ -1,41 +1,83 @@
 package tla.backend.service.search;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.ClosePointInTimeRequest;
+import org.elasticsearch.action.search.OpenPointInTimeRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.aggregations.Aggregation;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.SearchHitsImpl;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+import org.springframework.data.elasticsearch.core.clients.elasticsearch7.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.core.document.Document;
 import org.springframework.data.elasticsearch.core.query.NativeSearchQuery;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
 import lombok.extern.slf4j.Slf4j;
+import tla.backend.config.ApplicationProperties;
 import tla.backend.es.model.meta.Indexable;
 import tla.backend.es.query.ESQueryBuilder;
 import tla.backend.es.query.ESQueryResult;
-import tla.backend.es.query.TLAQueryBuilder.QueryDependency;
+import tla.backend.es.query.SearchCursor;
+import tla.backend.es.query.TLAQueryBuilder;
+import tla.backend.es.query.ThsSearchQueryBuilder;
+import tla.backend.es.repo.CorpusIngestedEvent;
+import tla.backend.service.ThesaurusTreeService;
 
 @Slf4j
 @Service
-public class SearchService {
+public class SearchService implements DisposableBean {
 
     public final static Pageable UNPAGED = Pageable.unpaged();
 
     public final static String AGG_ID_DATES = "date.date.date";
 
+    final static String AGG_ID_COLLECTED_IDS = "collected_ids";
+
     /**
      * Execute search command query adapter and its dependencies.
      */
@@ -51,36 +93,135 @@ public class SearchService {
 
         /**
          * execute query after updating it with the results of executing its dependencies.
+         * Independent dependencies are executed concurrently.
          */
         public ESQueryResult<?> run(Pageable page) {
+            return this.run(page, null);
+        }
+
+        /**
+         * execute query after updating it with the results of executing its dependencies.
+         * If a search cursor is given, the page following its position is retrieved using
+         * <code>search_after</code> within the cursor's point in time (see
+         * {@link SearchService#searchAfter(ESQueryBuilder, Pageable, SearchCursor)}), and the
+         * cursor pointing to the next page is set in it.
+         *
+         * @param cursor search cursor or <code>null</code> for offset-based paging
+         */
+        public ESQueryResult<?> run(Pageable page, SearchCursor cursor) {
             log.info("run query for page {}", page);
+            this.resolveDependencies();
+            log.info("run head query");
+            ESQueryResult<?> result;
+            if (cursor != null) {
+                result = searchAfter(this.query, page, cursor);
+            } else {
+                result = executeSearchQuery(
+                    this.query.buildNativeSearchQuery(page),
+                    this.query.getModelClass()
+                );
+            }
+            result.addAggregationResults(this.aggregations);
+            return result;
+        }
+
+        /**
+         * execute query after updating it with the results of executing its dependencies,
+         * and pass the source of each and every matching document to a consumer. Documents are
+         * retrieved in batches using the scroll API, so memory use does not depend on the
+         * number of results.
+         *
+         * @param fields fields to include in document sources (all if empty or <code>null</code>)
+         * @return number of documents
+         */
+        public long export(List<String> fields, DocumentConsumer consumer) throws IOException {
+            log.info("export query results");
+            this.resolveDependencies();
+            return scroll(this.query, fields, consumer);
+        }
+
+        /**
+         * execute dependencies and feed their results into the query.
+         * Independent dependencies are executed concurrently.
+         */
+        private void resolveDependencies() {
             log.info("dependency: {}", this.query.getDependencies());
-            List<QueryDependency<?>> queue = this.query.resolveDependencies();
-            log.info("dependencies: {}", queue.size());
-            for (QueryDependency<?> dependency : queue) {
-                log.info("execute query dependency {}", dependency);
-                dependency.getQuery().setResult(
-                    executeSearchQuery(
-                        ((ESQueryBuilder) dependency.getQuery()).buildNativeSearchQuery(
-                            UNPAGED // TODO size=0
-                        ),
-                        dependency.getQuery().getModelClass()
-                    )
-                ).addAggregationResults(
-                    extractESAggregations(dependency.getQuery().getResult().getHits())
+            var scheduler = new DependencyScheduler(
+                getDependencyExecutor(), this::executeDependency
+            );
+            try {
+                scheduler.resolve(this.query, getSearchProperties().getDependencyTimeout());
+            } catch (TimeoutException e) {
+                throw new ResponseStatusException(
+                    HttpStatus.GATEWAY_TIMEOUT, "query dependencies timed out", e
+                );
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while executing query dependencies", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("query dependency failed", e.getCause());
+            }
+        }
+
+        /**
+         * execute a query dependency and store its results in it. If the dependency asks for
+         * the IDs of all matching documents, these are collected separately, and the regular
+         * search is only executed if there are other aggregations.
+         */
+        private void executeDependency(TLAQueryBuilder dependency) {
+            var query = (ESQueryBuilder) dependency;
+            if (query instanceof ThsSearchQueryBuilder && expandSubtrees((ThsSearchQueryBuilder) query)) {
+                return;
+            }
+            var cache = getDependencyResultCache();
+            String key = cache.key(query);
+            ESQueryResult<?> result = cache.get(key);
+            if (result != null) {
+                log.info("use cached result for query dependency {}", query);
+                dependency.setResult(result);
+            } else {
+                result = (
+                    query.getIdCollectionField() != null && query.getNativeAggregationBuilders().isEmpty()
+                ) ? new ESQueryResult<>() : executeSearchQuery(
+                    query.buildNativeSearchQuery(
+                        UNPAGED // TODO size=0
+                    ),
+                    query.getModelClass()
+                );
+                dependency.setResult(result).addAggregationResults(
+                    extractESAggregations(result.getHits())
                 );
-                dependency.resolve();
+                if (query.getIdCollectionField() != null) {
+                    result.setCollectedIds(
+                        collectIds(query, query.getIdCollectionField())
+                    );
+                }
+                cache.put(key, result);
+            }
+            synchronized (this.aggregations) {
                 this.aggregations.putAll(
-                    dependency.getQuery().getResult().getAggregations()
+                    result.getAggregations()
                 );
             }
-            log.info("run head query");
-            ESQueryResult<?> result = executeSearchQuery(
-                this.query.buildNativeSearchQuery(page),
-                this.query.getModelClass()
+        }
+
+        /**
+         * Answer thesaurus subtree expansion from the in-memory thesaurus hierarchy if it is available.
+         *
+         * @return whether the expansion could be answered
+         */
+        private boolean expandSubtrees(ThsSearchQueryBuilder query) {
+            var tree = thesaurusTreeService.getTree();
+            if (tree == null || !query.isSubtreeExpansion()) {
+                return false;
+            }
+            var result = new ESQueryResult<>();
+            result.setCollectedIds(
+                tree.descendants(Arrays.asList(query.getRootIds()))
             );
-            result.addAggregationResults(this.aggregations);
-            return result;
+            query.setResult(result);
+            log.info("expanded thesaurus subtrees in memory: {} entries", result.getIDAggValues().size());
+            return true;
         }
 
     }
@@ -88,9 +229,73 @@ public class SearchService {
     @Autowired
     private ElasticsearchOperations operations;
 
+    @Lazy
+    @Autowired
+    private ThesaurusTreeService thesaurusTreeService;
+
     @Autowired
     protected RestHighLevelClient restClient;
 
+    @Autowired(required = false)
+    private ApplicationProperties properties;
+
+    private ExecutorService dependencyExecutor;
+
+    private DependencyResultCache dependencyResultCache;
+
+    protected ApplicationProperties.SearchProperties getSearchProperties() {
+        return this.properties != null ? this.properties.getSearch() : new ApplicationProperties.SearchProperties();
+    }
+
+    /**
+     * Bounded thread pool on which query dependencies are executed. If it is saturated, dependencies
+     * are executed on the thread of the request waiting for them. With no threads configured,
+     * dependencies are executed one after another on the request thread.
+     */
+    protected synchronized Executor getDependencyExecutor() {
+        int threads = getSearchProperties().getDependencyThreads();
+        if (threads < 1) {
+            return Runnable::run;
+        }
+        if (this.dependencyExecutor == null) {
+            var factory = new CustomizableThreadFactory("search-dependency-");
+            factory.setDaemon(true);
+            this.dependencyExecutor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(getSearchProperties().getDependencyQueueCapacity()),
+                factory,
+                new ThreadPoolExecutor.CallerRunsPolicy()
+            );
+        }
+        return this.dependencyExecutor;
+    }
+
+    /**
+     * Cache of query dependency results, emptied whenever a corpus has been ingested.
+     */
+    protected synchronized DependencyResultCache getDependencyResultCache() {
+        if (this.dependencyResultCache == null) {
+            this.dependencyResultCache = new DependencyResultCache(
+                getSearchProperties().getDependencyCacheSize(),
+                getSearchProperties().getDependencyCacheMaxIds()
+            );
+        }
+        return this.dependencyResultCache;
+    }
+
+    @EventListener
+    public void onCorpusIngested(CorpusIngestedEvent event) {
+        getDependencyResultCache().invalidate(event.getRelease());
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (this.dependencyExecutor != null) {
+            this.dependencyExecutor.shutdownNow();
+            this.dependencyExecutor = null;
+        }
+    }
+
     /**
      * Creates a new {@link QueryExecutor} for a given query.
      *
@@ -106,7 +311,17 @@ public class SearchService {
     public <T extends Indexable> ESQueryResult<T> executeSearchQuery(
         NativeSearchQuery query, Class<T> modelClass
     ) {
-        var page = query.getPageable();
+        return executeSearchQuery(query, modelClass, query.getPageable());
+    }
+
+    /**
+     * Execute native Elasticsearch query against a single index, and compute page information
+     * for the page specified (which may differ from the offset-based page of the query
+     * if <code>search_after</code> is used).
+     */
+    public <T extends Indexable> ESQueryResult<T> executeSearchQuery(
+        NativeSearchQuery query, Class<T> modelClass, Pageable page
+    ) {
         log.info("query paged: {}", page.isPaged());
         return new ESQueryResult<T>(
             operations.<T>search(
@@ -118,6 +333,218 @@ public class SearchService {
         );
     }
 
+    /**
+     * Retrieve the page after the position of a search cursor with <code>search_after</code>,
+     * and set the cursor pointing to the next page in it (unless this is the last page).
+     *
+     * All pages of a cursor are retrieved from the same point in time (PIT), so that documents
+     * indexed or deleted in the meantime (e.g. by a corpus ingest) do not shift hits from one
+     * page to another. The PIT is opened for the first page, its ID is passed on in the cursor
+     * tokens, and it is closed once the last page has been retrieved. If it has expired (see
+     * <code>tla.search.cursor-keep-alive</code>), paging continues from the cursor position in
+     * a new PIT.
+     *
+     * @throws IllegalArgumentException if cursor is not valid for the query's sort order
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Indexable> ESQueryResult<T> searchAfter(
+        ESQueryBuilder query, Pageable page, SearchCursor cursor
+    ) {
+        var modelClass = (Class<T>) query.getModelClass();
+        var source = query.buildSearchSource(page, cursor);
+        var keepAlive = TimeValue.timeValueSeconds(getSearchProperties().getCursorKeepAlive());
+        SearchResponse response;
+        try {
+            String pit = cursor.getPit() != null ? cursor.getPit() : openPointInTime(modelClass, keepAlive);
+            try {
+                response = searchPointInTime(source, pit, keepAlive);
+            } catch (ElasticsearchStatusException e) {
+                if (cursor.getPit() == null || e.status() != RestStatus.NOT_FOUND) {
+                    throw e;
+                }
+                log.warn("point in time of search cursor has expired, continue in a new one");
+                response = searchPointInTime(source, openPointInTime(modelClass, keepAlive), keepAlive);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                String.format("could not retrieve search cursor page from %s index", modelClass.getSimpleName()), e
+            );
+        }
+        var hits = response.getHits().getHits();
+        if (hits.length == page.getPageSize()) {
+            cursor.setNext(
+                new SearchCursor(
+                    cursor.getPage() + 1,
+                    SearchCursor.signature(query.cursorSorting()),
+                    Arrays.asList(hits[hits.length - 1].getSortValues()),
+                    response.pointInTimeId()
+                )
+            );
+        } else {
+            closePointInTime(response.pointInTimeId());
+        }
+        return new ESQueryResult<T>(
+            toSearchHits(response, modelClass),
+            PageRequest.of(cursor.getPage(), page.getPageSize())
+        );
+    }
+
+    private String openPointInTime(Class<?> modelClass, TimeValue keepAlive) throws IOException {
+        String index = operations.getIndexCoordinatesFor(modelClass).getIndexName();
+        return restClient.openPointInTime(
+            new OpenPointInTimeRequest(index).keepAlive(keepAlive), RequestOptions.DEFAULT
+        ).getPointInTimeId();
+    }
+
+    private SearchResponse searchPointInTime(
+        SearchSourceBuilder source, String pit, TimeValue keepAlive
+    ) throws IOException {
+        source.pointInTimeBuilder(new PointInTimeBuilder(pit).setKeepAlive(keepAlive));
+        return restClient.search(new SearchRequest().source(source), RequestOptions.DEFAULT);
+    }
+
+    private void closePointInTime(String pit) {
+        if (pit == null) {
+            return;
+        }
+        try {
+            restClient.closePointInTime(new ClosePointInTimeRequest(pit), RequestOptions.DEFAULT);
+        } catch (IOException | ElasticsearchStatusException e) {
+            log.warn("could not close point in time: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Convert the hits of a search response into Spring Data search hits of a model class.
+     */
+    private <T extends Indexable> SearchHits<T> toSearchHits(SearchResponse response, Class<T> modelClass) {
+        var converter = operations.getElasticsearchConverter();
+        List<org.springframework.data.elasticsearch.core.SearchHit<T>> hits = new ArrayList<>();
+        for (SearchHit hit : response.getHits().getHits()) {
+            Document document = Document.from(hit.getSourceAsMap());
+            document.setId(hit.getId());
+            hits.add(
+                new org.springframework.data.elasticsearch.core.SearchHit<T>(
+                    hit.getIndex(), hit.getId(), null, hit.getScore(), hit.getSortValues(),
+                    null, null, null, null, null, converter.read(modelClass, document)
+                )
+            );
+        }
+        var total = response.getHits().getTotalHits();
+        return new SearchHitsImpl<T>(
+            total != null ? total.value : hits.size(),
+            total != null && total.relation == TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO
+                ? TotalHitsRelation.GREATER_THAN_OR_EQUAL_TO : TotalHitsRelation.EQUAL_TO,
+            response.getHits().getMaxScore(),
+            null,
+            hits,
+            response.getAggregations() != null ? new ElasticsearchAggregations(response.getAggregations()) : null,
+            null
+        );
+    }
+
+    /**
+     * Receives document sources one at a time.
+     */
+    @FunctionalInterface
+    public interface DocumentConsumer {
+        void accept(Map<String, Object> source) throws IOException;
+    }
+
+    /**
+     * Scroll through all documents matching a query (in index order) and pass their sources
+     * to a consumer.
+     *
+     * @param fields fields to include in document sources (all if empty or <code>null</code>)
+     * @return number of documents
+     */
+    public long scroll(ESQueryBuilder query, List<String> fields, DocumentConsumer consumer) throws IOException {
+        String index = operations.getIndexCoordinatesFor(query.getModelClass()).getIndexName();
+        var keepAlive = TimeValue.timeValueSeconds(getSearchProperties().getExportKeepAlive());
+        var source = new SearchSourceBuilder().query(
+            query.getNativeRootQueryBuilder()
+        ).size(
+            getSearchProperties().getExportBatchSize()
+        ).sort(
+            SortBuilders.fieldSort("_doc")
+        ).trackTotalHits(false);
+        if (fields != null && !fields.isEmpty()) {
+            source.fetchSource(fields.toArray(new String[fields.size()]), null);
+        }
+        SearchResponse response = restClient.search(
+            new SearchRequest().indices(index).source(source).scroll(keepAlive),
+            RequestOptions.DEFAULT
+        );
+        String scrollId = response.getScrollId();
+        long count = 0;
+        try {
+            while (response.getHits().getHits().length > 0) {
+                for (SearchHit hit : response.getHits().getHits()) {
+                    consumer.accept(hit.getSourceAsMap());
+                    count++;
+                }
+                response = restClient.scroll(
+                    new SearchScrollRequest(scrollId).scroll(keepAlive),
+                    RequestOptions.DEFAULT
+                );
+                scrollId = response.getScrollId();
+            }
+        } finally {
+            var clear = new ClearScrollRequest();
+            clear.addScrollId(scrollId);
+            try {
+                restClient.clearScroll(clear, RequestOptions.DEFAULT);
+            } catch (IOException e) {
+                log.warn("could not clear scroll context: {}", e.getMessage());
+            }
+        }
+        log.info("exported {} documents from index {}", count, index);
+        return count;
+    }
+
+    /**
+     * Collect the distinct values of a field from all documents matching a query by paging
+     * through a composite aggregation.
+     *
+     * @return sorted distinct field values
+     */
+    public String[] collectIds(ESQueryBuilder query, String field) {
+        String index = operations.getIndexCoordinatesFor(query.getModelClass()).getIndexName();
+        int pageSize = getSearchProperties().getIdCollectionPageSize();
+        List<String> ids = new ArrayList<>();
+        Map<String, Object> after = null;
+        do {
+            var agg = AggregationBuilders.composite(
+                AGG_ID_COLLECTED_IDS,
+                List.of(new TermsValuesSourceBuilder(field).field(field))
+            ).size(pageSize);
+            if (after != null) {
+                agg.aggregateAfter(after);
+            }
+            SearchRequest request = new SearchRequest().indices(index).source(
+                new SearchSourceBuilder().query(
+                    query.getNativeRootQueryBuilder()
+                ).size(0).trackTotalHits(false).aggregation(agg)
+            );
+            CompositeAggregation result;
+            try {
+                result = restClient.search(request, RequestOptions.DEFAULT).getAggregations().get(
+                    AGG_ID_COLLECTED_IDS
+                );
+            } catch (IOException e) {
+                throw new IllegalStateException(
+                    String.format("could not collect %s values from index %s", field, index), e
+                );
+            }
+            result.getBuckets().forEach(
+                bucket -> ids.add(String.valueOf(bucket.getKey().get(field)))
+            );
+            after = result.getBuckets().size() < pageSize ? null : result.afterKey();
+        } while (after != null);
+        log.info("collected {} {} values from index {}", ids.size(), field, index);
+        return ids.toArray(new String[ids.size()]);
+    }
+
     /**
      * count exact number of search results for given query (we don't really need this).
      */
@@ -178,7 +605,7 @@ public class SearchService {
      * value counts.
      */
     public static Map<String, Map<String, Long>> extractESAggregations(SearchHits<?> hits) {
-        if (!hits.hasAggregations()) {
+        if (hits == null || !hits.hasAggregations()) {
             return Map.of();
         }
         Map<String, Map<String, Long>> result = new HashMap<>();
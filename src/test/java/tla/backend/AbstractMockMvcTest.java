@@ -3,12 +3,17 @@ package tla.backend;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
 /**
- * Brings an auto-configured {@link MockMvc} object.
+ * Brings an auto-configured {@link MockMvc} object. Referenced documents are looked up through
+ * the entity repositories, so that subclasses can mock them, and nothing they return is cached.
  */
 @SpringBootTest(classes = {App.class})
+@TestPropertySource(properties = {
+    "tla.search.lookup-mode=sequential", "tla.cache.entity-cache-size=0", "tla.cache.response-cache-size=0"
+})
 @AutoConfigureMockMvc
 public abstract class AbstractMockMvcTest {
 
@@ -1,9 +1,15 @@
 package tla.backend;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 import tla.backend.es.model.AnnotationEntity;
+import tla.backend.es.model.CorpusObjectEntity;
+import tla.backend.es.model.LemmaEntity;
 import tla.backend.es.model.SentenceEntity;
 import tla.backend.es.model.TextEntity;
 import tla.backend.es.model.ThsEntryEntity;
@@ -16,7 +22,9 @@ public class Util {
         SentenceEntity.class, "sentence",
         AnnotationEntity.class, "annotation",
         TextEntity.class, "text",
-        ThsEntryEntity.class, "ths"
+        ThsEntryEntity.class, "ths",
+        LemmaEntity.class, "lemma",
+        CorpusObjectEntity.class, "object"
     );
 
     public static <E extends Indexable> E loadSampleFile(Class<E> entityClass, String id) throws Exception {
@@ -29,6 +37,21 @@ public class Util {
         );
     }
 
+    /**
+     * Load all sample files of an entity class.
+     */
+    public static <E extends Indexable> List<E> loadSampleFiles(Class<E> entityClass) throws Exception {
+        File[] files = new File(
+            String.format("src/test/resources/sample/%s", ENTITY_SAMPLE_PATHS.get(entityClass))
+        ).listFiles((dir, name) -> name.endsWith(".json"));
+        Arrays.sort(files);
+        List<E> samples = new ArrayList<>();
+        for (File file : files) {
+            samples.add(tla.domain.util.IO.loadFromFile(file.getPath(), entityClass));
+        }
+        return samples;
+    }
+
     /**
      * create Date instance from ISO-8601 conforming string
      */
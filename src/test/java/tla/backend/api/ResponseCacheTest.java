@@ -0,0 +1,72 @@
+package tla.backend.api;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import tla.backend.config.ApplicationProperties;
+
+public class ResponseCacheTest {
+
+    @Test
+    void testEtag() {
+        String etag = ResponseCache.etag("1/2/2022-04-01", "lemma/get/10070");
+        assertAll("etag depends on release and request",
+            () -> assertTrue(etag.matches("\"[0-9a-f]{32}\""), "quoted strong etag"),
+            () -> assertEquals(etag, ResponseCache.etag("1/2/2022-04-01", "lemma/get/10070")),
+            () -> assertNotEquals(etag, ResponseCache.etag("1/3/2022-05-01", "lemma/get/10070")),
+            () -> assertNotEquals(etag, ResponseCache.etag("1/2/2022-04-01", "lemma/get/10071"))
+        );
+    }
+
+    @Test
+    void testBodyCached() {
+        var cache = new ResponseCache();
+        var calls = new AtomicInteger();
+        assertAll("body computed and serialized once",
+            () -> assertEquals("1", new String(cache.get("key", calls::incrementAndGet), StandardCharsets.UTF_8)),
+            () -> assertEquals("1", new String(cache.get("key", calls::incrementAndGet), StandardCharsets.UTF_8)),
+            () -> assertEquals("2", new String(cache.get("other", calls::incrementAndGet), StandardCharsets.UTF_8))
+        );
+    }
+
+    @Test
+    void testBodiesBoundedBySize() {
+        String body = "x".repeat(100);
+        long bytes = body.length() + 2;
+        var cache = new ResponseCache() {
+            @Override
+            protected ApplicationProperties.CacheProperties getCacheProperties() {
+                var properties = new ApplicationProperties.CacheProperties();
+                properties.setResponseCacheMaxBytes(2 * bytes);
+                return properties;
+            }
+        };
+        var calls = new AtomicInteger();
+        Supplier<String> compute = () -> {
+            calls.incrementAndGet();
+            return body;
+        };
+        cache.get("a", compute);
+        cache.get("b", compute);
+        cache.get("a", compute);
+        assertEquals(2, calls.get(), "two bodies fit");
+        cache.get("c", compute);
+        cache.get("a", compute);
+        assertEquals(3, calls.get(), "recently used body kept");
+        cache.get("b", compute);
+        assertEquals(4, calls.get(), "least recently used body evicted");
+        cache.get("big", () -> "x".repeat(1000));
+        cache.get("a", compute);
+        cache.get("b", compute);
+        assertEquals(4, calls.get(), "body larger than cache not cached, nothing evicted for it");
+    }
+
+}
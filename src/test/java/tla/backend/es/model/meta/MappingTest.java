@@ -2,23 +2,35 @@ package tla.backend.es.model.meta;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
 import org.modelmapper.ModelMapper;
+import org.modelmapper.TypeMap;
 
 import tla.backend.Util;
+import tla.backend.es.model.AnnotationEntity;
+import tla.backend.es.model.CorpusObjectEntity;
+import tla.backend.es.model.LemmaEntity;
+import tla.backend.es.model.SentenceEntity;
+import tla.backend.es.model.TextEntity;
 import tla.backend.es.model.ThsEntryEntity;
+import tla.backend.es.model.parts.Token;
 import tla.backend.es.query.SentenceSearchQueryBuilder;
 import tla.backend.es.query.TextSearchQueryBuilder;
 import tla.domain.command.PassportSpec;
 import tla.domain.command.SentenceSearch;
 import tla.domain.command.TextSearch;
 import tla.domain.dto.ThsEntryDto;
+import tla.domain.util.IO;
 
 @TestInstance(Lifecycle.PER_CLASS)
 public class MappingTest {
@@ -66,4 +78,59 @@ public class MappingTest {
         assertEquals(refDto, dtoRef, "DTO-style object reference extracted from entity should equal object reference extracted from DTO");
     }
 
-}
\ No newline at end of file
+    /**
+     * Sample entities, plus the nested objects which have type maps of their own.
+     */
+    private List<Object> mappingSamples() throws Exception {
+        List<Object> samples = new ArrayList<>();
+        for (Class<? extends Indexable> entityClass : List.of(
+            ThsEntryEntity.class, TextEntity.class, AnnotationEntity.class, SentenceEntity.class,
+            LemmaEntity.class, CorpusObjectEntity.class
+        )) {
+            for (Indexable entity : Util.loadSampleFiles(entityClass)) {
+                samples.add(entity);
+                if (entity instanceof BaseEntity && ((BaseEntity) entity).getEditors() != null) {
+                    samples.add(((BaseEntity) entity).getEditors());
+                }
+                if (entity instanceof SentenceEntity && ((SentenceEntity) entity).getTokens() != null) {
+                    for (Token token : ((SentenceEntity) entity).getTokens()) {
+                        samples.add(token);
+                        if (token.getLemma() != null) {
+                            samples.add(token.getLemma());
+                        }
+                    }
+                }
+            }
+        }
+        return samples;
+    }
+
+    @Test
+    void compiledMappersAgreeWithModelMapper() throws Exception {
+        DtoMappers mappers = new DtoMappers(modelMapper, 0, 0);
+        Set<List<Class<?>>> covered = new HashSet<>();
+        for (Object sample : mappingSamples()) {
+            for (TypeMap<?, ?> typeMap : modelMapper.getTypeMaps()) {
+                if (!typeMap.getSourceType().equals(sample.getClass())) {
+                    continue;
+                }
+                Class<?> dtoClass = typeMap.getDestinationType();
+                assertEquals(
+                    IO.getMapper().writeValueAsString(modelMapper.map(sample, dtoClass)),
+                    IO.getMapper().writeValueAsString(mappers.map(sample, dtoClass)),
+                    String.format("compiled %s mapping should produce the same DTO as ModelMapper", dtoClass.getSimpleName())
+                );
+                covered.add(List.of(sample.getClass(), dtoClass));
+            }
+        }
+        for (TypeMap<?, ?> typeMap : modelMapper.getTypeMaps()) {
+            if (typeMap.getSourceType().getName().startsWith("tla.backend.es.model.")) {
+                assertTrue(
+                    covered.contains(List.of(typeMap.getSourceType(), typeMap.getDestinationType())),
+                    String.format("no sample for type map %s", typeMap.getName() != null ? typeMap.getName() : typeMap)
+                );
+            }
+        }
+    }
+
+}
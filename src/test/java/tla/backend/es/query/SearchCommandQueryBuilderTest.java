@@ -3,8 +3,12 @@ package tla.backend.es.query;
 import static com.jayway.jsonpath.JsonPath.read;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import com.jayway.jsonpath.Configuration;
 
@@ -13,7 +17,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
 import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.PageRequest;
 
+import tla.backend.es.model.ThsEntryEntity;
 import tla.backend.es.model.meta.MappingTest;
 import tla.domain.command.LemmaSearch;
 import tla.domain.command.SentenceSearch;
@@ -82,4 +88,45 @@ public class SearchCommandQueryBuilderTest {
         );
     }
 
+    @Test
+    void largeTermsFilterChunkedTest() throws Exception {
+        List<String> ids = IntStream.range(0, ESQueryBuilder.MAX_TERMS_COUNT + 10).mapToObj(
+            String::valueOf
+        ).collect(Collectors.toList());
+        var query = new SentenceSearchQueryBuilder();
+        query.setTextIds(ids);
+        var json = toJson(query);
+        List<List<String>> chunks = read(json, "$.bool.filter[0].bool.should[*].terms['context.textId']");
+        assertAll("terms filter split into chunks",
+            () -> assertEquals(2, chunks.size(), "number of chunks"),
+            () -> assertEquals(ESQueryBuilder.MAX_TERMS_COUNT, chunks.get(0).size(), "full chunk"),
+            () -> assertEquals(10, chunks.get(1).size(), "remainder")
+        );
+    }
+
+    @Test
+    void projectionSourceFilterTest() throws Exception {
+        var query = new SentenceSearchQueryBuilder();
+        var detail = query.buildNativeSearchQuery(PageRequest.of(0, 10));
+        query.setProjection(Projection.SEARCH_HIT);
+        var hits = query.buildNativeSearchQuery(PageRequest.of(0, 10));
+        var ths = new ThsSearchQueryBuilder();
+        ths.setProjection(Projection.SEARCH_HIT);
+        assertAll("source filters of search hit projection",
+            () -> assertNull(detail.getSourceFilter(), "complete sentences in detail projection"),
+            () -> assertTrue(
+                List.of(hits.getSourceFilter().getExcludes()).contains("tokens.glyphs.mdcOriginal"),
+                "original hieroglyph encoding left out of sentence search hits"
+            ),
+            () -> assertNull(
+                ths.buildNativeSearchQuery(PageRequest.of(0, 10)).getSourceFilter(),
+                "complete thesaurus entry search hits"
+            ),
+            () -> assertEquals(
+                List.of("passport"), List.of(Projection.RELATED.getExcludes(ThsEntryEntity.class)),
+                "related thesaurus entries without passport"
+            )
+        );
+    }
+
 }
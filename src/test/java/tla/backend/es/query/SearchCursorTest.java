@@ -0,0 +1,67 @@
+package tla.backend.es.query;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+public class SearchCursorTest {
+
+    @Test
+    void testTokenRoundTrip() {
+        var query = new SentenceSearchQueryBuilder();
+        var cursor = new SearchCursor(
+            3, SearchCursor.signature(query.cursorSorting()), List.of("sortKey", 42)
+        );
+        var decoded = SearchCursor.decode(cursor.encode());
+        assertAll("cursor restored from token",
+            () -> assertEquals(3, decoded.getPage()),
+            () -> assertEquals(List.of("sortKey", 42), decoded.getAfter()),
+            () -> assertTrue(SearchCursor.decode(SearchCursor.START).isStart())
+        );
+        decoded.validate(query.cursorSorting());
+    }
+
+    @Test
+    void testInvalidCursor() {
+        var query = new SentenceSearchQueryBuilder();
+        var cursor = SearchCursor.decode(
+            new SearchCursor(1, SearchCursor.signature(query.cursorSorting()), List.of("x")).encode()
+        );
+        query.setSort("sortKey_desc");
+        assertAll("cursors rejected",
+            () -> assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("garbage!")),
+            () -> assertThrows(IllegalArgumentException.class, () -> cursor.validate(query.cursorSorting()))
+        );
+    }
+
+    @Test
+    void testTiebreaker() {
+        var sorts = new SentenceSearchQueryBuilder().cursorSorting();
+        assertTrue(sorts.get(sorts.size() - 1).toString().contains("\"id\""), "sorted by ID last");
+    }
+
+    @Test
+    void testPointInTimePassedOn() {
+        var query = new SentenceSearchQueryBuilder();
+        var cursor = SearchCursor.decode(
+            new SearchCursor(2, SearchCursor.signature(query.cursorSorting()), List.of("x", 1), "pit-id").encode()
+        );
+        var source = query.buildSearchSource(PageRequest.of(0, 20), cursor);
+        assertAll("point in time carried in token, page after cursor position requested",
+            () -> assertEquals("pit-id", cursor.getPit()),
+            () -> assertNull(SearchCursor.decode(SearchCursor.START).getPit(), "no point in time before first page"),
+            () -> assertEquals(List.of("x", 1), Arrays.asList(source.searchAfter())),
+            () -> assertEquals(20, source.size()),
+            () -> assertEquals(query.cursorSorting().size(), source.sorts().size())
+        );
+    }
+
+}
@@ -0,0 +1,176 @@
+package tla.backend.es.query;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import tla.backend.es.model.parts.Transcription;
+import tla.backend.es.model.parts.Transliteration;
+
+public class TranscriptionMaskTest {
+
+    /**
+     * Characters occurring in the mapping tables, plus some which don't.
+     */
+    private static final String ALPHABET = "hHiIdDtTkKuUsSaA\u0131\u0331\u0357\u0323\u0313\u0486\u032f\u032d"
+        + "\u1e6d\u1e33\u010d\u010c\u015b\u2e17\u3008\u3009\u2308\u2309\u1ec9\u021d\u02bf\ua723\ua7bd"
+        + ".-+()$>*_\u00a7{}\u2e22\u2e23\u2329\u232a\u2e2e?[] \t\n=";
+
+    /**
+     * Unicode normalization as it was implemented before the transliteration table.
+     */
+    static String legacyNormalizeUnicode(String transcription) {
+        transcription = transcription.toLowerCase();
+        transcription = transcription.replace("h\u0331", "\u1e96");
+        transcription = transcription.replace("i\u0357", "\u0131\u0357");
+        transcription = transcription.replace("d\u0331", "\u1e0f");
+        transcription = transcription.replace("t\u0331", "\u1e6f");
+        transcription = transcription.replace("h\u0323", "\u1e25");
+        transcription = transcription.replace("t\u0323", "\u1e6d");
+        transcription = transcription.replace("k\u0323", "\u1e33");
+        transcription = transcription.replace("\u1e6d", "d");
+        transcription = transcription.replace("\u010d\u0323", "\u1e0f");
+        transcription = transcription.replace("\u010d", "\u1e6f");
+        transcription = transcription.replace("\u015b", "s");
+        transcription = transcription.replace("\u1e33", "q");
+        transcription = transcription.replace("\u2e17", "=");
+        transcription = transcription.replace("\u3008", "\u2329");
+        transcription = transcription.replace("\u3009", "\u232a");
+        transcription = transcription.replace("\u2308", "\u2e22");
+        transcription = transcription.replace("\u2309", "\u2e23");
+        transcription = transcription.replace("\u1ec9", "\u0131\u0357");
+        transcription = transcription.replace("i\u0486", "\u0131\u0357");
+        transcription = transcription.replace("i\u0313", "\u0131\u0357");
+        transcription = transcription.replace("\u021d", "\ua723");
+        transcription = transcription.replace("\u02bf", "\ua725");
+        transcription = transcription.replace("i\u032f", "i");
+        transcription = transcription.replace("u\u032f", "u");
+        transcription = transcription.replace("\u0131\u0357", "\ua7bd");
+        transcription = transcription.replace("h\u032d", "\u0125");
+        return transcription;
+    }
+
+    /**
+     * Regex escaping as it was implemented before the transliteration table.
+     */
+    static String legacyMaskRegExTranscription(String transcription) {
+        transcription = transcription.trim();
+        transcription = transcription.replaceAll("\\s+", " ");
+        transcription = transcription.replace(".", "\\.");
+        transcription = transcription.replace("-", "\\-");
+        transcription = transcription.replace("+", "\\+");
+        transcription = transcription.replace(")", ")?");
+        for (String ignored : List.of("{", "}", "\u2e22", "\u2e23", "\u2329", "\u232a", "\u2e2e")) {
+            transcription = transcription.replace(ignored, "");
+        }
+        transcription = transcription.replace("\u00a7", ".");
+        transcription = transcription.replace("_", ".");
+        transcription = transcription.replace("*", ".*");
+        if (transcription.endsWith("$")) {
+            transcription = transcription.replace("$", "");
+        } else if (!transcription.endsWith(".*")) {
+            transcription = transcription + ".*";
+        }
+        if (transcription.startsWith(">")) {
+            transcription = transcription.replace(">", "");
+            transcription = "(.+[\\- ])?" + transcription;
+        } else if (transcription.startsWith("\\-")) {
+            transcription = "(.+)?" + transcription;
+        }
+        return transcription;
+    }
+
+    private static List<String> samples() {
+        List<String> samples = new ArrayList<>(
+            List.of(
+                "", "  ", "nfr", "nfr-\u1e25r", " >nfr ", "-t\u0323  i\u0357 ", "\u02bfn\u1e96*$",
+                "\u1ec9\u021d.w", "(w)\u2e17f", "\u2308s\u0331\u2309", "I\u0357H\u0331", "i\u032f\u0357"
+            )
+        );
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder sample = new StringBuilder();
+            for (int j = random.nextInt(12); j > 0; j--) {
+                sample.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            samples.add(sample.toString());
+        }
+        return samples;
+    }
+
+    @Test
+    @DisplayName("single-pass normalization and escaping should equal chained replacements")
+    void sameAsLegacy() {
+        var query = new LemmaSearchQueryBuilder();
+        for (String sample : samples()) {
+            assertAll("transliteration of '" + sample + "'",
+                () -> assertEquals(legacyNormalizeUnicode(sample), query.normalizeUnicode(sample), "normalized"),
+                () -> assertEquals(legacyMaskRegExTranscription(sample), query.maskRegExTranscription(sample), "masked"),
+                () -> assertEquals(
+                    legacyMaskRegExTranscription(legacyNormalizeUnicode(sample)),
+                    LemmaSearchQueryBuilder.anchorRegExTranscription(
+                        LemmaSearchQueryBuilder.UNICODE_REGEX.apply(sample)
+                    ),
+                    "normalized and masked"
+                )
+            );
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "nfr", "n fr"})
+    void unchangedInputShouldNotBeCopied(String input) {
+        assertSame(input, LemmaSearchQueryBuilder.REGEX_MASK.apply(input));
+    }
+
+    @Test
+    void longestSequenceShouldWin() {
+        var transliteration = new Transliteration.Builder().map("a", "1").map("ab", "2").map("abc", "3").build();
+        assertEquals("12x3", transliteration.apply("aabxabc"));
+    }
+
+    @Test
+    void compositionRequiresSingleCharacterMappings() {
+        var first = new Transliteration.Builder().map("a", "b").build();
+        var second = new Transliteration.Builder().map("bb", "c").build();
+        assertThrows(IllegalArgumentException.class, () -> first.andThen(second));
+    }
+
+    @Test
+    void charFilterShouldCoverCaseVariants() {
+        var transliteration = new Transliteration.Builder().lowerCase().map("h\u0331", "\u1e96").map("\u0131", "i").build();
+        assertEquals(
+            List.of("h\\u0331 => \\u1e96", "H\\u0331 => \\u1e96", "\\u0131 => i"),
+            transliteration.toCharFilterMappings()
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"lemma", "sentence"})
+    @DisplayName("transcription char filter of index settings should be generated from normalization table")
+    void charFilterMatchesNormalization(String index) throws Exception {
+        try (InputStream settings = getClass().getResourceAsStream(
+            String.format("/elasticsearch/settings/indices/%s.json", index)
+        )) {
+            JsonNode filter = new ObjectMapper().readTree(settings).findValue("transcription_unicode_normalizer");
+            List<String> mappings = new ArrayList<>();
+            filter.get("mappings").forEach(rule -> mappings.add(rule.asText()));
+            assertEquals(Transcription.NORMALIZATION.toCharFilterMappings(), mappings);
+        }
+    }
+
+}
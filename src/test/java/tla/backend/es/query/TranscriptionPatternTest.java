@@ -0,0 +1,92 @@
+package tla.backend.es.query;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.elasticsearch.index.query.MatchPhraseQueryBuilder;
+import org.elasticsearch.index.query.PrefixQueryBuilder;
+import org.elasticsearch.index.query.RegexpQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import tla.backend.es.query.TranscriptionPattern.Kind;
+
+public class TranscriptionPatternTest {
+
+    private static TranscriptionPattern pattern(String input) {
+        return TranscriptionPattern.of(new LemmaSearchQueryBuilder().maskRegExTranscription(input));
+    }
+
+    @ParameterizedTest
+    @CsvSource(
+        delimiter = '|',
+        value = {
+            "nfr|PREFIX|nfr",
+            "nfr$|EQUALS|nfr",
+            "sn.t|PREFIX|sn.t",
+            "1000+|PREFIX|1000+",
+            "*|PREFIX|''",
+            "*nfr$|SUFFIX|nfr",
+            "*nfr|INFIX|nfr",
+            "-nfr|INFIX|-nfr",
+            "-nfr$|SUFFIX|-nfr",
+            ">nfr|SEGMENT_PREFIX|nfr",
+            ">nfr ḥr|SEGMENT_PREFIX|nfr ḥr",
+            ">nfr$|SEGMENT_EQUALS|nfr",
+        }
+    )
+    void literalPatterns(String input, Kind kind, String text) {
+        var pattern = pattern(input);
+        assertAll("classification of '" + input + "'",
+            () -> assertEquals(kind, pattern.getKind(), "kind"),
+            () -> assertEquals(text, pattern.getText(), "literal text")
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"(j)mn", "j?mn", "j[fw]n", "j*n", "j_n", "j§n", "*nf", ">*nfr", "-n"})
+    void regexPatterns(String input) {
+        var pattern = pattern(input);
+        assertAll("classification of '" + input + "'",
+            () -> assertEquals(Kind.REGEXP, pattern.getKind(), "kind"),
+            () -> assertTrue(
+                pattern.toQuery("transcription.unicode", true) instanceof RegexpQueryBuilder,
+                "regexp query"
+            )
+        );
+    }
+
+    @Test
+    void subfieldQueries() {
+        var suffix = (PrefixQueryBuilder) pattern("*nfr$").toQuery("transcription.unicode", true);
+        var infix = (MatchPhraseQueryBuilder) pattern("*nfr").toQuery("transcription.unicode", true);
+        var segment = (TermQueryBuilder) pattern(">nfr ḥr$").toQuery("transcription.unicode", true);
+        assertAll("queries on subfields",
+            () -> assertEquals("transcription.unicode.reverse", suffix.fieldName(), "suffix field"),
+            () -> assertEquals("rfn", suffix.value(), "reversed suffix"),
+            () -> assertEquals("transcription.unicode.ngram", infix.fieldName(), "infix field"),
+            () -> assertEquals("nfr", infix.value(), "infix"),
+            () -> assertEquals("transcription.unicode.segments", segment.fieldName(), "segment field"),
+            () -> assertEquals("nfr- ḥr", segment.value(), "segment with marked blank")
+        );
+    }
+
+    @Test
+    void fieldWithoutSubfields() {
+        assertAll("only prefix and term queries without subfields",
+            () -> assertTrue(
+                pattern("nfr").toQuery("relations.root.name", false) instanceof PrefixQueryBuilder,
+                "prefix query"
+            ),
+            () -> assertTrue(
+                pattern("*nfr").toQuery("relations.root.name", false) instanceof RegexpQueryBuilder,
+                "regexp query"
+            )
+        );
+    }
+
+}
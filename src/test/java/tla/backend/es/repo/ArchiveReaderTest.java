@@ -0,0 +1,157 @@
+package tla.backend.es.repo;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ArchiveReaderTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Records what it is handed over, and indexes documents of known types right away.
+     */
+    static class RecordingSink implements ArchiveReader.Sink {
+        final Map<String, String> added = new ConcurrentHashMap<>();
+        final Map<String, List<String>> deleted = new ConcurrentHashMap<>();
+        final Set<String> incomplete = ConcurrentHashMap.newKeySet();
+        List<IngestCheckpoint> checkpoints;
+
+        @Override
+        public boolean add(String type, byte[] json, long entry) {
+            this.added.put(new String(json, StandardCharsets.UTF_8), type + "@" + ArchiveReader.archiveOf(entry));
+            if (!Set.of("lemma", "ths").contains(type)) {
+                return false;
+            }
+            this.checkpoints.get(ArchiveReader.archiveOf(entry)).complete(ArchiveReader.positionOf(entry), type);
+            return true;
+        }
+
+        @Override
+        public void delete(String type, List<String> ids) {
+            this.deleted.put(type, ids);
+        }
+
+        @Override
+        public void incomplete(String reason) {
+            this.incomplete.add(reason);
+        }
+    }
+
+    private File archive(String name, String... entries) throws IOException {
+        Path file = dir.resolve(name);
+        try (var tar = new TarArchiveOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+            for (int i = 0; i < entries.length; i += 2) {
+                var entry = new TarArchiveEntry(entries[i]);
+                byte[] content = entries[i + 1] != null ? entries[i + 1].getBytes(StandardCharsets.UTF_8) : new byte[0];
+                entry.setSize(content.length);
+                tar.putArchiveEntry(entry);
+                tar.write(content);
+                tar.closeArchiveEntry();
+            }
+        }
+        return file.toFile();
+    }
+
+    private File corpus() throws IOException {
+        return archive(
+            "corpus.tar.gz",
+            "corpus/lemma/", null,
+            "corpus/lemma/1.json", "{\"id\":\"1\"}",
+            "corpus/lemma/2.json", "{\"id\":\"2\"}",
+            "corpus/lemma/_deleted", "4\n5\n",
+            "corpus/ths/", null,
+            "corpus/ths/a.json", "{\"id\":\"a\"}",
+            "corpus/other/x.json", "{\"id\":\"x\"}"
+        );
+    }
+
+    private static boolean read(List<File> archives, List<IngestCheckpoint> checkpoints, RecordingSink sink) throws Exception {
+        sink.checkpoints = checkpoints;
+        return ArchiveReader.readAll(
+            archives, checkpoints, archives.size(),
+            archive -> new GZIPInputStream(new FileInputStream(archive)),
+            sink
+        );
+    }
+
+    @Test
+    void testEntryKey() {
+        long key = ArchiveReader.entryKey(3, 70000);
+        assertAll("archive and position recovered from key",
+            () -> assertEquals(3, ArchiveReader.archiveOf(key)),
+            () -> assertEquals(70000, ArchiveReader.positionOf(key))
+        );
+    }
+
+    @Test
+    void testConcurrentArchivesKeepOwnCheckpoints() throws Exception {
+        File corpus = corpus();
+        File changes = archive("changes.tar.gz", "changes/lemma/3.json", "{\"id\":\"3\"}");
+        var checkpoints = List.of(
+            IngestCheckpoint.open(dir.resolve("corpus.checkpoint"), corpus, false, Long.MAX_VALUE),
+            IngestCheckpoint.open(dir.resolve("changes.checkpoint"), changes, false, Long.MAX_VALUE)
+        );
+        var sink = new RecordingSink();
+        boolean complete = read(List.of(corpus, changes), checkpoints, sink);
+        assertAll("both archives read, each into its own checkpoint",
+            () -> assertTrue(complete, "read completely"),
+            () -> assertEquals(
+                Map.of(
+                    "{\"id\":\"1\"}", "lemma@0",
+                    "{\"id\":\"2\"}", "lemma@0",
+                    "{\"id\":\"a\"}", "ths@0",
+                    "{\"id\":\"x\"}", "other@0",
+                    "{\"id\":\"3\"}", "lemma@1"
+                ),
+                sink.added,
+                "documents with directory and archive"
+            ),
+            () -> assertEquals(Map.of("lemma", List.of("4", "5")), sink.deleted, "deleted list"),
+            () -> assertEquals("7 archive entries committed {lemma=2, ths=1}", checkpoints.get(0).toString()),
+            () -> assertEquals("1 archive entries committed {lemma=1}", checkpoints.get(1).toString()),
+            () -> assertTrue(sink.incomplete.isEmpty(), "nothing skipped")
+        );
+    }
+
+    @Test
+    void testResumeSkipsCommittedEntries() throws Exception {
+        File corpus = corpus();
+        Path file = dir.resolve("corpus.checkpoint");
+        var interrupted = IngestCheckpoint.open(file, corpus, false, Long.MAX_VALUE);
+        interrupted.complete(0, null);
+        interrupted.complete(1, "lemma");
+        interrupted.complete(2, "lemma");
+        interrupted.save();
+        var checkpoints = List.of(IngestCheckpoint.open(file, corpus, true, Long.MAX_VALUE));
+        var sink = new RecordingSink();
+        boolean complete = read(List.of(corpus), checkpoints, sink);
+        assertAll("only entries after checkpoint read",
+            () -> assertTrue(complete, "read completely"),
+            () -> assertEquals(Set.of("{\"id\":\"a\"}", "{\"id\":\"x\"}"), sink.added.keySet(), "remaining documents"),
+            () -> assertEquals(Set.of("lemma"), sink.deleted.keySet(), "deleted list after checkpoint"),
+            () -> assertEquals("7 archive entries committed {lemma=2, ths=1}", checkpoints.get(0).toString()),
+            () -> assertEquals(1, sink.incomplete.size(), "sink told about skipped entries")
+        );
+    }
+
+}
@@ -0,0 +1,49 @@
+package tla.backend.es.repo;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.jupiter.api.Test;
+
+public class BatchSizerTest {
+
+    @Test
+    void testAdditiveIncreaseMultiplicativeDecrease() {
+        var sizer = new BatchSizer(100, 1000, 400, 50);
+        sizer.completed(10);
+        assertEquals(500, sizer.getLimit(), "fast request grows limit by min size");
+        sizer.completed(100);
+        assertEquals(375, sizer.getLimit(), "slow request shrinks limit by a quarter");
+        sizer.rejected();
+        assertEquals(187, sizer.getLimit(), "rejection halves limit");
+        sizer.rejected();
+        sizer.rejected();
+        assertEquals(100, sizer.getLimit(), "limit not below min size");
+        for (int i = 0; i < 20; i++) {
+            sizer.completed(0);
+        }
+        assertEquals(1000, sizer.getLimit(), "limit not above max size");
+    }
+
+    @Test
+    void testRejectionDetection() {
+        assertAll("recognize back-pressure",
+            () -> assertTrue(
+                BatchSizer.isRejection(
+                    new RuntimeException(new ElasticsearchStatusException("busy", RestStatus.TOO_MANY_REQUESTS))
+                )
+            ),
+            () -> assertTrue(
+                BatchSizer.isRejection(new RuntimeException("type=es_rejected_execution_exception"))
+            ),
+            () -> assertFalse(
+                BatchSizer.isRejection(new ElasticsearchStatusException("bad", RestStatus.BAD_REQUEST))
+            )
+        );
+    }
+
+}
@@ -0,0 +1,37 @@
+package tla.backend.es.repo;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+public class DeltaFilterTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static JsonNode doc(String name, String updated) throws Exception {
+        return mapper.readTree(
+            String.format(
+                "{\"id\":\"1\",\"name\":\"%s\",\"editors\":{\"author\":\"x\",\"updated\":\"%s\"}}",
+                name, updated
+            )
+        );
+    }
+
+    @Test
+    void testChangeDetection() throws Exception {
+        JsonNode indexed = doc("nfr", "2021-03-01");
+        assertAll("incoming document compared with indexed version",
+            () -> assertFalse(DeltaFilter.isChanged(doc("nfr", "2021-03-01"), indexed), "identical"),
+            () -> assertTrue(DeltaFilter.isChanged(doc("nfr.w", "2021-03-01"), indexed), "edited same day"),
+            () -> assertTrue(DeltaFilter.isChanged(doc("nfr.w", "2021-04-01"), indexed), "edited later"),
+            () -> assertFalse(DeltaFilter.isChanged(doc("nfr.w", "2020-01-01"), indexed), "indexed version newer"),
+            () -> assertTrue(DeltaFilter.isChanged(mapper.readTree("{\"id\":\"1\"}"), indexed), "no edit date")
+        );
+    }
+
+}
@@ -0,0 +1,89 @@
+package tla.backend.es.repo;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.junit.jupiter.api.Test;
+
+public class IndexGenerationsTest {
+
+    private static String describe(AliasActions action) {
+        return String.format(
+            "%s %s %s",
+            action.actionType(),
+            String.join(",", action.indices()),
+            action.aliases() != null ? String.join(",", action.aliases()) : ""
+        ).trim();
+    }
+
+    @Test
+    void testSwapRequest() {
+        Map<String, String> targets = new LinkedHashMap<>();
+        targets.put("lemma", "lemma_2");
+        targets.put("ths", "ths_2");
+        targets.put("text", "text_2");
+        List<String> replaced = new ArrayList<>();
+        var request = IndexGenerations.swapRequest(
+            targets,
+            Map.of("lemma", Set.of("lemma_1"), "ths", Set.of(), "text", Set.of("text_2")),
+            Set.of("ths"),
+            replaced
+        );
+        assertAll("all aliases moved in one request",
+            () -> assertEquals(
+                List.of(
+                    "REMOVE lemma_1 lemma",
+                    "ADD lemma_2 lemma",
+                    "REMOVE_INDEX ths",
+                    "ADD ths_2 ths",
+                    "ADD text_2 text"
+                ),
+                request.getAliasActions().stream().map(IndexGenerationsTest::describe).collect(Collectors.toList()),
+                "alias actions"
+            ),
+            () -> assertEquals(List.of("lemma_1"), replaced, "replaced generations")
+        );
+    }
+
+    @Test
+    void testGenerationNames() {
+        assertAll("only alias followed by release identifier is a generation",
+            () -> assertTrue(IndexGenerations.isGeneration("text", "text_20230101-120000")),
+            () -> assertTrue(IndexGenerations.isGeneration("text", IndexGenerations.physicalName("text", IndexGenerations.normalizeRelease("Release 2.1")))),
+            () -> assertFalse(IndexGenerations.isGeneration("text", "text_word_index")),
+            () -> assertFalse(IndexGenerations.isGeneration("text", "text_")),
+            () -> assertFalse(IndexGenerations.isGeneration("text", "text")),
+            () -> assertFalse(IndexGenerations.isGeneration("text", "textual_1"))
+        );
+    }
+
+    @Test
+    void testOldGenerations() {
+        var indices = List.of(
+            "text_20230101-120000", "text_20240101-120000", "text_20250101-120000", "text_word_index", "text_backup_1"
+        );
+        assertAll("delete generations other than current and kept ones",
+            () -> assertEquals(
+                List.of("text_20230101-120000", "text_20240101-120000"),
+                IndexGenerations.oldGenerations("text", indices, "text_20250101-120000", List.of()),
+                "previous generation not kept"
+            ),
+            () -> assertEquals(
+                List.of("text_20230101-120000"),
+                IndexGenerations.oldGenerations("text", indices, "text_20250101-120000", List.of("text_20240101-120000")),
+                "previous generation kept"
+            )
+        );
+    }
+
+}
@@ -0,0 +1,87 @@
+package tla.backend.es.repo;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class IngestCheckpointTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testWatermarkAdvancesContiguously() throws Exception {
+        File archive = Files.writeString(dir.resolve("a.tar.gz"), "archive").toFile();
+        Path file = dir.resolve("a.checkpoint");
+        var checkpoint = IngestCheckpoint.open(file, archive, false, Long.MAX_VALUE);
+        checkpoint.complete(1, "lemma");
+        checkpoint.complete(2, null);
+        assertEquals(0, checkpoint.getCommitted(), "gap at entry 0");
+        checkpoint.complete(0, "lemma");
+        checkpoint.complete(4, "ths");
+        assertEquals(3, checkpoint.getCommitted(), "entries 0-2 committed");
+        checkpoint.save();
+        var resumed = IngestCheckpoint.open(file, archive, true, Long.MAX_VALUE);
+        assertAll("checkpoint resumed from file",
+            () -> assertEquals(3, resumed.getCommitted()),
+            () -> assertEquals("3 archive entries committed {lemma=2}", resumed.toString())
+        );
+    }
+
+    @Test
+    void testResumeOtherArchive() throws Exception {
+        File archive = Files.writeString(dir.resolve("a.tar.gz"), "archive").toFile();
+        File other = Files.writeString(dir.resolve("b.tar.gz"), "other archive").toFile();
+        Path file = dir.resolve("a.checkpoint");
+        IngestCheckpoint.open(file, archive, false, 0).save();
+        assertAll("checkpoint only valid for its archive",
+            () -> assertThrows(IllegalArgumentException.class, () -> IngestCheckpoint.open(file, other, true, 0)),
+            () -> assertEquals(0, IngestCheckpoint.open(file, other, false, 0).getCommitted())
+        );
+    }
+
+    @Test
+    void testServingSettingsSurviveInterruptedIngest() throws Exception {
+        File archive = Files.writeString(dir.resolve("a.tar.gz"), "archive").toFile();
+        Path file = dir.resolve("a.checkpoint");
+        Map<String, String> settings = new HashMap<>();
+        settings.put("index.refresh_interval", null);
+        settings.put("index.number_of_replicas", "1");
+        var checkpoint = IngestCheckpoint.open(file, archive, false, Long.MAX_VALUE);
+        checkpoint.setServing(Map.of("lemma", settings));
+        checkpoint.save();
+        assertAll("serving settings read back whether resuming or not",
+            () -> assertEquals(Map.of("lemma", settings), IngestCheckpoint.open(file, archive, true, 0).getServing()),
+            () -> assertEquals(Map.of("lemma", settings), IngestCheckpoint.open(file, archive, false, 0).getServing())
+        );
+        checkpoint.setServing(Map.of());
+        checkpoint.save();
+        assertTrue(IngestCheckpoint.open(file, archive, false, 0).getServing().isEmpty(), "restored settings forgotten");
+    }
+
+    @Test
+    void testPendingEntriesCapped() throws Exception {
+        File archive = Files.writeString(dir.resolve("a.tar.gz"), "archive").toFile();
+        var checkpoint = IngestCheckpoint.open(dir.resolve("a.checkpoint"), archive, false, Long.MAX_VALUE);
+        for (int entry = 1; entry <= IngestCheckpoint.MAX_PENDING + 10; entry++) {
+            checkpoint.complete(entry, "lemma");
+        }
+        assertEquals(0, checkpoint.getCommitted(), "gap at entry 0");
+        checkpoint.complete(0, "lemma");
+        assertEquals(
+            IngestCheckpoint.MAX_PENDING + 1, checkpoint.getCommitted(),
+            "entries beyond the pending limit forgotten"
+        );
+    }
+
+}
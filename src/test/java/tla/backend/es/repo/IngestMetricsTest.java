@@ -0,0 +1,45 @@
+package tla.backend.es.repo;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class IngestMetricsTest {
+
+    @Test
+    void testPercentiles() {
+        List<Long> values = List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        assertAll("nearest-rank percentiles",
+            () -> assertEquals(5, IngestMetrics.percentile(values, 50)),
+            () -> assertEquals(9, IngestMetrics.percentile(values, 90)),
+            () -> assertEquals(10, IngestMetrics.percentile(values, 99)),
+            () -> assertEquals(0, IngestMetrics.percentile(List.of(), 50))
+        );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testProgressAndSummary() throws Exception {
+        var metrics = new IngestMetrics();
+        var input = metrics.trackArchive(new ByteArrayInputStream(new byte[100]), 200);
+        input.readNBytes(50);
+        metrics.of("LemmaEntity").parsed(50, 1000000);
+        metrics.of("LemmaEntity").indexed(3);
+        metrics.of("LemmaEntity").bulk(20000000);
+        var types = (Map<String, Map<String, Object>>) metrics.summary().get("types");
+        assertAll("figures recorded",
+            () -> assertEquals(0.25, metrics.getProgress()),
+            () -> assertEquals(3L, types.get("LemmaEntity").get("docs")),
+            () -> assertEquals(1, types.get("LemmaEntity").get("bulkRequests")),
+            () -> assertEquals(
+                20L, ((Map<String, Long>) types.get("LemmaEntity").get("bulkLatencyMillis")).get("max")
+            )
+        );
+    }
+
+}
@@ -0,0 +1,128 @@
+package tla.backend.es.repo;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public class IngestPipelineTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void testFullQueueBlocksReader() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            try (var pipeline = new IngestPipeline(1, 1, 1)) {
+                var release = new CountDownLatch(1);
+                pipeline.process(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                var processed = new AtomicInteger();
+                var queued = CompletableFuture.runAsync(() -> {
+                    try {
+                        pipeline.process(processed::incrementAndGet);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                Thread.sleep(200);
+                assertFalse(queued.isDone(), "second document waits for a free slot");
+                release.countDown();
+                queued.get(5, TimeUnit.SECONDS);
+                pipeline.await();
+                assertEquals(1, processed.get(), "second document processed once slot is free");
+            }
+        });
+    }
+
+    @Test
+    void testBulkSendersBounded() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            int bulks = 50;
+            var running = new AtomicInteger();
+            var maxRunning = new AtomicInteger();
+            var sent = new AtomicInteger();
+            try (var pipeline = new IngestPipeline(4, 2, 10)) {
+                for (int i = 0; i < bulks; i++) {
+                    pipeline.process(() -> {
+                        try {
+                            pipeline.send(() -> {
+                                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                                try {
+                                    Thread.sleep(2);
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                                running.decrementAndGet();
+                                sent.incrementAndGet();
+                            });
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                }
+                pipeline.await();
+                assertAll("bulk requests queued by workers",
+                    () -> assertEquals(bulks, sent.get(), "all sent before await returns"),
+                    () -> assertTrue(maxRunning.get() <= 2, "at most 2 concurrent bulk requests: " + maxRunning.get())
+                );
+            }
+        });
+    }
+
+    @Test
+    void testSingleWorkerKeepsOrder() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+            try (var pipeline = new IngestPipeline(1, 1, 5)) {
+                for (int i = 0; i < 100; i++) {
+                    final int doc = i;
+                    pipeline.process(() -> processed.add(doc));
+                }
+                pipeline.await();
+            }
+            assertEquals(
+                IntStream.range(0, 100).boxed().collect(Collectors.toList()),
+                processed,
+                "documents processed in the order read"
+            );
+        });
+    }
+
+    @Test
+    void testFailedTaskDoesNotBlockAwait() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            var processed = new AtomicInteger();
+            try (var pipeline = new IngestPipeline(2, 1, 1)) {
+                pipeline.process(() -> {
+                    throw new IllegalStateException("broken document");
+                });
+                pipeline.process(processed::incrementAndGet);
+                pipeline.await();
+                assertEquals(1, processed.get(), "first phase done");
+                pipeline.process(processed::incrementAndGet);
+                pipeline.await();
+                assertEquals(2, processed.get(), "pipeline usable after await");
+            }
+        });
+    }
+
+}
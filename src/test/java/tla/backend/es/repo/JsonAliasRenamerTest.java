@@ -0,0 +1,68 @@
+package tla.backend.es.repo;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import tla.backend.es.model.SentenceEntity;
+import tla.backend.es.model.ThsEntryEntity;
+
+public class JsonAliasRenamerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static JsonNode rename(Class<?> modelClass, String json) throws Exception {
+        return MAPPER.readTree(
+            JsonAliasRenamer.of(modelClass).rename(json.getBytes(StandardCharsets.UTF_8))
+        );
+    }
+
+    @Test
+    void testTopLevelAliasRenamed() throws Exception {
+        var doc = rename(ThsEntryEntity.class, "{\"id\":\"1\",\"sort_key\":\"a\",\"name\":\"x\"}");
+        assertAll("alias replaced by property name, everything else kept",
+            () -> assertEquals("a", doc.path("sortKey").asText()),
+            () -> assertFalse(doc.has("sort_key")),
+            () -> assertEquals("1", doc.path("id").asText()),
+            () -> assertEquals("x", doc.path("name").asText())
+        );
+    }
+
+    @Test
+    void testNestedAliasesRenamed() throws Exception {
+        var doc = rename(
+            SentenceEntity.class,
+            "{\"id\":\"s1\",\"context\":{\"text\":\"T1\",\"pos\":2},\"tokens\":[{\"name\":\"nfr\","
+            + "\"flexion\":{\"bGloss\":\"adj\"},\"glyphs\":{\"mdc_compact\":\"N35\"}},{\"label\":\"w\"}],"
+            + "\"wordCount\":2}"
+        );
+        var token = doc.path("tokens").path(0);
+        assertAll("aliases in nested objects and lists of objects replaced",
+            () -> assertEquals("T1", doc.path("context").path("textId").asText()),
+            () -> assertEquals(2, doc.path("context").path("position").asInt()),
+            () -> assertEquals("nfr", token.path("label").asText()),
+            () -> assertFalse(token.has("name")),
+            () -> assertEquals("adj", token.path("flexion").path("btsGloss").asText()),
+            () -> assertEquals("N35", token.path("glyphs").path("mdcCompact").asText()),
+            () -> assertEquals("w", doc.path("tokens").path(1).path("label").asText()),
+            () -> assertEquals(2, doc.path("wordCount").asInt())
+        );
+    }
+
+    @Test
+    void testModelClassWithoutAliases() {
+        assertAll("nothing to rename",
+            () -> assertTrue(JsonAliasRenamer.of(String.class).isEmpty()),
+            () -> assertFalse(JsonAliasRenamer.of(SentenceEntity.class).isEmpty())
+        );
+    }
+
+}
@@ -0,0 +1,24 @@
+package tla.backend.es.repo;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import tla.backend.es.model.SentenceEntity;
+import tla.backend.es.model.ThsEntryEntity;
+
+public class JsonAliasesTest {
+
+    @Test
+    void aliasedPropertiesFound() {
+        var ths = JsonAliases.of(ThsEntryEntity.class);
+        var sentence = JsonAliases.of(SentenceEntity.class);
+        assertAll("aliased properties of model classes and their nested objects",
+            () -> assertTrue(ths.contains("ThsEntryEntity.sortKey"), "top level: " + ths),
+            () -> assertTrue(sentence.contains("Token.label"), "in list of nested objects: " + sentence),
+            () -> assertTrue(sentence.contains("Glyphs.mdcCompact"), "nested twice: " + sentence)
+        );
+    }
+
+}
@@ -0,0 +1,39 @@
+package tla.backend.es.repo;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import tla.backend.Util;
+import tla.backend.es.model.ThsEntryEntity;
+import tla.domain.model.Passport;
+
+public class PassportConversionTest {
+
+    private static final ObjectMapper mapper = tla.domain.util.IO.getMapper();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPassportRoundTrip() throws Exception {
+        Passport passport = Util.loadSampleFile(ThsEntryEntity.class, "E7YEQAEKZVEJ5PX7WKOXY2QEEM").getPassport();
+        Map<String, Object> converted = new RepoConfig.PassportToMap().convert(passport);
+        assertAll("passport converted to document map",
+            () -> assertEquals(
+                mapper.readValue(mapper.writeValueAsString(passport), Map.class),
+                converted,
+                "same map as from serialized JSON"
+            ),
+            () -> assertEquals(
+                mapper.writeValueAsString(passport),
+                mapper.writeValueAsString(new RepoConfig.MapToPassport().convert(converted)),
+                "passport restored"
+            )
+        );
+    }
+
+}
@@ -0,0 +1,61 @@
+package tla.backend.es.repo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class ReadAheadInputStreamTest {
+
+    @Test
+    void testReadAheadPreservesContent() throws Exception {
+        byte[] data = new byte[100000];
+        new Random(42).nextBytes(data);
+        try (var input = new ReadAheadInputStream(new ByteArrayInputStream(data), 4, 1000, "test")) {
+            assertEquals(data[0] & 0xff, input.read());
+            byte[] rest = input.readAllBytes();
+            assertEquals(data.length - 1, rest.length);
+            assertArrayEquals(Arrays.copyOfRange(data, 1, data.length), rest);
+            assertEquals(-1, input.read());
+        }
+    }
+
+    @Test
+    void testSourceFailurePropagated() throws Exception {
+        InputStream failing = new InputStream() {
+            int count = 0;
+            @Override
+            public int read() throws IOException {
+                if (count++ > 10) {
+                    throw new IOException("corrupt archive");
+                }
+                return 1;
+            }
+        };
+        try (var input = new ReadAheadInputStream(failing, 2, 4, "test")) {
+            assertThrows(IOException.class, input::readAllBytes);
+        }
+    }
+
+    @Test
+    void testUncheckedSourceFailurePropagated() throws Exception {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() {
+                throw new IllegalStateException("decompressor bug");
+            }
+        };
+        try (var input = new ReadAheadInputStream(failing, 2, 4, "test")) {
+            assertThrows(IllegalStateException.class, input::read);
+            assertEquals(-1, input.read(), "exhausted after failure");
+        }
+    }
+
+}
@@ -0,0 +1,328 @@
+package tla.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.convert.ElasticsearchConverter;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.test.context.TestPropertySource;
+
+import tla.backend.App;
+import tla.backend.es.model.LemmaEntity;
+import tla.backend.es.model.ThsEntryEntity;
+import tla.backend.es.model.meta.Indexable;
+import tla.backend.es.query.Projection;
+import tla.backend.es.repo.CorpusIngestedEvent;
+import tla.backend.service.component.EntityLookup;
+import tla.backend.service.component.EntityRetrieval;
+
+@SpringBootTest(classes = {App.class})
+@TestPropertySource(properties = {
+    "tla.search.lookup-mode=multi-get", "tla.cache.entity-cache-eclasses=BTSThsEntry", "tla.cache.entity-cache-size=100",
+    "tla.cache.release-check-interval=0"
+})
+public class EntityLookupTest {
+
+    @MockBean
+    private RestHighLevelClient restClient;
+
+    @MockBean
+    private ElasticsearchOperations operations;
+
+    @Autowired
+    private ElasticsearchConverter converter;
+
+    @Autowired
+    private EntityLookup lookup;
+
+    @Autowired
+    private ThesaurusService thsService;
+
+    @Autowired
+    private LemmaService lemmaService;
+
+    @BeforeEach
+    void setupOperations() {
+        when(operations.getElasticsearchConverter()).thenReturn(converter);
+        when(operations.getIndexCoordinatesFor(ThsEntryEntity.class)).thenReturn(IndexCoordinates.of("ths"));
+        when(operations.getIndexCoordinatesFor(LemmaEntity.class)).thenReturn(IndexCoordinates.of("lemma"));
+    }
+
+    private static Map<String, Object> source(String id, String eclass) {
+        return Map.of("id", id, "eclass", eclass, "name", "name of " + id);
+    }
+
+    /**
+     * Multi-search response with the hits of each lookup query in request order.
+     */
+    private static MultiSearchResponse msearchResponse(List<String> ids, String eclass) {
+        MultiSearchResponse.Item[] items = ids.stream().map(
+            id -> {
+                SearchHit[] hits = new SearchHit[0];
+                if (id != null) {
+                    SearchHit hit = mock(SearchHit.class);
+                    when(hit.getId()).thenReturn(id);
+                    when(hit.getSourceAsMap()).thenReturn(source(id, eclass));
+                    hits = new SearchHit[] {hit};
+                }
+                SearchHits searchHits = mock(SearchHits.class);
+                when(searchHits.getHits()).thenReturn(hits);
+                SearchResponse response = mock(SearchResponse.class);
+                when(response.getHits()).thenReturn(searchHits);
+                return new MultiSearchResponse.Item(response, null);
+            }
+        ).toArray(MultiSearchResponse.Item[]::new);
+        return new MultiSearchResponse(items, 1);
+    }
+
+    /**
+     * Multi-get response in request order; documents of which no eclass is given do not exist,
+     * and retrieval of documents with a <code>null</code> eclass has failed.
+     */
+    private static MultiGetResponse mgetResponse(Map<String, String> eclasses) {
+        MultiGetItemResponse[] items = eclasses.entrySet().stream().map(
+            doc -> {
+                if (doc.getValue() == null) {
+                    MultiGetResponse.Failure failure = mock(MultiGetResponse.Failure.class);
+                    when(failure.getMessage()).thenReturn("shard unavailable");
+                    MultiGetItemResponse item = mock(MultiGetItemResponse.class);
+                    when(item.getId()).thenReturn(doc.getKey());
+                    when(item.getIndex()).thenReturn("ths_2");
+                    when(item.isFailed()).thenReturn(true);
+                    when(item.getFailure()).thenReturn(failure);
+                    return item;
+                }
+                GetResponse response = mock(GetResponse.class);
+                when(response.isExists()).thenReturn(!doc.getValue().isEmpty());
+                when(response.getSourceAsMap()).thenReturn(
+                    doc.getValue().isEmpty() ? null : source(doc.getKey(), doc.getValue())
+                );
+                MultiGetItemResponse item = mock(MultiGetItemResponse.class);
+                when(item.getId()).thenReturn(doc.getKey());
+                when(item.getIndex()).thenReturn(
+                    doc.getValue().equals("BTSLemmaEntry") ? "lemma_2" : "ths_2"
+                );
+                when(item.getResponse()).thenReturn(response);
+                return item;
+            }
+        ).toArray(MultiGetItemResponse[]::new);
+        return new MultiGetResponse(items);
+    }
+
+    @Test
+    void testLookupQueriesInOrderOfPrecedence() {
+        var queries = thsService.getLookupQueries("ABC");
+        assertEquals(
+            List.of(
+                QueryBuilders.matchQuery("hash", "ABC").operator(Operator.AND),
+                QueryBuilders.idsQuery().addIds("ABC"),
+                QueryBuilders.idsQuery().addIds("ABC-0")
+            ),
+            queries,
+            "short ID, ID, then sentence variant"
+        );
+    }
+
+    @Test
+    void testFindFirstTakesFirstQueryWithHits() throws Exception {
+        var request = ArgumentCaptor.forClass(MultiSearchRequest.class);
+        var response = msearchResponse(Arrays.asList(null, "ABC", "ABC-0"), "BTSThsEntry");
+        when(
+            restClient.msearch(request.capture(), any(RequestOptions.class))
+        ).thenReturn(
+            response
+        );
+        ThsEntryEntity term = thsService.retrieveDetails("ABC");
+        var searches = request.getValue().requests();
+        assertAll("one multi-search request for all lookup queries",
+            () -> assertNotNull(term, "document found"),
+            () -> assertEquals("ABC", term.getId(), "hit of ID query preferred over sentence variant"),
+            () -> assertEquals(3, searches.size(), "queries"),
+            () -> assertTrue(searches.stream().allMatch(s -> List.of("ths").equals(List.of(s.indices()))), "index"),
+            () -> assertTrue(searches.stream().allMatch(s -> s.source().size() == 1), "one hit per query"),
+            () -> assertEquals(
+                thsService.getLookupQueries("ABC"),
+                searches.stream().map(s -> s.source().query()).collect(Collectors.toList()),
+                "queries in order of precedence"
+            )
+        );
+    }
+
+    @Test
+    void testFindFirstFallsBackToSentenceVariant() throws Exception {
+        var response = msearchResponse(Arrays.asList(null, "ABC-0"), "BTSLemmaEntry");
+        when(
+            restClient.msearch(any(MultiSearchRequest.class), any(RequestOptions.class))
+        ).thenReturn(
+            response
+        );
+        LemmaEntity lemma = lemmaService.retrieveDetails("ABC");
+        assertAll("variant -0 returned if there is no document with the requested ID",
+            () -> assertNotNull(lemma, "variant found"),
+            () -> assertEquals("ABC-0", lemma.getId())
+        );
+    }
+
+    @Test
+    void testFindFirstWithoutHits() throws Exception {
+        var response = msearchResponse(Arrays.asList(null, null), "BTSLemmaEntry");
+        when(
+            restClient.msearch(any(MultiSearchRequest.class), any(RequestOptions.class))
+        ).thenReturn(
+            response
+        );
+        assertNull(lemmaService.retrieveDetails("ABC"), "nothing found");
+    }
+
+    @Test
+    void testMultiGetAcrossIndices() throws Exception {
+        Map<String, String> docs = new LinkedHashMap<>();
+        docs.put("t1", "BTSThsEntry");
+        docs.put("t2", "");
+        docs.put("l1", "BTSLemmaEntry");
+        var request = ArgumentCaptor.forClass(MultiGetRequest.class);
+        var response = mgetResponse(docs);
+        when(
+            restClient.mget(request.capture(), any(RequestOptions.class))
+        ).thenReturn(
+            response
+        );
+        Map<String, Set<String>> refs = new LinkedHashMap<>();
+        refs.put("BTSThsEntry", new LinkedHashSet<>(List.of("t1", "t2")));
+        refs.put("BTSLemmaEntry", new LinkedHashSet<>(List.of("l1")));
+        Map<String, List<Indexable>> found = lookup.multiGet(refs, Projection.RELATED);
+        assertAll("documents from concrete indices grouped by eclass of requested alias",
+            () -> assertEquals(
+                List.of("ths", "ths", "lemma"),
+                request.getValue().getItems().stream().map(MultiGetRequest.Item::index).collect(Collectors.toList()),
+                "one request for all indices"
+            ),
+            () -> assertEquals(Set.of("BTSThsEntry", "BTSLemmaEntry"), found.keySet(), "eclasses"),
+            () -> assertEquals(
+                List.of("t1"),
+                found.get("BTSThsEntry").stream().map(Indexable::getId).collect(Collectors.toList()),
+                "missing document left out"
+            ),
+            () -> assertTrue(found.get("BTSThsEntry").get(0) instanceof ThsEntryEntity, "thesaurus entry"),
+            () -> assertTrue(found.get("BTSLemmaEntry").get(0) instanceof LemmaEntity, "lemma")
+        );
+    }
+
+    @Test
+    void testResolveReportsMissing() throws Exception {
+        Map<String, String> docs = new LinkedHashMap<>();
+        docs.put("t3", "BTSThsEntry");
+        docs.put("t4", "");
+        var response = mgetResponse(docs);
+        when(
+            restClient.mget(any(MultiGetRequest.class), any(RequestOptions.class))
+        ).thenReturn(
+            response
+        );
+        var bulk = EntityRetrieval.BulkEntityResolver.of(Map.of("BTSThsEntry", List.of("t3", "t4")));
+        var resolved = lookup.resolve(bulk, Projection.DETAIL);
+        assertAll("found documents in queue order, missing ones reported",
+            () -> assertEquals(List.of("t3"), resolved.stream().map(Indexable::getId).collect(Collectors.toList())),
+            () -> assertEquals(Map.of("BTSThsEntry", Set.of("t4")), bulk.getMissing())
+        );
+    }
+
+    @Test
+    void testResolveFromCache() throws Exception {
+        lookup.onCorpusIngested(new CorpusIngestedEvent(this, null));
+        Map<String, String> docs = new LinkedHashMap<>();
+        docs.put("c1", "BTSThsEntry");
+        docs.put("c2", "");
+        var response = mgetResponse(docs);
+        when(
+            restClient.mget(any(MultiGetRequest.class), any(RequestOptions.class))
+        ).thenReturn(
+            response
+        );
+        var stats = lookup.getCacheStats().get("BTSThsEntry");
+        long hits = stats.getHits().get();
+        long negativeHits = stats.getNegativeHits().get();
+        long misses = stats.getMisses().get();
+        Map<String, List<String>> refs = Map.of("BTSThsEntry", List.of("c1", "c2"));
+        var first = lookup.resolve(EntityRetrieval.BulkEntityResolver.of(refs));
+        var bulk = EntityRetrieval.BulkEntityResolver.of(refs);
+        var second = lookup.resolve(bulk);
+        verify(restClient, times(1)).mget(any(MultiGetRequest.class), any(RequestOptions.class));
+        assertAll("second lookup answered from cache, including missing document",
+            () -> assertEquals(List.of("c1"), first.stream().map(Indexable::getId).collect(Collectors.toList())),
+            () -> assertEquals(List.of("c1"), second.stream().map(Indexable::getId).collect(Collectors.toList())),
+            () -> assertEquals(Map.of("BTSThsEntry", Set.of("c2")), bulk.getMissing(), "missing from cache"),
+            () -> assertEquals(2, stats.getMisses().get() - misses, "misses"),
+            () -> assertEquals(1, stats.getHits().get() - hits, "hits"),
+            () -> assertEquals(1, stats.getNegativeHits().get() - negativeHits, "negative hits")
+        );
+        lookup.onCorpusIngested(new CorpusIngestedEvent(this, null));
+        lookup.resolve(EntityRetrieval.BulkEntityResolver.of(refs));
+        verify(restClient, times(2)).mget(any(MultiGetRequest.class), any(RequestOptions.class));
+    }
+
+    @Test
+    void testFailedLookupNotCachedAsMissing() throws Exception {
+        lookup.onCorpusIngested(new CorpusIngestedEvent(this, null));
+        Map<String, String> docs = new LinkedHashMap<>();
+        docs.put("f1", null);
+        docs.put("f2", "");
+        var response = mgetResponse(docs);
+        when(
+            restClient.mget(any(MultiGetRequest.class), any(RequestOptions.class))
+        ).thenReturn(
+            response
+        );
+        var first = EntityRetrieval.BulkEntityResolver.of(Map.of("BTSThsEntry", List.of("f1", "f2")));
+        lookup.resolve(first);
+        var request = ArgumentCaptor.forClass(MultiGetRequest.class);
+        var second = EntityRetrieval.BulkEntityResolver.of(Map.of("BTSThsEntry", List.of("f1", "f2")));
+        lookup.resolve(second);
+        verify(restClient, times(2)).mget(request.capture(), any(RequestOptions.class));
+        assertAll("document which could not be retrieved looked up again",
+            () -> assertEquals(Map.of("BTSThsEntry", Set.of("f1", "f2")), first.getMissing(), "both reported missing"),
+            () -> assertEquals(
+                List.of("f1"),
+                request.getValue().getItems().stream().map(MultiGetRequest.Item::id).collect(Collectors.toList()),
+                "only failed document requested again"
+            )
+        );
+    }
+
+}
@@ -25,6 +25,7 @@ import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.data.elasticsearch.core.SearchHitsImpl;
 import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+import org.springframework.test.context.TestPropertySource;
 
 import tla.backend.App;
 import tla.backend.Util;
@@ -43,6 +44,9 @@ import tla.domain.dto.extern.SingleDocumentWrapper;
 import tla.domain.model.Language;
 
 @SpringBootTest(classes = {App.class})
+@TestPropertySource(properties = {
+    "tla.search.lookup-mode=sequential", "tla.cache.entity-cache-size=0", "tla.cache.response-cache-size=0"
+})
 public class SentenceServiceTest {
 
     @MockBean
@@ -0,0 +1,67 @@
+package tla.backend.service.component;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import tla.backend.es.model.meta.Indexable;
+
+public class EntityCacheTest {
+
+    @Test
+    void testReadThrough() {
+        var cache = new EntityCache(List.of("BTSThsEntry"), 2);
+        Indexable term = () -> "1";
+        assertNull(cache.get("BTSThsEntry", "1"), "not cached yet");
+        cache.put("BTSThsEntry", term, cache.getGeneration());
+        cache.putMissing("BTSThsEntry", Set.of("2"), cache.getGeneration());
+        var stats = cache.getStats().get("BTSThsEntry");
+        assertAll("cached entities and missing IDs",
+            () -> assertSame(term, cache.get("BTSThsEntry", "1")),
+            () -> assertSame(EntityCache.MISSING, cache.get("BTSThsEntry", "2")),
+            () -> assertEquals(1, stats.getHits().get()),
+            () -> assertEquals(1, stats.getNegativeHits().get()),
+            () -> assertEquals(1, stats.getMisses().get()),
+            () -> assertEquals(2. / 3, stats.getHitRate(), .001)
+        );
+    }
+
+    @Test
+    void testBoundsAndInvalidation() {
+        var cache = new EntityCache(List.of("BTSThsEntry"), 2);
+        List.of("1", "2", "3").forEach(
+            id -> cache.put("BTSThsEntry", () -> id, cache.getGeneration())
+        );
+        assertNull(cache.get("BTSThsEntry", "1"), "least recently used entity evicted");
+        cache.clear();
+        cache.put("BTSText", () -> "4", cache.getGeneration());
+        assertAll("cache emptied, other eclasses not cached",
+            () -> assertNull(cache.get("BTSThsEntry", "3")),
+            () -> assertNull(cache.get("BTSText", "4")),
+            () -> assertFalse(cache.isCached("BTSText"))
+        );
+    }
+
+    @Test
+    void testWritesFromBeforeClearDropped() {
+        var cache = new EntityCache(List.of("BTSThsEntry"), 2);
+        long generation = cache.getGeneration();
+        cache.clear();
+        cache.put("BTSThsEntry", () -> "1", generation);
+        cache.putMissing("BTSThsEntry", Set.of("2"), generation);
+        cache.put("BTSThsEntry", () -> "3", cache.getGeneration());
+        assertAll("only entities retrieved after clearing cached",
+            () -> assertNull(cache.get("BTSThsEntry", "1")),
+            () -> assertNull(cache.get("BTSThsEntry", "2")),
+            () -> assertEquals("3", cache.get("BTSThsEntry", "3").getId())
+        );
+    }
+
+}
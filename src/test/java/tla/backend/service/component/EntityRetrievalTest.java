@@ -8,6 +8,7 @@ import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 
+import tla.backend.es.model.meta.Indexable;
 import tla.backend.es.model.parts.ObjectReference;
 import tla.domain.model.meta.Resolvable;
 
@@ -40,4 +41,18 @@ public class EntityRetrievalTest {
         );
     }
 
+    @Test
+    void bulkRetrievalCollect() {
+        var bulk = EntityRetrieval.BulkEntityResolver.of(List.of(refs.get(2), refs.get(0), refs.get(1)));
+        Indexable text = () -> "1";
+        Indexable term = () -> "2";
+        var results = bulk.collect(
+            Map.of("BTSText", List.of(text), "BTSThsEntry", List.of(term))
+        );
+        assertAll("results in queue order, missing IDs reported",
+            () -> assertEquals(List.of(term, text), List.copyOf(results)),
+            () -> assertEquals(Map.of("BTSThsEntry", Set.of("3")), bulk.getMissing())
+        );
+    }
+
 }
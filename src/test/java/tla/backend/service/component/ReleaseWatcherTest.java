@@ -0,0 +1,79 @@
+package tla.backend.service.component;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import tla.backend.es.repo.CorpusIngestedEvent;
+
+public class ReleaseWatcherTest {
+
+    /**
+     * Watches a release set by the test, and passes events on to itself.
+     */
+    static class TestWatcher extends ReleaseWatcher {
+        String release = "1/1/2022-04-01\nlemma=lemma_1";
+        final List<Object> published = new ArrayList<>();
+
+        @Override
+        protected String currentRelease() throws IOException {
+            if (this.release == null) {
+                throw new IOException("no connection");
+            }
+            return this.release;
+        }
+
+        @Override
+        protected ApplicationEventPublisher getEventPublisher() {
+            return event -> {
+                this.published.add(event);
+                this.onCorpusIngested((CorpusIngestedEvent) event);
+            };
+        }
+    }
+
+    @Test
+    void testChangedReleasePublished() {
+        var watcher = new TestWatcher();
+        boolean first = watcher.check();
+        boolean unchanged = watcher.check();
+        watcher.release = "1/1/2022-04-01\nlemma=lemma_2";
+        boolean swapped = watcher.check();
+        boolean again = watcher.check();
+        assertAll("event published once for each change",
+            () -> assertFalse(first, "first check only records release"),
+            () -> assertFalse(unchanged, "same release"),
+            () -> assertTrue(swapped, "alias moved to new generation"),
+            () -> assertFalse(again, "change already published"),
+            () -> assertEquals(1, watcher.published.size(), "events")
+        );
+    }
+
+    @Test
+    void testIngestInProcessNotPublishedAgain() {
+        var watcher = new TestWatcher();
+        watcher.check();
+        watcher.release = "2/1/2023-04-01\nlemma=lemma_1";
+        watcher.onCorpusIngested(new CorpusIngestedEvent(this, null));
+        boolean afterIngest = watcher.check();
+        watcher.release = null;
+        boolean unreachable = watcher.check();
+        watcher.release = "2/1/2023-04-01\nlemma=lemma_1";
+        boolean reachable = watcher.check();
+        assertAll("release ingested by this process already announced",
+            () -> assertFalse(afterIngest, "check after ingest only records release"),
+            () -> assertFalse(unreachable, "failed check changes nothing"),
+            () -> assertFalse(reachable, "same release after failed check"),
+            () -> assertTrue(watcher.published.isEmpty(), "no events")
+        );
+    }
+
+}
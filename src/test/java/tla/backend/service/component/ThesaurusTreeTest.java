@@ -0,0 +1,57 @@
+package tla.backend.service.component;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ThesaurusTreeTest {
+
+    /**
+     * <pre>
+     * A
+     * ├── B
+     * │   ├── D
+     * │   └── E
+     * └── C
+     *     └── E
+     * </pre>
+     */
+    static ThesaurusTree tree() {
+        return new ThesaurusTree.Builder()
+            .add("E", "e", List.of("B", "C"))
+            .add("A", "a", List.of())
+            .add("B", "b", List.of("A"))
+            .add("C", "c", List.of("A", "X"))
+            .add("D", "d", List.of("B"))
+            .build();
+    }
+
+    @Test
+    void testDescendants() {
+        var tree = tree();
+        assertAll("subtree expansion",
+            () -> assertArrayEquals(new String[]{"B", "C", "D", "E"}, tree.descendants(List.of("A"))),
+            () -> assertArrayEquals(new String[]{"D", "E"}, tree.descendants(List.of("B", "X"))),
+            () -> assertArrayEquals(new String[]{"B", "C", "D", "E"}, tree.descendants(List.of("A", "B"))),
+            () -> assertArrayEquals(new String[]{}, tree.descendants(List.of("D")))
+        );
+    }
+
+    @Test
+    void testAncestorsAndNames() {
+        var tree = tree();
+        assertAll("lookups",
+            () -> assertArrayEquals(new String[]{"A", "B", "C"}, tree.ancestors("E")),
+            () -> assertArrayEquals(new String[]{"A"}, tree.ancestors("C")),
+            () -> assertEquals("c", tree.getName("C")),
+            () -> assertNull(tree.getName("X")),
+            () -> assertEquals(5, tree.size())
+        );
+    }
+
+}
@@ -0,0 +1,70 @@
+package tla.backend.service.search;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import tla.backend.es.query.ESQueryResult;
+import tla.backend.es.query.ThsSearchQueryBuilder;
+
+public class DependencyResultCacheTest {
+
+    static ESQueryResult<?> result(int ids) {
+        var result = new ESQueryResult<>();
+        result.setCollectedIds(new String[ids]);
+        return result;
+    }
+
+    static ThsSearchQueryBuilder expansion(String... rootIds) {
+        var query = new ThsSearchQueryBuilder();
+        query.setRootIds(rootIds);
+        query.setExpansion(true);
+        return query;
+    }
+
+    @Test
+    void testKeys() {
+        var cache = new DependencyResultCache(10, 100);
+        String key = cache.key(expansion("a", "b"));
+        assertAll("keys depend on query and generation",
+            () -> assertEquals(key, cache.key(expansion("a", "b"))),
+            () -> assertNotEquals(key, cache.key(expansion("a")))
+        );
+        cache.invalidate("20220101");
+        assertNotEquals(key, cache.key(expansion("a", "b")), "new generation");
+    }
+
+    @Test
+    void testEviction() {
+        var cache = new DependencyResultCache(2, 100);
+        cache.put(cache.key(expansion("a")), result(10));
+        cache.put(cache.key(expansion("b")), result(10));
+        cache.get(cache.key(expansion("a")));
+        cache.put(cache.key(expansion("c")), result(10));
+        assertAll("least recently used entry evicted",
+            () -> assertEquals(2, cache.size()),
+            () -> assertNotNull(cache.get(cache.key(expansion("a")))),
+            () -> assertNull(cache.get(cache.key(expansion("b"))))
+        );
+        cache.put(cache.key(expansion("d")), result(95));
+        assertEquals(1, cache.size(), "evicted down to ID limit");
+        cache.put(cache.key(expansion("e")), result(200));
+        assertNull(cache.get(cache.key(expansion("e"))), "result exceeding ID limit not cached");
+    }
+
+    @Test
+    void testInvalidation() {
+        var cache = new DependencyResultCache(10, 100);
+        String key = cache.key(expansion("a"));
+        cache.put(key, result(1));
+        cache.invalidate(null);
+        assertEquals(0, cache.size());
+        cache.put(key, result(1));
+        assertEquals(0, cache.size(), "result of previous generation not cached");
+    }
+
+}
@@ -0,0 +1,126 @@
+package tla.backend.service.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import lombok.Getter;
+import tla.backend.es.query.ESQueryResult;
+import tla.backend.es.query.TLAQueryBuilder;
+
+public class DependencySchedulerTest {
+
+    @Getter
+    static class Query implements TLAQueryBuilder {
+        final String name;
+        final List<QueryDependency<?>> dependencies = new LinkedList<>();
+        final List<String> inputs = new ArrayList<>();
+        ESQueryResult<?> result;
+
+        Query(String name) {
+            this.name = name;
+        }
+
+        Query dependOn(Query query) {
+            this.dependsOn(query, this.inputs::add, q -> ((Query) q).name);
+            return this;
+        }
+
+        @Override
+        public BoolQueryBuilder getNativeRootQueryBuilder() {
+            return null;
+        }
+
+        @Override
+        public List<AbstractAggregationBuilder<?>> getNativeAggregationBuilders() {
+            return List.of();
+        }
+
+        @Override
+        public ESQueryResult<?> setResult(ESQueryResult<?> result) {
+            this.result = result;
+            return result;
+        }
+    }
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testIndependentDependenciesRunConcurrently() throws Exception {
+        var started = new CountDownLatch(2);
+        var head = new Query("head").dependOn(new Query("a")).dependOn(new Query("b"));
+        new DependencyScheduler(
+            executor,
+            query -> {
+                started.countDown();
+                try {
+                    assertTrue(started.await(5, TimeUnit.SECONDS), "both dependencies in flight");
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        ).resolve(head, 10000);
+        assertEquals(List.of("a", "b"), head.inputs.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    void testSharedDependencyExecutedOnce() throws Exception {
+        var shared = new Query("shared");
+        var a = new Query("a").dependOn(shared);
+        var b = new Query("b").dependOn(shared);
+        var head = new Query("head").dependOn(a).dependOn(b);
+        var executions = new AtomicInteger();
+        new DependencyScheduler(executor, query -> executions.incrementAndGet()).resolve(head, 0);
+        assertEquals(3, executions.get());
+        assertEquals(List.of("shared"), a.inputs);
+        assertEquals(List.of("shared"), b.inputs);
+        assertEquals(2, head.inputs.size());
+    }
+
+    @Test
+    void testTimeout() {
+        var release = new CountDownLatch(1);
+        var head = new Query("head").dependOn(new Query("slow").dependOn(new Query("slower")));
+        var scheduler = new DependencyScheduler(
+            executor,
+            query -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        );
+        assertThrows(TimeoutException.class, () -> scheduler.resolve(head, 50));
+        release.countDown();
+        assertTrue(head.inputs.isEmpty(), "cancelled dependency not fed into query");
+    }
+
+}
@@ -0,0 +1,58 @@
+package tla.backend.service.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class ExportWriterTest {
+
+    static Map<String, Object> doc(String id, String text) {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("id", id);
+        doc.put("context", Map.of("textId", "T" + id));
+        doc.put("text", text);
+        return doc;
+    }
+
+    static String export(ExportWriter.Format format, List<String> fields) throws Exception {
+        var out = new ByteArrayOutputStream();
+        try (var writer = new ExportWriter(out, format, fields)) {
+            writer.write(doc("1", "plain"));
+            writer.write(doc("2", "say \"hi\", then go"));
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testNdjson() throws Exception {
+        assertEquals(
+            "{\"id\":\"1\",\"context\":{\"textId\":\"T1\"},\"text\":\"plain\"}\n"
+            + "{\"id\":\"2\",\"context\":{\"textId\":\"T2\"},\"text\":\"say \\\"hi\\\", then go\"}\n",
+            export(ExportWriter.Format.of("ndjson"), null)
+        );
+    }
+
+    @Test
+    void testCsv() throws Exception {
+        assertEquals(
+            "id,context.textId,text\r\n"
+            + "1,T1,plain\r\n"
+            + "2,T2,\"say \"\"hi\"\", then go\"\r\n",
+            export(ExportWriter.Format.CSV, List.of("id", "context.textId", "text"))
+        );
+        assertEquals(
+            "id,context,text\r\n"
+            + "1,\"{\"\"textId\"\":\"\"T1\"\"}\",plain\r\n"
+            + "2,\"{\"\"textId\"\":\"\"T2\"\"}\",\"say \"\"hi\"\", then go\"\r\n",
+            export(ExportWriter.Format.CSV, null),
+            "columns from first document, nested objects as JSON"
+        );
+    }
+
+}